@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.block;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the chain comparison done for every inv and block received, which walks back from
+ * the higher of the two blocks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockBenchmark {
+    /**
+     * The height of the chain tip.
+     */
+    @Param({"10", "100", "1000", "10000"})
+    public int height;
+
+    private Block tip;
+    private Block ancestor;
+    private Block fork;
+
+    /**
+     * Builds a chain up to the height, with a fork branching off at half of it.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Block block = new Block(null, null, 0);
+        for (int i = 1; i <= this.height; i++) {
+            block = new Block(block, null, i);
+            if (i == this.height / 2) {
+                this.ancestor = block;
+            }
+        }
+        this.tip = block;
+        this.fork = new Block(this.ancestor.getParent(), null, this.height);
+    }
+
+    /**
+     * Compares the tip with one of its ancestors.
+     *
+     * @return true
+     */
+    @Benchmark
+    public boolean isOnSameChainAsAncestor() {
+        return this.tip.isOnSameChainAs(this.ancestor);
+    }
+
+    /**
+     * Compares the tip with a block of a fork.
+     *
+     * @return false
+     */
+    @Benchmark
+    public boolean isOnSameChainAsFork() {
+        return this.tip.isOnSameChainAs(this.fork);
+    }
+}
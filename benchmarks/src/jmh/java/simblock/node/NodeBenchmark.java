@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.node;
+
+import static simblock.simulator.Simulator.addNode;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import simblock.block.ProofOfWorkBlock;
+import simblock.simulator.BenchmarkFixtures;
+import simblock.task.AbstractMessageTask;
+import simblock.task.BlockMessageTask;
+import simblock.task.CmpctBlockMessageTask;
+import simblock.task.GetBlockTxnMessageTask;
+import simblock.task.InvMessageTask;
+import simblock.task.RecMessageTask;
+
+/**
+ * Benchmarks the handling of each message type by a node. Handling a message changes the state
+ * of the receiving node, so every invocation gets a fresh node holding only the genesis block,
+ * and a new block extending it; the tasks it schedules are dropped afterwards. Timings include
+ * the scheduling of the resulting tasks but not their execution.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NodeBenchmark {
+    /**
+     * The type of the received message.
+     */
+    @Param({"inv", "rec", "getblocktxn", "cmpctblock", "block"})
+    public String messageType;
+
+    private Node peer;
+    private ProofOfWorkBlock genesis;
+    private Node node;
+    private AbstractMessageTask message;
+
+    /**
+     * Creates the peer sending the messages and the genesis block.
+     */
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        BenchmarkFixtures.setUp(2);
+        this.peer = BenchmarkFixtures.createNode(1, 0, true);
+        addNode(this.peer);
+        addNode(BenchmarkFixtures.createNode(2, 0, true));
+        this.genesis = (ProofOfWorkBlock) this.peer.getConsensusAlgo().genesisBlock();
+        this.peer.addToChain(this.genesis);
+    }
+
+    /**
+     * Creates the receiving node and the message.
+     */
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        this.node = BenchmarkFixtures.createNode(2, 0, true);
+        this.node.addToChain(this.genesis);
+        this.node.addNeighbor(this.peer);
+        ProofOfWorkBlock block = new ProofOfWorkBlock(
+                this.genesis, this.peer, 0, this.genesis.getNextDifficulty());
+        switch (this.messageType) {
+            case "inv":
+                this.message = InvMessageTask.obtain(this.peer, this.node, block);
+                break;
+            case "rec":
+                this.message = RecMessageTask.obtain(this.peer, this.node, block);
+                break;
+            case "getblocktxn":
+                this.message = GetBlockTxnMessageTask.obtain(this.peer, this.node, block);
+                break;
+            case "cmpctblock":
+                this.message = CmpctBlockMessageTask.obtain(this.peer, this.node, block, 0);
+                break;
+            case "block":
+                this.message = BlockMessageTask.obtain(this.peer, this.node, block, 0);
+                break;
+            default:
+                throw new IllegalArgumentException(this.messageType);
+        }
+    }
+
+    /**
+     * Releases the message and drops the scheduled tasks.
+     */
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() {
+        this.message.release();
+        BenchmarkFixtures.clearTimer();
+        this.node.removeNeighbor(this.peer);
+    }
+
+    /**
+     * Receives the message.
+     */
+    @Benchmark
+    public void receiveMessage() {
+        this.node.receiveMessage(this.message);
+    }
+}
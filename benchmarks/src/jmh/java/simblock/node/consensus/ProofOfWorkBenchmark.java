@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.node.consensus;
+
+import static simblock.simulator.Simulator.addNode;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simblock.block.ProofOfWorkBlock;
+import simblock.node.Node;
+import simblock.simulator.BenchmarkFixtures;
+
+/**
+ * Benchmarks the validation of received Proof of Work blocks against the current block.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProofOfWorkBenchmark {
+    /**
+     * The height of the current block.
+     */
+    @Param({"10", "1000"})
+    public int height;
+
+    private ProofOfWork consensus;
+    private ProofOfWorkBlock current;
+    private ProofOfWorkBlock child;
+    private ProofOfWorkBlock stale;
+
+    /**
+     * Builds a chain up to the height.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFixtures.setUp(1);
+        Node node = BenchmarkFixtures.createNode(1, 0, true);
+        addNode(node);
+        this.consensus = (ProofOfWork) node.getConsensusAlgo();
+        ProofOfWorkBlock block = this.consensus.genesisBlock();
+        for (int i = 1; i <= this.height; i++) {
+            block = new ProofOfWorkBlock(block, node, i, block.getNextDifficulty());
+        }
+        this.current = block;
+        this.stale = (ProofOfWorkBlock) block.getParent();
+        this.child = new ProofOfWorkBlock(block, node, this.height + 1, block.getNextDifficulty());
+    }
+
+    /**
+     * Validates a block extending the current block.
+     *
+     * @return true
+     */
+    @Benchmark
+    public boolean isReceivedBlockValidForChild() {
+        return this.consensus.isReceivedBlockValid(this.child, this.current);
+    }
+
+    /**
+     * Validates a block behind the current block.
+     *
+     * @return false
+     */
+    @Benchmark
+    public boolean isReceivedBlockValidForStale() {
+        return this.consensus.isReceivedBlockValid(this.stale, this.current);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+import static simblock.settings.SimulatorConfigulation.getAlgo;
+import static simblock.settings.SimulatorConfigulation.getTable;
+import static simblock.settings.SimulatorConfigulation.readProperties;
+import static simblock.simulator.Timer.getTask;
+import static simblock.simulator.Timer.removeTask;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+import simblock.logger.BasicLogger;
+import simblock.node.Node;
+import simblock.task.Task;
+
+/**
+ * The type Benchmark fixtures sets up the global simulator state the benchmarks depend on.
+ * The simulator keeps its state in static fields, so every benchmark runs in a forked JVM and
+ * calls {@link #setUp(int)} once before touching any simulator class.
+ */
+public final class BenchmarkFixtures {
+    /**
+     * The target block interval used by the fixtures, as in the default properties.
+     */
+    public static final long INTERVAL = 600000;
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Loads simulation properties for the provided number of nodes, silences the loggers, sets
+     * the target block interval and clears the simulated nodes of a previous setup.
+     *
+     * @param numOfNodes the number of nodes
+     */
+    public static void setUp(int numOfNodes) {
+        Properties properties = new Properties();
+        properties.setProperty("NUM_OF_NODES", Integer.toString(numOfNodes));
+        properties.setProperty("END_BLOCK_HEIGHT", "100");
+        properties.setProperty("INTERVAL", Long.toString(INTERVAL));
+        properties.setProperty("AVERAGE_MINING_POWER", "400000");
+        properties.setProperty("STDEV_OF_MINING_POWER", "100000");
+        properties.setProperty("CBR_USAGE_RATE", "0.964");
+        try {
+            File file = File.createTempFile("simblock-benchmark", ".properties");
+            file.deleteOnExit();
+            try (FileWriter writer = new FileWriter(file)) {
+                properties.store(writer, null);
+            }
+            readProperties(file.getPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        for (String name : new String[] {
+                "simblock.output", "simblock.propagation", "simblock.result", "simblock.static"}) {
+            BasicLogger.getLogger(name).setWriter(new PrintWriter(OutputStream.nullOutputStream()));
+        }
+        Simulator.setTargetInterval(INTERVAL);
+        Simulator.clearNodes();
+    }
+
+    /**
+     * Creates a node using the default routing table and consensus algorithm. The node is not
+     * added to the simulation.
+     *
+     * @param nodeID the node id
+     * @param region the region
+     * @param useCBR whether the node uses compact block relay
+     * @return the node
+     */
+    public static Node createNode(int nodeID, int region, boolean useCBR) {
+        return new Node(nodeID, 8, region, 400000, getTable(), getAlgo(), useCBR, false);
+    }
+
+    /**
+     * Removes every scheduled task from the {@link Timer} without running it.
+     */
+    public static void clearTimer() {
+        Task task;
+        while ((task = getTask()) != null) {
+            removeTask(task);
+            task.release();
+        }
+    }
+}
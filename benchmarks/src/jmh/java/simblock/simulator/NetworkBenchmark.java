@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+import static simblock.simulator.Network.getLatency;
+import static simblock.simulator.Simulator.addNode;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simblock.node.Node;
+
+/**
+ * Benchmarks the latency sampling done for every message sent.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NetworkBenchmark {
+    /**
+     * The number of nodes latencies are sampled between.
+     */
+    private static final int NUM_OF_NODES = 1000;
+
+    private int regions;
+    private int pair = 0;
+    private Node[] nodes;
+    private int nodePair = 0;
+
+    /**
+     * Loads the settings.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFixtures.setUp(NUM_OF_NODES);
+        this.regions = Network.getRegionList().size();
+        this.nodes = new Node[NUM_OF_NODES];
+        for (int i = 0; i < NUM_OF_NODES; i++) {
+            this.nodes[i] = BenchmarkFixtures.createNode(i + 1, i % this.regions, true);
+            addNode(this.nodes[i]);
+        }
+    }
+
+    /**
+     * Samples the latency between the next pair of regions.
+     *
+     * @return the latency
+     */
+    @Benchmark
+    public long getLatencyBetweenRegions() {
+        this.pair = (this.pair + 1) % (this.regions * this.regions);
+        return getLatency(this.pair / this.regions, this.pair % this.regions);
+    }
+
+    /**
+     * Samples the latency between the next pair of nodes, including their access links.
+     *
+     * @return the latency
+     */
+    @Benchmark
+    public long getLatencyBetweenNodes() {
+        this.nodePair = (this.nodePair + 7919) % (NUM_OF_NODES * NUM_OF_NODES);
+        return getLatency(this.nodes[this.nodePair / NUM_OF_NODES],
+                this.nodes[this.nodePair % NUM_OF_NODES]);
+    }
+}
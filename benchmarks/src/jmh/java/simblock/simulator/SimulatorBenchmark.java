@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+import static simblock.simulator.Simulator.addNode;
+import static simblock.simulator.Simulator.calculateFairness;
+import static simblock.simulator.Simulator.printPropagation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simblock.block.Block;
+import simblock.node.Node;
+
+/**
+ * Benchmarks the fairness calculation run at the end of a simulation. Its cost grows with the
+ * square of the number of nodes times the 1000 rounds of the stationary distribution, about a
+ * minute per call with 1k nodes, so a single cold call is timed. With 10k nodes the propagation
+ * matrix alone takes 800 MB and a call runs for over an hour.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SimulatorBenchmark {
+    /**
+     * The number of nodes.
+     */
+    @Param({"1000", "10000"})
+    public int numOfNodes;
+
+    /**
+     * Records one block minted by every node, with random propagation times to the others.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFixtures.setUp(this.numOfNodes);
+        Random random = new Random(10);
+        List<Node> nodes = new ArrayList<>(this.numOfNodes);
+        for (int id = 1; id <= this.numOfNodes; id++) {
+            Node node = BenchmarkFixtures.createNode(id, 0, true);
+            nodes.add(node);
+            addNode(node);
+        }
+        for (Node minter : nodes) {
+            Block block = new Block(null, minter, 0);
+            LinkedHashMap<Integer, Long> propagation = new LinkedHashMap<>();
+            propagation.put(minter.getNodeID(), 0L);
+            for (Node node : nodes) {
+                if (node != minter) {
+                    propagation.put(node.getNodeID(), 1L + random.nextInt(5000));
+                }
+            }
+            printPropagation(block, propagation, this.numOfNodes);
+        }
+    }
+
+    /**
+     * Calculates the fairness when a miner loses every fork.
+     *
+     * @return the fairness of each node
+     */
+    @Benchmark
+    public ArrayList<Double> calculateFairnessWithoutWinning() {
+        return calculateFairness(0);
+    }
+}
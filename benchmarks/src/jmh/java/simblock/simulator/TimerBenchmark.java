@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+import static simblock.simulator.Timer.putTask;
+import static simblock.simulator.Timer.removeTask;
+import static simblock.simulator.Timer.runTask;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import simblock.task.Task;
+
+/**
+ * Benchmarks the {@link Timer} event queue at the queue sizes seen in simulations: a few
+ * thousand pending tasks for the default network, a few hundred thousand for large ones.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimerBenchmark {
+    /**
+     * The number of pending tasks.
+     */
+    @Param({"1000", "10000", "100000"})
+    public int queueSize;
+
+    /**
+     * A task rescheduling itself after a random interval each time it is run, so that the queue
+     * keeps its size.
+     */
+    private static final class RecurringTask implements Task {
+        private final Random random;
+        private long interval;
+
+        private RecurringTask(Random random) {
+            this.random = random;
+            this.interval = 1 + random.nextInt(10000);
+        }
+
+        @Override
+        public long getInterval() {
+            return this.interval;
+        }
+
+        @Override
+        public void run() {
+            this.interval = 1 + this.random.nextInt(10000);
+            putTask(this);
+        }
+    }
+
+    private RecurringTask probe;
+
+    /**
+     * Fills the queue with recurring tasks.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFixtures.setUp(1);
+        Random random = new Random(10);
+        for (int i = 0; i < this.queueSize; i++) {
+            putTask(new RecurringTask(random));
+        }
+        this.probe = new RecurringTask(random);
+    }
+
+    /**
+     * Empties the queue.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkFixtures.clearTimer();
+    }
+
+    /**
+     * Runs the next task, which schedules itself again.
+     */
+    @Benchmark
+    public void runTaskAndPutTask() {
+        runTask();
+    }
+
+    /**
+     * Schedules a task and removes it again before it runs.
+     */
+    @Benchmark
+    public void putTaskAndRemoveTask() {
+        putTask(this.probe);
+        removeTask(this.probe);
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.benchmarks;
+
+import static simblock.simulator.Main.PROPERTIES_FILE_URI;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * The type Macro benchmark runs whole simulations of scaled-down versions of the shipped
+ * properties files, each in a forked JVM with a fixed seed, and compares their throughput with a
+ * stored baseline. The report is written as JSON, and the run fails when the events per second
+ * of a workload fall below the baseline by more than the tolerance.
+ *
+ * <p>Options: <em>-baseline</em> the baseline properties file, <em>-report</em> the JSON report,
+ * <em>-work</em> the directory for the scaled properties and logs, <em>-tolerance</em> the
+ * allowed throughput regression as a fraction, <em>-runs</em> the number of runs per workload of
+ * which the fastest is kept, <em>-seed</em> the simulation seed and <em>-update-baseline</em> to
+ * store the measured throughput as the new baseline instead of comparing.
+ */
+public class MacroBenchmark {
+    /**
+     * A scaled-down version of a properties file.
+     */
+    private static final class Workload {
+        /**
+         * The name of the properties file.
+         */
+        private final String name;
+
+        /**
+         * The number of nodes of the scaled-down version.
+         */
+        private final int numOfNodes;
+
+        /**
+         * The end block height of the scaled-down version.
+         */
+        private final int endBlockHeight;
+
+        private Workload(String name, int numOfNodes, int endBlockHeight) {
+            this.name = name;
+            this.numOfNodes = numOfNodes;
+            this.endBlockHeight = endBlockHeight;
+        }
+    }
+
+    /**
+     * The workloads. Both the number of nodes and the chain are cut, keeping the longer and larger
+     * files longer and larger, so that a run of all of them takes a few minutes.
+     */
+    private static final Workload[] WORKLOADS = {
+        new Workload("light", 100, 250),
+        new Workload("base", 250, 150),
+        new Workload("long", 250, 400),
+        new Workload("big-long", 500, 80)
+    };
+
+    /**
+     * The metrics written to the report, as recorded by {@link MacroBenchmarkRun}.
+     */
+    private static final String[] METRICS = {
+        "events", "wall-ms", "event-loop-ms", "events-per-second", "peak-heap-bytes", "allocated-bytes",
+        "allocated-bytes-per-block", "gc-count", "gc-time-ms"
+    };
+
+    /**
+     * Runs the workloads.
+     *
+     * @param args the options
+     * @throws IOException          if a file cannot be read or written
+     * @throws InterruptedException if interrupted while waiting for a run
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        File baselineFile = new File("macro-baseline.properties");
+        File reportFile = new File("macro-report.json");
+        File workDir = new File("macro");
+        double tolerance = 0.15;
+        int runs = 3;
+        long seed = 10;
+        boolean updateBaseline = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-baseline":
+                    baselineFile = new File(args[++i]);
+                    break;
+                case "-report":
+                    reportFile = new File(args[++i]);
+                    break;
+                case "-work":
+                    workDir = new File(args[++i]);
+                    break;
+                case "-tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                case "-runs":
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "-update-baseline":
+                    updateBaseline = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        workDir.mkdirs();
+
+        Properties baseline = new Properties();
+        if (baselineFile.exists()) {
+            try (Reader reader = new FileReader(baselineFile)) {
+                baseline.load(reader);
+            }
+        }
+
+        List<Properties> results = new ArrayList<>();
+        for (Workload workload : WORKLOADS) {
+            Properties best = null;
+            for (int run = 0; run < runs; run++) {
+                Properties metrics = run(workload, seed, workDir);
+                if (best == null || rate(metrics) > rate(best)) {
+                    best = metrics;
+                }
+            }
+            System.out.println(workload.name + ": " + best.getProperty("events-per-second")
+                    + " events/s, " + best.getProperty("wall-ms") + " ms");
+            results.add(best);
+        }
+
+        List<String> regressions = new ArrayList<>();
+        reportFile.getAbsoluteFile().getParentFile().mkdirs();
+        try (PrintWriter report = new PrintWriter(new FileWriter(reportFile))) {
+            report.println("{");
+            report.println("  \"seed\": " + seed + ",");
+            report.println("  \"tolerance\": " + tolerance + ",");
+            report.println("  \"workloads\": [");
+            for (int i = 0; i < WORKLOADS.length; i++) {
+                Workload workload = WORKLOADS[i];
+                Properties metrics = results.get(i);
+                report.println("    {");
+                report.println("      \"name\": \"" + workload.name + "\",");
+                report.println("      \"nodes\": " + workload.numOfNodes + ",");
+                report.println("      \"blocks\": " + workload.endBlockHeight + ",");
+                for (String metric : METRICS) {
+                    report.println("      \"" + metric + "\": " + metrics.getProperty(metric) + ",");
+                }
+                String expected = baseline.getProperty(workload.name + ".events-per-second");
+                if (expected == null) {
+                    report.println("      \"baseline-events-per-second\": null,");
+                    report.println("      \"change\": null");
+                } else {
+                    double change = rate(metrics) / Double.parseDouble(expected) - 1;
+                    report.println("      \"baseline-events-per-second\": " + expected + ",");
+                    report.println("      \"change\": "
+                            + String.format(Locale.ROOT, "%.4f", change));
+                    if (change < -tolerance) {
+                        regressions.add(String.format(Locale.ROOT,
+                                "%s: %.0f events/s is %.1f%% below the baseline of %s",
+                                workload.name, rate(metrics), -change * 100, expected));
+                    }
+                }
+                report.println(i < WORKLOADS.length - 1 ? "    }," : "    }");
+            }
+            report.println("  ]");
+            report.println("}");
+        }
+
+        if (updateBaseline) {
+            Properties updated = new Properties();
+            for (int i = 0; i < WORKLOADS.length; i++) {
+                updated.setProperty(WORKLOADS[i].name + ".events-per-second",
+                        results.get(i).getProperty("events-per-second"));
+                updated.setProperty(WORKLOADS[i].name + ".events",
+                        results.get(i).getProperty("events"));
+            }
+            try (Writer writer = new FileWriter(baselineFile)) {
+                updated.store(writer, "Macro benchmark baseline, seed " + seed);
+            }
+            return;
+        }
+        if (!regressions.isEmpty()) {
+            for (String regression : regressions) {
+                System.err.println(regression);
+            }
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Gets the throughput of a run.
+     *
+     * @param metrics the metrics of the run
+     * @return the events per second
+     */
+    private static double rate(Properties metrics) {
+        return Double.parseDouble(metrics.getProperty("events-per-second"));
+    }
+
+    /**
+     * Runs a workload in a forked JVM.
+     *
+     * @param workload the workload
+     * @param seed     the simulation seed
+     * @param workDir  the directory for the scaled properties, the metrics and the log
+     * @return the metrics of the run
+     * @throws IOException          if a file cannot be read or written
+     * @throws InterruptedException if interrupted while waiting for the run
+     */
+    private static Properties run(Workload workload, long seed, File workDir)
+            throws IOException, InterruptedException {
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(
+                new File(PROPERTIES_FILE_URI.resolve(workload.name + ".properties")))) {
+            properties.load(reader);
+        }
+        properties.setProperty("NUM_OF_NODES", Integer.toString(workload.numOfNodes));
+        properties.setProperty("END_BLOCK_HEIGHT", Integer.toString(workload.endBlockHeight));
+        // The outputs of the simulation are named after the properties file
+        File propertiesFile = new File(workDir, workload.name + "-macro.properties");
+        try (Writer writer = new FileWriter(propertiesFile)) {
+            properties.store(writer, "Scaled-down " + workload.name + ".properties");
+        }
+
+        File metricsFile = new File(workDir, workload.name + "-metrics.properties");
+        metricsFile.delete();
+        ProcessBuilder builder = new ProcessBuilder(
+                new File(System.getProperty("java.home"), "bin/java").getPath(),
+                "-Xmx4g", "-Dfile.encoding=UTF-8",
+                "-cp", System.getProperty("java.class.path"),
+                MacroBenchmarkRun.class.getName(),
+                propertiesFile.getPath(), Long.toString(seed), metricsFile.getPath());
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(new File(workDir, workload.name + ".log"));
+        int status = builder.start().waitFor();
+        if (status != 0 || !metricsFile.exists()) {
+            throw new IllegalStateException(
+                    workload.name + " failed, see " + new File(workDir, workload.name + ".log"));
+        }
+        Properties metrics = new Properties();
+        try (Reader reader = new FileReader(metricsFile)) {
+            metrics.load(reader);
+        }
+        return metrics;
+    }
+}
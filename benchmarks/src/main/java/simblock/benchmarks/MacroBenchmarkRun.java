@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.benchmarks;
+
+import static simblock.settings.SimulatorConfigulation.getEndBlockHeight;
+import static simblock.simulator.Timer.getProcessedTaskCount;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Properties;
+import simblock.simulator.Main;
+
+/**
+ * The type Macro benchmark run runs a single simulation in the JVM forked by
+ * {@link MacroBenchmark} and records its metrics. The throughput is measured over the event loop
+ * alone, as the setup and the final fairness calculation grow with the square of the number of
+ * nodes and would otherwise dominate the larger workloads. Allocation is counted on the simulation thread
+ * through the HotSpot {@link com.sun.management.ThreadMXBean}, and the peak heap is the sum of the
+ * peak usage of the heap memory pools, an upper bound of the actual peak.
+ */
+public class MacroBenchmarkRun {
+    /**
+     * Runs the simulation.
+     *
+     * @param args the properties file, the seed and the file to write the metrics to
+     * @throws IOException if the metrics cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        long gcCount = 0;
+        long gcTime = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount -= gc.getCollectionCount();
+            gcTime -= gc.getCollectionTime();
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        Main.main(new String[] {"-properties", args[0], "-seed", args[1]});
+        long wall = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += gc.getCollectionCount();
+            gcTime += gc.getCollectionTime();
+        }
+
+        long events = getProcessedTaskCount();
+        Properties metrics = new Properties();
+        metrics.setProperty("events", Long.toString(events));
+        metrics.setProperty("wall-ms", Long.toString(wall / 1000000));
+        metrics.setProperty("event-loop-ms", Long.toString(Main.eventLoopTime));
+        metrics.setProperty("events-per-second",
+                Long.toString(events * 1000 / Math.max(1, Main.eventLoopTime)));
+        metrics.setProperty("peak-heap-bytes", Long.toString(peakHeap));
+        metrics.setProperty("allocated-bytes", Long.toString(allocated));
+        metrics.setProperty("allocated-bytes-per-block",
+                Long.toString(allocated / getEndBlockHeight()));
+        metrics.setProperty("gc-count", Long.toString(gcCount));
+        metrics.setProperty("gc-time-ms", Long.toString(gcTime));
+        try (Writer writer = new FileWriter(args[2])) {
+            metrics.store(writer, null);
+        }
+    }
+}
@@ -16,9 +16,9 @@
 
 package simblock.block;
 
-import static simblock.settings.SimulationConfiguration.AVERAGE_COINS;
-import static simblock.settings.SimulationConfiguration.STAKING_REWARD;
-import static simblock.settings.SimulationConfiguration.STDEV_OF_COINS;
+import static simblock.settings.SimulatorConfigulation.getAverageCoins;
+import static simblock.settings.SimulatorConfigulation.getStakingReward;
+import static simblock.settings.SimulatorConfigulation.getStdevOfCoins;
 import static simblock.simulator.Main.random;
 import static simblock.simulator.Simulator.getSimulatedNodes;
 import static simblock.simulator.Simulator.getTargetInterval;
@@ -61,7 +61,7 @@ public class SamplePoSBlock extends Block {
                 this.coinages.put(node, parent.getCoinage(node).clone());
                 this.coinages.get(node).increaseAge();
             }
-            this.coinages.get(minter).reward(STAKING_REWARD);
+            this.coinages.get(minter).reward(getStakingReward());
             this.coinages.get(minter).resetAge();
         }
 
@@ -121,7 +121,8 @@ public class SamplePoSBlock extends Block {
 
     private static Coinage genCoinage() {
         double r = random.nextGaussian();
-        BigInteger coins = BigInteger.valueOf(Math.max((int) (r * STDEV_OF_COINS + AVERAGE_COINS), 0));
+        BigInteger coins = BigInteger.valueOf(
+                Math.max((int) (r * getStdevOfCoins() + getAverageCoins()), 0));
         return new Coinage(coins, 1);
     }
 
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event marking that a block was minted or reached one of the PROPAGATION_PERCENTILES of the
+ * nodes that were online when it was first seen.
+ */
+@Name("simblock.BlockMilestone")
+@Label("Block Milestone")
+@Category({"SimBlock", "Blocks"})
+@Description("A block was minted or reached a share of the nodes")
+@StackTrace(false)
+public class BlockMilestoneEvent extends Event {
+    /**
+     * The block id.
+     */
+    @Label("Block Id")
+    public int blockId;
+
+    /**
+     * The block height.
+     */
+    @Label("Height")
+    public int height;
+
+    /**
+     * The share of the online nodes the block reached, 0 when minted.
+     */
+    @Label("Reached")
+    @Percentage
+    public double reached;
+
+    /**
+     * The simulated time since the block was minted.
+     */
+    @Label("Propagation Time")
+    @Timespan(Timespan.MILLISECONDS)
+    public long propagationTime;
+
+    /**
+     * The simulated time.
+     */
+    @Label("Simulated Time")
+    @Timespan(Timespan.MILLISECONDS)
+    public long simulatedTime;
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event spanning a fairness calculation at the end of the simulation.
+ */
+@Name("simblock.Fairness")
+@Label("Fairness Calculation")
+@Category({"SimBlock", "Phases"})
+@Description("Calculation of the fairness of the miners for a winning rate")
+public class FairnessEvent extends Event {
+    /**
+     * The winning rate.
+     */
+    @Label("Winning Rate")
+    public double winningRate;
+
+    /**
+     * The number of nodes.
+     */
+    @Label("Nodes")
+    public int numOfNodes;
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event spanning the dump of the network graph.
+ */
+@Name("simblock.GraphDump")
+@Label("Graph Dump")
+@Category({"SimBlock", "Output"})
+@Description("Writing of the network graph at a block height")
+public class GraphDumpEvent extends Event {
+    /**
+     * The block height.
+     */
+    @Label("Height")
+    public int height;
+
+    /**
+     * The simulated time.
+     */
+    @Label("Simulated Time")
+    @Timespan(Timespan.MILLISECONDS)
+    public long simulatedTime;
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event spanning a flush of a logger. Only flushes slower than a millisecond are recorded by
+ * default, as the loggers flush on every message.
+ */
+@Name("simblock.LoggerFlush")
+@Label("Logger Flush")
+@Category({"SimBlock", "Output"})
+@Description("Flush of a logger to its file")
+@StackTrace(false)
+@Threshold("1 ms")
+public class LoggerFlushEvent extends Event {
+    /**
+     * The number of characters flushed.
+     */
+    @Label("Characters")
+    public long characters;
+}
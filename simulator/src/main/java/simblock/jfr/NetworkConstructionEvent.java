@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event spanning the construction of the simulated network.
+ */
+@Name("simblock.NetworkConstruction")
+@Label("Network Construction")
+@Category({"SimBlock", "Phases"})
+@Description("Creation of the nodes and of their connections")
+public class NetworkConstructionEvent extends Event {
+    /**
+     * The number of nodes.
+     */
+    @Label("Nodes")
+    public int numOfNodes;
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.logger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The type Async gzip output stream writes a gzip file, compressing on a thread of its own. The
+ * bytes written are collected in chunks which are handed to the compressing thread when full, so
+ * the writing thread only waits when all chunks are waiting to be compressed.
+ *
+ * <p>{@link #flush()} does not hand over the current chunk: the compressed data reaches the file
+ * as chunks fill up and on {@link #close()}, which has to be called for the file to be complete.
+ */
+public class AsyncGzipOutputStream extends OutputStream {
+    /**
+     * The size of a chunk in bytes.
+     */
+    private static final int CHUNK_SIZE = 1 << 18;
+
+    /**
+     * The number of chunks.
+     */
+    private static final int CHUNKS = 4;
+
+    /**
+     * The marker handed to the compressing thread after the last chunk.
+     */
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    /**
+     * The chunks ready to be filled.
+     */
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(CHUNKS);
+
+    /**
+     * The chunks waiting to be compressed, followed by {@link #END}.
+     */
+    private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(CHUNKS + 1);
+
+    /**
+     * The gzip stream, only used by the compressing thread.
+     */
+    private final GZIPOutputStream gzip;
+
+    /**
+     * The compressing thread.
+     */
+    private final Thread compressor;
+
+    /**
+     * The chunk being filled, null once closed.
+     */
+    private ByteBuffer chunk;
+
+    /**
+     * The first failure of the compressing thread.
+     */
+    private volatile IOException failure = null;
+
+    /**
+     * Creates a gzip file, replacing any existing file, and starts its compressing thread.
+     *
+     * @param file  the file
+     * @param level the compression level, from 0 to 9
+     * @throws IOException if the file cannot be created
+     */
+    public AsyncGzipOutputStream(File file, int level) throws IOException {
+        this.gzip = new GZIPOutputStream(new FileOutputStream(file), CHUNK_SIZE) {
+            {
+                this.def.setLevel(level);
+            }
+        };
+        for (int i = 0; i < CHUNKS - 1; i++) {
+            this.free.add(ByteBuffer.allocate(CHUNK_SIZE));
+        }
+        this.chunk = ByteBuffer.allocate(CHUNK_SIZE);
+        this.compressor = new Thread(this::compress, "simblock-gzip-" + file.getName());
+        this.compressor.setDaemon(true);
+        this.compressor.start();
+    }
+
+    /**
+     * Compresses the filled chunks until {@link #END}, then finishes the file. After a failure,
+     * the chunks are recycled without being written, so that the writing thread does not block.
+     */
+    private void compress() {
+        try {
+            ByteBuffer next;
+            while ((next = this.filled.take()) != END) {
+                if (this.failure == null) {
+                    try {
+                        this.gzip.write(next.array(), 0, next.position());
+                    } catch (IOException e) {
+                        this.failure = e;
+                    }
+                }
+                next.clear();
+                this.free.add(next);
+            }
+            this.gzip.close();
+        } catch (IOException e) {
+            if (this.failure == null) {
+                this.failure = e;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Hands the current chunk to the compressing thread and takes a free one.
+     *
+     * @throws IOException if the compressing thread failed or the writing thread is interrupted
+     */
+    private void handOver() throws IOException {
+        checkFailure();
+        try {
+            this.filled.put(this.chunk);
+            this.chunk = this.free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * Throws the failure of the compressing thread, if any.
+     *
+     * @throws IOException the failure
+     */
+    private void checkFailure() throws IOException {
+        if (this.failure != null) {
+            throw this.failure;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.chunk.put((byte) b);
+        if (!this.chunk.hasRemaining()) {
+            handOver();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, this.chunk.remaining());
+            this.chunk.put(b, off, n);
+            off += n;
+            len -= n;
+            if (!this.chunk.hasRemaining()) {
+                handOver();
+            }
+        }
+    }
+
+    /**
+     * Does nothing, as compressing partial chunks would defeat the purpose of this stream.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Hands the last chunk to the compressing thread and waits for it to finish the file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.chunk == null) {
+            return;
+        }
+        try {
+            if (this.chunk.position() > 0) {
+                this.filled.put(this.chunk);
+            }
+            this.chunk = null;
+            this.filled.put(END);
+            this.compressor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        checkFailure();
+    }
+}
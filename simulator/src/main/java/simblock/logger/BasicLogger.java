@@ -1,7 +1,10 @@
 package simblock.logger;
 
+import static simblock.settings.SimulatorConfigulation.getCompressionLevel;
+
 import java.io.*;
 import java.util.HashMap;
+import simblock.jfr.LoggerFlushEvent;
 
 /**
  * Basic logger class
@@ -9,13 +12,23 @@ import java.util.HashMap;
 public class BasicLogger implements Closeable {
     protected PrintWriter writer = null;
 
+    /** The name of the logger */
+    private final String name;
+
+    /** The JSON writer streaming to the writer, created on first use */
+    private JsonWriter json = null;
+
+    /** Characters written since the writer was last flushed */
+    private long backlog = 0;
+
     /** Store loggers */
     private static HashMap<String, BasicLogger> namedLoggers = new HashMap<>();
 
     /**
      * Cannot be instanced by the constructor directly. Use BasicLogger.getLogger.
      */
-    private BasicLogger() {
+    private BasicLogger(String name) {
+        this.name = name;
         // this.writer = new PrintWriter(new BufferedWriter(new
         // OutputStreamWriter(System.out)));
     }
@@ -24,7 +37,7 @@ public class BasicLogger implements Closeable {
     public static BasicLogger getLogger(String name) {
         BasicLogger logger = namedLoggers.get(name);
         if (logger == null) {
-            logger = new BasicLogger();
+            logger = new BasicLogger(name);
             namedLoggers.put(name, logger);
         }
         return logger;
@@ -32,14 +45,55 @@ public class BasicLogger implements Closeable {
 
     /** Change writer */
     public void setWriter(PrintWriter writer) {
+        drainJson();
+        this.json = null;
         if (this.writer != null) {
             this.writer.close();
         }
         this.writer = writer;
     }
 
+    /**
+     * Returns a JSON writer streaming to the writer of the logger, or to the standard output if
+     * the logger has no writer. Text printed afterwards follows the JSON text written so far.
+     *
+     * @param lineBreaks whether the members of the outermost container are written on lines of
+     *                   their own, if the JSON writer is created by this call
+     */
+    public JsonWriter getJsonWriter(boolean lineBreaks) {
+        if (this.json == null) {
+            PrintWriter out = this.writer != null ? this.writer : new PrintWriter(System.out);
+            this.json = new JsonWriter(out, lineBreaks);
+        }
+        return this.json;
+    }
+
+    /** Writes the text buffered by the JSON writer, if any, to the writer */
+    private void drainJson() {
+        if (this.json != null && this.json.getBuffered() > 0) {
+            this.json.flush();
+        }
+    }
+
+    /**
+     * Writes to a file, gzip compressed with a .gz suffix if a compression level is configured
+     * for the name of the logger
+     */
     public void setFileWriter(File outputFile) throws IOException {
-        setWriter(new PrintWriter(new BufferedWriter(new FileWriter(outputFile))));
+        setWriter(newFileWriter(outputFile, getCompressionLevel(this.name)));
+    }
+
+    /**
+     * Opens a file for writing, gzip compressed on a separate thread with a .gz suffix appended to
+     * its name if the compression level is not negative
+     */
+    public static PrintWriter newFileWriter(File file, int compressionLevel) throws IOException {
+        if (compressionLevel < 0) {
+            return new PrintWriter(new BufferedWriter(new FileWriter(file)));
+        }
+        File gzipFile = new File(file.getPath() + ".gz");
+        return new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(new AsyncGzipOutputStream(gzipFile, compressionLevel))));
     }
 
     public void log(String message) {
@@ -47,23 +101,48 @@ public class BasicLogger implements Closeable {
     }
 
     public void print(String message) {
+        drainJson();
         if (this.writer != null) {
             this.writer.print(message);
+            LoggerFlushEvent event = new LoggerFlushEvent();
+            event.begin();
             this.writer.flush();
+            if (event.shouldCommit()) {
+                event.characters = this.backlog + message.length();
+                event.commit();
+            }
+            this.backlog = 0;
         } else {
             System.out.print(message);
         }
     }
 
     public void println(String message) {
+        drainJson();
         if (this.writer != null) {
             this.writer.println(message);
+            this.backlog += message.length() + 1;
         } else {
             System.out.println(message);
         }
     }
 
+    /** Returns the number of characters written but not yet flushed by all loggers */
+    public static long getBacklog() {
+        long backlog = 0;
+        for (BasicLogger logger : namedLoggers.values()) {
+            backlog += logger.backlog;
+            if (logger.json != null) {
+                backlog += logger.json.getBuffered();
+            }
+        }
+        return backlog;
+    }
+
     public void close() {
-        this.writer.close();
+        drainJson();
+        if (this.writer != null) {
+            this.writer.close();
+        }
     }
 }
@@ -0,0 +1,352 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * The type Json writer streams JSON text to a {@link Writer} through a buffer of its own. Commas
+ * are placed by the writer, so the output is valid whatever the sequence of members and elements,
+ * and integers are written digit by digit without building strings. Doubles that are not finite
+ * are written as null.
+ *
+ * <p>When line breaks are enabled, every member or element of the outermost container starts on a
+ * line of its own; the output is otherwise compact.
+ */
+public class JsonWriter implements Closeable {
+    /**
+     * The size of the buffer in characters.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The writer the buffer is drained to.
+     */
+    private final Writer out;
+
+    /**
+     * Whether the members of the outermost container are written on lines of their own.
+     */
+    private final boolean lineBreaks;
+
+    /**
+     * The buffer.
+     */
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    /**
+     * The number of characters in the buffer.
+     */
+    private int size = 0;
+
+    /**
+     * Whether each open container already holds a member or an element, by depth.
+     */
+    private boolean[] nonEmpty = new boolean[16];
+
+    /**
+     * The number of open containers.
+     */
+    private int depth = 0;
+
+    /**
+     * Whether a member name was just written, so that no comma precedes its value.
+     */
+    private boolean afterName = false;
+
+    /**
+     * Instantiates a new Json writer.
+     *
+     * @param out        the writer the JSON text is drained to
+     * @param lineBreaks whether the members of the outermost container are written on lines of
+     *                   their own
+     */
+    public JsonWriter(Writer out, boolean lineBreaks) {
+        this.out = out;
+        this.lineBreaks = lineBreaks;
+    }
+
+    /**
+     * Starts an object.
+     *
+     * @return this writer
+     */
+    public JsonWriter beginObject() {
+        return open('{');
+    }
+
+    /**
+     * Ends the current object.
+     *
+     * @return this writer
+     */
+    public JsonWriter endObject() {
+        return close('}');
+    }
+
+    /**
+     * Starts an array.
+     *
+     * @return this writer
+     */
+    public JsonWriter beginArray() {
+        return open('[');
+    }
+
+    /**
+     * Ends the current array.
+     *
+     * @return this writer
+     */
+    public JsonWriter endArray() {
+        return close(']');
+    }
+
+    /**
+     * Writes the name of the next member of the current object.
+     *
+     * @param name the name
+     * @return this writer
+     */
+    public JsonWriter name(String name) {
+        separate();
+        string(name);
+        put(':');
+        this.afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes an integer value.
+     *
+     * @param value the value
+     * @return this writer
+     */
+    public JsonWriter value(long value) {
+        separate();
+        if (value == Long.MIN_VALUE) {
+            raw(Long.toString(value));
+            return this;
+        }
+        if (value < 0) {
+            put('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        ensure(digits);
+        for (int i = this.size + digits - 1; i >= this.size; i--) {
+            this.buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        this.size += digits;
+        return this;
+    }
+
+    /**
+     * Writes a floating point value, or null if it is not finite.
+     *
+     * @param value the value
+     * @return this writer
+     */
+    public JsonWriter value(double value) {
+        separate();
+        raw(Double.isFinite(value) ? Double.toString(value) : "null");
+        return this;
+    }
+
+    /**
+     * Writes a string value.
+     *
+     * @param value the value
+     * @return this writer
+     */
+    public JsonWriter value(String value) {
+        separate();
+        string(value);
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value the value
+     * @return this writer
+     */
+    public JsonWriter value(boolean value) {
+        separate();
+        raw(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes the buffered text to the underlying writer and flushes it.
+     */
+    public void flush() {
+        drain();
+        try {
+            this.out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the number of characters buffered but not yet drained to the underlying writer.
+     *
+     * @return the number of characters
+     */
+    public int getBuffered() {
+        return this.size;
+    }
+
+    /**
+     * Flushes and closes the underlying writer.
+     *
+     * @throws IOException if the underlying writer cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        drain();
+        this.out.close();
+    }
+
+    /**
+     * Writes the comma, or the line break, preceding a member or an element.
+     */
+    private void separate() {
+        if (this.afterName) {
+            this.afterName = false;
+            return;
+        }
+        if (this.depth == 0) {
+            return;
+        }
+        if (this.nonEmpty[this.depth - 1]) {
+            put(',');
+        }
+        this.nonEmpty[this.depth - 1] = true;
+        if (this.lineBreaks && this.depth == 1) {
+            put('\n');
+        }
+    }
+
+    /**
+     * Opens a container.
+     *
+     * @param bracket the opening bracket
+     * @return this writer
+     */
+    private JsonWriter open(char bracket) {
+        separate();
+        put(bracket);
+        if (this.depth == this.nonEmpty.length) {
+            this.nonEmpty = Arrays.copyOf(this.nonEmpty, this.depth * 2);
+        }
+        this.nonEmpty[this.depth++] = false;
+        return this;
+    }
+
+    /**
+     * Closes the current container.
+     *
+     * @param bracket the closing bracket
+     * @return this writer
+     */
+    private JsonWriter close(char bracket) {
+        if (this.depth == 0) {
+            throw new IllegalStateException("No open container");
+        }
+        this.depth--;
+        if (this.lineBreaks && this.depth == 0) {
+            put('\n');
+        }
+        put(bracket);
+        return this;
+    }
+
+    /**
+     * Writes a quoted and escaped string.
+     *
+     * @param value the string
+     */
+    private void string(String value) {
+        put('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                put('\\');
+                put(c);
+            } else if (c < 0x20) {
+                raw(String.format("\\u%04x", (int) c));
+            } else {
+                put(c);
+            }
+        }
+        put('"');
+    }
+
+    /**
+     * Writes text as it is.
+     *
+     * @param text the text
+     */
+    private void raw(String text) {
+        ensure(text.length());
+        text.getChars(0, text.length(), this.buffer, this.size);
+        this.size += text.length();
+    }
+
+    /**
+     * Writes a character as it is.
+     *
+     * @param c the character
+     */
+    private void put(char c) {
+        ensure(1);
+        this.buffer[this.size++] = c;
+    }
+
+    /**
+     * Drains the buffer if it cannot take the provided number of characters.
+     *
+     * @param length the number of characters, at most the size of the buffer
+     */
+    private void ensure(int length) {
+        if (this.size + length > this.buffer.length) {
+            drain();
+        }
+    }
+
+    /**
+     * Writes the buffered text to the underlying writer.
+     */
+    private void drain() {
+        try {
+            this.out.write(this.buffer, 0, this.size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.size = 0;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.logger;
+
+import static simblock.settings.SimulatorConfigulation.getOutputSampleInterval;
+import static simblock.settings.SimulatorConfigulation.getOutputSampleNodes;
+import static simblock.settings.SimulatorConfigulation.getOutputVerbosity;
+
+import java.util.BitSet;
+import java.util.Locale;
+
+/**
+ * The type Output trace decides which events are written to the visualization output,
+ * {@code simblock.output}, following the OUTPUT_VERBOSITY, OUTPUT_SAMPLE_INTERVAL and
+ * OUTPUT_SAMPLE_NODES properties. The settings are read once, when the class is initialized after
+ * the properties, so that the checks guarding the logging paths cost next to nothing.
+ */
+public final class OutputTrace {
+    /**
+     * The verbosity levels of the visualization output.
+     */
+    public enum Level {
+        /**
+         * No visualization output is written.
+         */
+        NONE,
+        /**
+         * Only the nodes and the end of the simulation are written.
+         */
+        SUMMARY,
+        /**
+         * The nodes, the links of the sampled nodes, and the blocks sampled by id as they reach
+         * or flow to or from the sampled nodes are written.
+         */
+        SAMPLED,
+        /**
+         * Every event is written.
+         */
+        FULL
+    }
+
+    /**
+     * The verbosity level.
+     */
+    private static final Level LEVEL = Level.valueOf(getOutputVerbosity().toUpperCase(Locale.ROOT));
+
+    /**
+     * The sampled blocks are the ones whose id is a multiple of this interval.
+     */
+    private static final int SAMPLE_INTERVAL = getOutputSampleInterval();
+
+    /**
+     * The ids of the sampled nodes, empty when all nodes are sampled.
+     */
+    private static final BitSet SAMPLE_NODES = new BitSet();
+
+    static {
+        for (String id : getOutputSampleNodes().split(",")) {
+            if (!id.trim().isEmpty()) {
+                SAMPLE_NODES.set(Integer.parseInt(id.trim()));
+            }
+        }
+    }
+
+    private OutputTrace() {
+    }
+
+    /**
+     * Gets the verbosity level.
+     *
+     * @return the level
+     */
+    public static Level getLevel() {
+        return LEVEL;
+    }
+
+    /**
+     * Whether the visualization output is written at all, starting with its nodes.
+     *
+     * @return true unless the level is {@link Level#NONE}
+     */
+    public static boolean isSummaryTraced() {
+        return LEVEL != Level.NONE;
+    }
+
+    /**
+     * Whether a node is sampled.
+     *
+     * @param nodeID the node id
+     * @return true if the node is sampled
+     */
+    private static boolean isNodeSampled(int nodeID) {
+        return SAMPLE_NODES.isEmpty() || SAMPLE_NODES.get(nodeID);
+    }
+
+    /**
+     * Whether a block reaching a node is written.
+     *
+     * @param blockID the block id
+     * @param nodeID  the node id
+     * @return true if the event is written
+     */
+    public static boolean isBlockTraced(int blockID, int nodeID) {
+        return LEVEL == Level.FULL || LEVEL == Level.SAMPLED && blockID % SAMPLE_INTERVAL == 0
+                && isNodeSampled(nodeID);
+    }
+
+    /**
+     * Whether a block flowing between two nodes is written.
+     *
+     * @param blockID the block id
+     * @param fromID  the id of the sending node
+     * @param toID    the id of the receiving node
+     * @return true if the event is written
+     */
+    public static boolean isFlowTraced(int blockID, int fromID, int toID) {
+        return LEVEL == Level.FULL || LEVEL == Level.SAMPLED && blockID % SAMPLE_INTERVAL == 0
+                && (isNodeSampled(fromID) || isNodeSampled(toID));
+    }
+
+    /**
+     * Whether a link between two nodes being added or removed is written.
+     *
+     * @param fromID the id of the node at the start of the link
+     * @param toID   the id of the node at the end of the link
+     * @return true if the event is written
+     */
+    public static boolean isLinkTraced(int fromID, int toID) {
+        return LEVEL == Level.FULL
+                || LEVEL == Level.SAMPLED && (isNodeSampled(fromID) || isNodeSampled(toID));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The type Propagation csv converter converts a propagation file written by
+ * {@link PropagationWriter} to the propagation CSV of earlier versions: a line per block, with
+ * the propagation time to each node in node id order, 0 if the block did not reach the node.
+ *
+ * <p>Usage: {@code PropagationCsvConverter <input.bin> [<output.csv>]}, the output defaulting to
+ * the input with a .csv extension.
+ */
+public class PropagationCsvConverter {
+    /**
+     * Converts a propagation file to CSV.
+     *
+     * @param input  the propagation file
+     * @param output the CSV file
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void convert(File input, File output) throws IOException {
+        try (PropagationReader reader = new PropagationReader(input);
+                Writer writer = new BufferedWriter(new FileWriter(output), 1 << 16)) {
+            for (int i = 0; i < reader.getBlockCount(); i++) {
+                reader.readBlock(i);
+                long[] propagationTimes = reader.getPropagationTimes();
+                for (int j = 0; j < propagationTimes.length; j++) {
+                    if (j > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(Long.toString(Math.max(0, propagationTimes[j])));
+                }
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * The entry point.
+     *
+     * @param args the input file and optionally the output file
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: PropagationCsvConverter <input.bin> [<output.csv>]");
+            System.exit(2);
+        }
+        File input = new File(args[0]);
+        File output = args.length > 1 ? new File(args[1])
+                : new File(args[0].replaceFirst("(\\.bin)?$", ".csv"));
+        convert(input, output);
+    }
+}
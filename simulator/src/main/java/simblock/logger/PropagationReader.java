@@ -0,0 +1,254 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.logger;
+
+import static simblock.logger.PropagationWriter.FOOTER_SIZE;
+import static simblock.logger.PropagationWriter.HEADER_SIZE;
+import static simblock.logger.PropagationWriter.INDEX_ENTRY_SIZE;
+import static simblock.logger.PropagationWriter.INDEX_MAGIC;
+import static simblock.logger.PropagationWriter.MAGIC;
+import static simblock.logger.PropagationWriter.VERSION;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The type Propagation reader reads the propagation files written by {@link PropagationWriter}.
+ * Blocks are read one at a time, in any order, through the index at the end of the file.
+ */
+public class PropagationReader implements Closeable {
+    /**
+     * The file.
+     */
+    private final File file;
+
+    /**
+     * The file channel.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The number of nodes.
+     */
+    private final int numOfNodes;
+
+    /**
+     * The ids of the blocks.
+     */
+    private final int[] blockIds;
+
+    /**
+     * The offsets of the records of the blocks, followed by the offset of the index.
+     */
+    private final long[] offsets;
+
+    /**
+     * The buffer holding the record of the current block.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The id of the current block.
+     */
+    private int blockId = -1;
+
+    /**
+     * The node id of the minter of the current block.
+     */
+    private int minterId = -1;
+
+    /**
+     * The propagation times of the current block by node index.
+     */
+    private final long[] propagationTimes;
+
+    /**
+     * Opens a propagation file and reads its index.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be read or is not a propagation file
+     */
+    public PropagationReader(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a propagation file: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported propagation file version " + version + ": "
+                        + file);
+            }
+            this.numOfNodes = header.getInt();
+
+            ByteBuffer footer = read(this.channel.size() - FOOTER_SIZE, FOOTER_SIZE);
+            long indexOffset = footer.getLong();
+            int blockCount = footer.getInt();
+            if (footer.getInt() != INDEX_MAGIC) {
+                throw new IOException("Truncated propagation file: " + file);
+            }
+
+            ByteBuffer index = read(indexOffset, blockCount * INDEX_ENTRY_SIZE);
+            this.blockIds = new int[blockCount];
+            this.offsets = new long[blockCount + 1];
+            int maxRecordSize = 0;
+            for (int i = 0; i < blockCount; i++) {
+                this.blockIds[i] = index.getInt();
+                this.offsets[i] = index.getLong();
+            }
+            this.offsets[blockCount] = indexOffset;
+            for (int i = 0; i < blockCount; i++) {
+                int recordSize = (int) (this.offsets[i + 1] - this.offsets[i]);
+                maxRecordSize = Math.max(maxRecordSize, recordSize);
+            }
+            this.buffer = ByteBuffer.allocateDirect(maxRecordSize);
+            this.propagationTimes = new long[this.numOfNodes];
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a part of the file into a new heap buffer.
+     *
+     * @param offset the offset in the file
+     * @param length the number of bytes
+     * @return the buffer, ready to be read
+     * @throws IOException if the file cannot be read or ends before
+     */
+    private ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(buffer, offset);
+        return buffer.flip();
+    }
+
+    /**
+     * Fills a buffer from the file.
+     *
+     * @param buffer the buffer
+     * @param offset the offset in the file
+     * @throws IOException if the file cannot be read or ends before
+     */
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = this.channel.read(buffer, offset);
+            if (read < 0) {
+                throw new EOFException("Truncated propagation file: " + this.file);
+            }
+            offset += read;
+        }
+    }
+
+    /**
+     * Gets the number of nodes.
+     *
+     * @return the number of nodes
+     */
+    public int getNumOfNodes() {
+        return this.numOfNodes;
+    }
+
+    /**
+     * Gets the number of blocks.
+     *
+     * @return the number of blocks
+     */
+    public int getBlockCount() {
+        return this.blockIds.length;
+    }
+
+    /**
+     * Gets the id of a block without reading it.
+     *
+     * @param index the index of the block in the file
+     * @return the block id
+     */
+    public int getBlockId(int index) {
+        return this.blockIds[index];
+    }
+
+    /**
+     * Reads a block, which becomes the current block.
+     *
+     * @param index the index of the block in the file
+     * @throws IOException if the file cannot be read
+     */
+    public void readBlock(int index) throws IOException {
+        this.buffer.clear().limit((int) (this.offsets[index + 1] - this.offsets[index]));
+        readFully(this.buffer, this.offsets[index]);
+        this.buffer.flip();
+        this.blockId = this.buffer.getInt();
+        this.minterId = this.buffer.getInt();
+        for (int i = 0; i < this.numOfNodes; i++) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = this.buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            this.propagationTimes[i] = value - 1;
+        }
+    }
+
+    /**
+     * Gets the id of the current block.
+     *
+     * @return the block id
+     */
+    public int getBlockId() {
+        return this.blockId;
+    }
+
+    /**
+     * Gets the node id of the minter of the current block.
+     *
+     * @return the minter id
+     */
+    public int getMinterId() {
+        return this.minterId;
+    }
+
+    /**
+     * Gets the propagation times of the current block by node index. The array is reused by the
+     * next read.
+     *
+     * @return the propagation time to each node, -1 if the block did not reach the node
+     */
+    public long[] getPropagationTimes() {
+        return this.propagationTimes;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
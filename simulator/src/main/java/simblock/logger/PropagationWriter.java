@@ -0,0 +1,207 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The type Propagation writer writes the propagation times of blocks to a binary file, as a
+ * compact replacement of the propagation CSV. The file holds:
+ *
+ * <ul>
+ *   <li>a header: the {@link #MAGIC} number, the {@link #VERSION} and the number of nodes, as
+ *   ints;</li>
+ *   <li>a record per block: the block id and the minter id, as ints, followed for every node in
+ *   node id order by its propagation time plus one as an unsigned LEB128 varint, 0 meaning that
+ *   the block did not reach the node;</li>
+ *   <li>an index: the block id, as an int, and the offset of the record, as a long, for every
+ *   block;</li>
+ *   <li>a footer: the offset of the index, as a long, the number of blocks and the
+ *   {@link #INDEX_MAGIC} number, as ints.</li>
+ * </ul>
+ *
+ * <p>Integers are big-endian. The file is written through a {@link FileChannel} from a direct
+ * buffer large enough for many records, and read back by {@link PropagationReader}.
+ */
+public class PropagationWriter implements Closeable {
+    /**
+     * The magic number starting a propagation file, "SBPR".
+     */
+    static final int MAGIC = 0x53425052;
+
+    /**
+     * The magic number ending a propagation file, "SBPI".
+     */
+    static final int INDEX_MAGIC = 0x53425049;
+
+    /**
+     * The version of the format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The size of the header in bytes.
+     */
+    static final int HEADER_SIZE = 12;
+
+    /**
+     * The size of an index entry in bytes.
+     */
+    static final int INDEX_ENTRY_SIZE = 12;
+
+    /**
+     * The size of the footer in bytes.
+     */
+    static final int FOOTER_SIZE = 16;
+
+    /**
+     * The size of the buffer in bytes, unless a single record needs more.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The file channel.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The buffer holding the bytes not yet written to the channel.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The number of nodes.
+     */
+    private final int numOfNodes;
+
+    /**
+     * The largest size of a record in bytes.
+     */
+    private final int maxRecordSize;
+
+    /**
+     * The offset in the file of the start of the buffer.
+     */
+    private long position = 0;
+
+    /**
+     * The ids of the written blocks.
+     */
+    private int[] blockIds = new int[1024];
+
+    /**
+     * The offsets of the records of the written blocks.
+     */
+    private long[] offsets = new long[1024];
+
+    /**
+     * The number of written blocks.
+     */
+    private int blockCount = 0;
+
+    /**
+     * Creates a propagation file, replacing any existing file.
+     *
+     * @param file       the file
+     * @param numOfNodes the number of nodes
+     * @throws IOException if the file cannot be created
+     */
+    public PropagationWriter(File file, int numOfNodes) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.numOfNodes = numOfNodes;
+        this.maxRecordSize = 8 + 10 * numOfNodes;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, this.maxRecordSize));
+        this.buffer.putInt(MAGIC).putInt(VERSION).putInt(numOfNodes);
+    }
+
+    /**
+     * Writes the propagation times of a block.
+     *
+     * @param blockId          the block id
+     * @param minterId         the node id of the minter
+     * @param propagationTimes the propagation time to each node by node index, negative if the
+     *                         block did not reach the node
+     * @throws IOException if the file cannot be written
+     */
+    public void write(int blockId, int minterId, long[] propagationTimes) throws IOException {
+        if (this.buffer.remaining() < this.maxRecordSize) {
+            drain();
+        }
+        if (this.blockCount == this.offsets.length) {
+            this.blockIds = Arrays.copyOf(this.blockIds, this.blockCount * 2);
+            this.offsets = Arrays.copyOf(this.offsets, this.blockCount * 2);
+        }
+        this.blockIds[this.blockCount] = blockId;
+        this.offsets[this.blockCount] = this.position + this.buffer.position();
+        this.blockCount++;
+
+        this.buffer.putInt(blockId).putInt(minterId);
+        for (int i = 0; i < this.numOfNodes; i++) {
+            long value = propagationTimes[i] < 0 ? 0 : propagationTimes[i] + 1;
+            while ((value & ~0x7FL) != 0) {
+                this.buffer.put((byte) (value | 0x80));
+                value >>>= 7;
+            }
+            this.buffer.put((byte) value);
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the channel.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private void drain() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.position += this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    /**
+     * Writes the index and the footer and closes the file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            long indexOffset = this.position + this.buffer.position();
+            for (int i = 0; i < this.blockCount; i++) {
+                if (this.buffer.remaining() < INDEX_ENTRY_SIZE) {
+                    drain();
+                }
+                this.buffer.putInt(this.blockIds[i]).putLong(this.offsets[i]);
+            }
+            if (this.buffer.remaining() < FOOTER_SIZE) {
+                drain();
+            }
+            this.buffer.putLong(indexOffset).putInt(this.blockCount).putInt(INDEX_MAGIC);
+            drain();
+        } finally {
+            this.channel.close();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.node;
+
+import static simblock.settings.SimulationConfiguration.BLOCK_ID_WINDOW;
+
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import simblock.block.Block;
+
+/**
+ * The type Block window set is a set of blocks indexed by block id. Block ids are dense and
+ * increase over time, so the most recent
+ * {@link simblock.settings.SimulationConfiguration#BLOCK_ID_WINDOW} ids are kept in a sliding
+ * window addressed directly by id, without hashing. Blocks that fall behind the window, e.g. very
+ * old forks, move to a small overflow map.
+ */
+public class BlockWindowSet extends AbstractSet<Block> {
+    /**
+     * Mask selecting the slot of a block id.
+     */
+    private static final int MASK = BLOCK_ID_WINDOW - 1;
+
+    /**
+     * The blocks in the window, at slot <em>id &amp; MASK</em>.
+     */
+    private final Block[] window = new Block[BLOCK_ID_WINDOW];
+
+    /**
+     * The lowest block id covered by the window.
+     */
+    private int base = 0;
+
+    /**
+     * Blocks with an id below the window.
+     */
+    private final Map<Integer, Block> overflow = new HashMap<>();
+
+    /**
+     * The number of blocks in the window.
+     */
+    private int windowSize = 0;
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Block)) {
+            return false;
+        }
+        int id = ((Block) o).getId();
+        if (id >= this.base) {
+            return id - this.base < BLOCK_ID_WINDOW && this.window[id & MASK] == o;
+        }
+        return this.overflow.get(id) == o;
+    }
+
+    @Override
+    public boolean add(Block block) {
+        int id = block.getId();
+        if (id < this.base) {
+            return this.overflow.put(id, block) == null;
+        }
+        if (id - this.base >= BLOCK_ID_WINDOW) {
+            this.slide(id - BLOCK_ID_WINDOW / 2);
+        }
+        if (this.window[id & MASK] == block) {
+            return false;
+        }
+        this.window[id & MASK] = block;
+        this.windowSize++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Block)) {
+            return false;
+        }
+        int id = ((Block) o).getId();
+        if (id < this.base) {
+            return this.overflow.remove(id, o);
+        }
+        if (id - this.base < BLOCK_ID_WINDOW && this.window[id & MASK] == o) {
+            this.window[id & MASK] = null;
+            this.windowSize--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Advances the window to start at the provided id, moving the blocks that drop out of it to
+     * the overflow map. Advancing by half a window at a time amortizes the scan.
+     *
+     * @param newBase the new lowest id covered by the window
+     */
+    private void slide(int newBase) {
+        int end = Math.min(newBase, this.base + BLOCK_ID_WINDOW);
+        for (int id = this.base; id < end; id++) {
+            Block block = this.window[id & MASK];
+            if (block != null) {
+                this.window[id & MASK] = null;
+                this.windowSize--;
+                this.overflow.put(id, block);
+            }
+        }
+        this.base = newBase;
+    }
+
+    @Override
+    public int size() {
+        return this.windowSize + this.overflow.size();
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < BLOCK_ID_WINDOW; i++) {
+            this.window[i] = null;
+        }
+        this.windowSize = 0;
+        this.overflow.clear();
+    }
+
+    @Override
+    public Iterator<Block> iterator() {
+        return new Iterator<Block>() {
+            private int slot = 0;
+            private final Iterator<Block> overflowIterator = overflow.values().iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (this.slot < BLOCK_ID_WINDOW && window[this.slot] == null) {
+                    this.slot++;
+                }
+                return this.slot < BLOCK_ID_WINDOW || this.overflowIterator.hasNext();
+            }
+
+            @Override
+            public Block next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (this.slot < BLOCK_ID_WINDOW) {
+                    return window[this.slot++];
+                }
+                return this.overflowIterator.next();
+            }
+        };
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.node;
+
+import static simblock.settings.SimulationConfiguration.INVENTORY_WINDOW;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import simblock.block.Block;
+
+/**
+ * The type Known inventory tracks, per peer, the blocks the peer is known to have, like
+ * <em>setInventoryKnown</em> in Bitcoin Core. Each peer gets a direct-mapped table of the
+ * {@link simblock.settings.SimulationConfiguration#INVENTORY_WINDOW} most recent block ids: a
+ * newer block id evicts an older one sharing its slot. A lookup may therefore miss an old block,
+ * which only costs a redundant inv, but never reports a block the peer does not know.
+ */
+public class KnownInventory {
+    /**
+     * Mask selecting the slot of a block id.
+     */
+    private static final int MASK = INVENTORY_WINDOW - 1;
+
+    /**
+     * The block id tables by peer.
+     */
+    private final Map<Node, int[]> known = new HashMap<>();
+
+    /**
+     * Records that the peer knows the block.
+     *
+     * @param peer  the peer
+     * @param block the block
+     */
+    public void add(Node peer, Block block) {
+        int[] ids = this.known.get(peer);
+        if (ids == null) {
+            ids = new int[INVENTORY_WINDOW];
+            Arrays.fill(ids, -1);
+            this.known.put(peer, ids);
+        }
+        ids[block.getId() & MASK] = block.getId();
+    }
+
+    /**
+     * Tests if the peer is known to have the block.
+     *
+     * @param peer  the peer
+     * @param block the block
+     * @return true if the peer is known to have the block
+     */
+    public boolean contains(Node peer, Block block) {
+        int[] ids = this.known.get(peer);
+        return ids != null && ids[block.getId() & MASK] == block.getId();
+    }
+
+    /**
+     * Forgets everything known about the peer, e.g. when the peer is disconnected.
+     *
+     * @param peer the peer
+     */
+    public void remove(Node peer) {
+        this.known.remove(peer);
+    }
+
+    /**
+     * Forgets everything known about all peers, e.g. when the node leaves the network.
+     */
+    public void clear() {
+        this.known.clear();
+    }
+}
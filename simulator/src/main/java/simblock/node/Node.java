@@ -16,26 +16,35 @@
 
 package simblock.node;
 
-import static simblock.settings.SimulationConfiguration.BLOCK_SIZE;
-import static simblock.settings.SimulationConfiguration.CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE;
-import static simblock.settings.SimulationConfiguration.CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE;
-import static simblock.settings.SimulationConfiguration.CBR_FAILURE_RATE_FOR_CHURN_NODE;
-import static simblock.settings.SimulationConfiguration.CBR_FAILURE_RATE_FOR_CONTROL_NODE;
-import static simblock.settings.SimulationConfiguration.COMPACT_BLOCK_SIZE;
-import static simblock.simulator.Network.getBandwidth;
+import static simblock.logger.OutputTrace.isBlockTraced;
+import static simblock.node.routing.OverlayGraph.containsNode;
+import static simblock.node.routing.OverlayGraph.getOverlayGraph;
+import static simblock.settings.SimulatorConfigulation.getBlockSize;
+import static simblock.settings.SimulatorConfigulation.getCBRFailureBlockSizeDistributionForChurnNode;
+import static simblock.settings.SimulatorConfigulation.getCBRFailureBlockSizeDistributionForControlNode;
+import static simblock.settings.SimulatorConfigulation.getCBRFailureRateForChurnNode;
+import static simblock.settings.SimulatorConfigulation.getCBRFailureRateForControlNode;
+import static simblock.settings.SimulatorConfigulation.isInventoryAwareRelay;
+import static simblock.simulator.Main.random;
 import static simblock.simulator.Simulator.arriveBlock;
+import static simblock.simulator.Simulator.getSimulatedNodes;
+import static simblock.simulator.Simulator.nodeLeft;
+import static simblock.simulator.Simulator.nodeRejoined;
 import static simblock.simulator.Timer.getCurrentTime;
 import static simblock.simulator.Timer.putTask;
 import static simblock.simulator.Timer.removeTask;
 
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Random;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import simblock.block.Block;
 import simblock.node.consensus.AbstractConsensusAlgo;
 import simblock.node.routing.AbstractRoutingTable;
+import simblock.node.routing.OverlayGraph;
 import simblock.task.AbstractMessageTask;
 import simblock.task.AbstractMintingTask;
 import simblock.task.BlockMessageTask;
@@ -84,6 +93,11 @@ public class Node {
      */
     private boolean isChurnNode;
 
+    /**
+     * Whether the node is connected to the network. Churn nodes go offline for a while.
+     */
+    private boolean online = true;
+
     /**
      * The current block.
      */
@@ -92,7 +106,7 @@ public class Node {
     /**
      * Orphaned blocks known to node.
      */
-    private final Set<Block> orphans = new HashSet<>();
+    private final Set<Block> orphans = new BlockWindowSet();
 
     /**
      * The current minting task
@@ -100,15 +114,29 @@ public class Node {
     private AbstractMintingTask mintingTask = null;
 
     /**
-     * In the process of sending blocks.
+     * The number of nodes with a pending minting task.
+     */
+    private static int pendingMintingTaskCount = 0;
+
+    /**
+     * The number of orphaned blocks, summed over all nodes.
+     */
+    private static long orphanCount = 0;
+
+    /**
+     * Serves the block requests of peers.
      */
-    // TODO verify
-    private boolean sendingBlock = false;
+    private final UploadScheduler uploadScheduler = new UploadScheduler(this);
 
-    //TODO
-    private final ArrayList<AbstractMessageTask> messageQue = new ArrayList<>();
-    // TODO
-    private final Set<Block> downloadingBlocks = new HashSet<>();
+    /**
+     * Blocks requested from a peer and not received yet.
+     */
+    private final Set<Block> downloadingBlocks = new BlockWindowSet();
+
+    /**
+     * Blocks each peer is known to have, used to suppress redundant inv messages.
+     */
+    private final KnownInventory knownInventory = new KnownInventory();
 
     /**
      * Processing time of tasks expressed in milliseconds.
@@ -120,6 +148,13 @@ public class Node {
      */
     private static BasicLogger logger = BasicLogger.getLogger("simblock.output");
 
+    /**
+     * The constructors of the routing tables and consensus algorithms by class name, looked up
+     * once rather than for every node. Nodes may be created concurrently.
+     */
+    private static final Map<String, Constructor<?>> componentConstructors =
+            new ConcurrentHashMap<>();
+
     /**
      * Instantiates a new Node.
      *
@@ -143,15 +178,48 @@ public class Node {
         this.isChurnNode = isChurnNode;
 
         try {
-            this.routingTable = (AbstractRoutingTable) Class.forName(routingTableName).getConstructor(
-                    Node.class).newInstance(this);
-            this.consensusAlgo = (AbstractConsensusAlgo) Class.forName(consensusAlgoName).getConstructor(
-                    Node.class).newInstance(this);
+            this.routingTable = (AbstractRoutingTable) newComponent(routingTableName);
+            this.consensusAlgo = (AbstractConsensusAlgo) newComponent(consensusAlgoName);
             this.setNumConnection(numConnection);
         } catch (Exception e) {
             e.printStackTrace();
         }
-            }
+    }
+
+    /**
+     * Instantiates the component of the node, a routing table or consensus algorithm, of the
+     * named class.
+     *
+     * @param className the name of a class with a constructor taking the node
+     * @return the component
+     * @throws ReflectiveOperationException if the class cannot be instantiated
+     */
+    private Object newComponent(String className) throws ReflectiveOperationException {
+        Constructor<?> constructor = componentConstructors.get(className);
+        if (constructor == null) {
+            constructor = Class.forName(className).getConstructor(Node.class);
+            componentConstructors.put(className, constructor);
+        }
+        return constructor.newInstance(this);
+    }
+
+    /**
+     * Gets the number of nodes with a pending minting task.
+     *
+     * @return the number of pending minting tasks
+     */
+    public static int getPendingMintingTaskCount() {
+        return pendingMintingTaskCount;
+    }
+
+    /**
+     * Gets the number of orphaned blocks, summed over all nodes.
+     *
+     * @return the orphan count
+     */
+    public static long getOrphanCount() {
+        return orphanCount;
+    }
 
     /**
      * Gets the node id.
@@ -180,6 +248,55 @@ public class Node {
         return this.miningPower;
     }
 
+    /**
+     * Gets whether the node uses compact block relay.
+     *
+     * @return true if the node uses compact block relay
+     */
+    public boolean isUseCBR() {
+        return this.useCBR;
+    }
+
+    /**
+     * Gets whether the node causes churn.
+     *
+     * @return true if the node causes churn
+     */
+    public boolean isChurnNode() {
+        return this.isChurnNode;
+    }
+
+    /**
+     * Gets whether the node is connected to the network.
+     *
+     * @return true if the node is online
+     */
+    public boolean isOnline() {
+        return this.online;
+    }
+
+    /**
+     * Tests if a peer is known to have a block: it sent or announced the block to the node, or
+     * the node announced the block to it. With inventory-aware relay, such a peer does not
+     * announce the block to the node.
+     *
+     * @param peer  the peer
+     * @param block the block
+     * @return true if the peer is known to have the block
+     */
+    public boolean isKnownToHave(Node peer, Block block) {
+        return this.knownInventory.contains(peer, block);
+    }
+
+    /**
+     * Gets the processing time of tasks.
+     *
+     * @return the processing time in milliseconds
+     */
+    long getProcessingTime() {
+        return this.processingTime;
+    }
+
     /**
      * Gets the consensus algorithm.
      *
@@ -274,6 +391,115 @@ public class Node {
         this.routingTable.initTable();
     }
 
+    /**
+     * Initializes the routing table from the candidates drawn by
+     * {@link AbstractRoutingTable#drawCandidates(java.util.Random)}.
+     *
+     * @param candidates the indices of the simulated nodes to try, or null to use
+     *                   {@link #joinNetwork()}
+     */
+    public void joinNetwork(int[] candidates) {
+        if (candidates == null) {
+            this.routingTable.initTable();
+        } else {
+            this.routingTable.initTable(candidates);
+        }
+    }
+
+    /**
+     * Initializes the routing table of a node joining a running network.
+     */
+    public void joinRunningNetwork() {
+        this.routingTable.joinTable();
+    }
+
+    /**
+     * Brings a node that joined a running network up to date by adopting the best block among
+     * those of its neighbors, as if it had been downloaded on connection, and starts minting on
+     * top of it. The block is not propagated again, nor counted as a new arrival.
+     */
+    public void syncWithNeighbors() {
+        Block best = this.block;
+        for (Node neighbor : this.routingTable.getNeighbors()) {
+            Block candidate = neighbor.getBlock();
+            if (candidate != null && this.consensusAlgo.isReceivedBlockValid(candidate, best)) {
+                best = candidate;
+            }
+        }
+        if (best != this.block) {
+            if (this.block != null && !this.block.isOnSameChainAs(best)) {
+                this.addOrphans(this.block, best);
+            }
+            this.cancelMinting();
+            this.block = best;
+            printAddBlock(best);
+        }
+        if (this.block != null && this.mintingTask == null) {
+            this.minting();
+        }
+    }
+
+    /**
+     * Takes the node offline. The minting task and the uploads of the node are cancelled, the
+     * peers waiting for them download the blocks elsewhere, and the node disconnects from its
+     * neighbors, which replace the lost connections. Messages still in flight to or from the node
+     * are dropped on arrival rather than searched for in the event queue.
+     */
+    public void leaveNetwork() {
+        // Forget the node before its uploads are aborted, so the peers download elsewhere
+        for (Node neighbor : this.routingTable.getNeighbors()) {
+            neighbor.knownInventory.remove(this);
+        }
+        this.online = false;
+        nodeLeft();
+        this.cancelMinting();
+        this.uploadScheduler.abort();
+        this.routingTable.leaveTable();
+        this.knownInventory.clear();
+        this.downloadingBlocks.clear();
+    }
+
+    /**
+     * Brings the node back online. It connects to the running network and catches up on the chain
+     * of its new neighbors.
+     */
+    public void rejoinNetwork() {
+        this.online = true;
+        nodeRejoined();
+        this.joinRunningNetwork();
+        this.syncWithNeighbors();
+    }
+
+    /**
+     * Abandons the download of a block from a peer that left the network, and requests the block
+     * from another neighbor that announced it, if any.
+     *
+     * @param block the block
+     */
+    void downloadAborted(Block block) {
+        if (!this.online || !this.downloadingBlocks.remove(block)) {
+            return;
+        }
+        for (Node neighbor : this.routingTable.getNeighbors()) {
+            if (this.knownInventory.contains(neighbor, block)) {
+                putTask(RecMessageTask.obtain(this, neighbor, block));
+                this.downloadingBlocks.add(block);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Cancels the minting task, if any.
+     */
+    private void cancelMinting() {
+        if (this.mintingTask != null) {
+            removeTask(this.mintingTask);
+            this.mintingTask = null;
+            pendingMintingTaskCount--;
+        }
+    }
+
     /**
      * Mint the genesis block.
      */
@@ -290,10 +516,7 @@ public class Node {
      */
     public void addToChain(Block newBlock) {
         // If the node has been minting
-        if (this.mintingTask != null) {
-            removeTask(this.mintingTask);
-            this.mintingTask = null;
-        }
+        this.cancelMinting();
         // Update the current block
         this.block = newBlock;
         printAddBlock(newBlock);
@@ -307,14 +530,17 @@ public class Node {
      * @param newBlock the block to be logged
      */
     private void printAddBlock(Block newBlock) {
-        logger.log("{");
-        logger.log("\"kind\":\"add-block\",");
-        logger.log("\"content\":{");
-        logger.log("\"timestamp\":" + getCurrentTime() + ",");
-        logger.log("\"node-id\":" + this.getNodeID() + ",");
-        logger.log("\"block-id\":" + newBlock.getId());
-        logger.log("}");
-        logger.log("},");
+        if (!isBlockTraced(newBlock.getId(), this.getNodeID())) {
+            return;
+        }
+        logger.getJsonWriter(false).beginObject()
+                .name("kind").value("add-block")
+                .name("content").beginObject()
+                .name("timestamp").value(getCurrentTime())
+                .name("node-id").value(this.getNodeID())
+                .name("block-id").value(newBlock.getId())
+                .endObject()
+                .endObject();
     }
 
     /**
@@ -326,8 +552,12 @@ public class Node {
     //TODO check this out later
     public void addOrphans(Block orphanBlock, Block validBlock) {
         if (orphanBlock != validBlock) {
-            this.orphans.add(orphanBlock);
-            this.orphans.remove(validBlock);
+            if (this.orphans.add(orphanBlock)) {
+                orphanCount++;
+            }
+            if (this.orphans.remove(validBlock)) {
+                orphanCount--;
+            }
             if (validBlock == null || orphanBlock.getHeight() > validBlock.getHeight()) {
                 this.addOrphans(orphanBlock.getParent(), validBlock);
             } else if (orphanBlock.getHeight() == validBlock.getHeight()) {
@@ -346,27 +576,57 @@ public class Node {
         this.mintingTask = task;
         if (task != null) {
             putTask(task);
+            pendingMintingTaskCount++;
         }
     }
 
     /**
-     * Send inv.
+     * Send inv to the neighbors, read from the overlay graph unless the node is not a simulated
+     * node.
      *
      * @param block the block
      */
     public void sendInv(Block block) {
-        for (Node to : this.routingTable.getNeighbors()) {
-            AbstractMessageTask task = new InvMessageTask(this, to, block);
-            putTask(task);
+        if (!containsNode(this)) {
+            for (Node to : this.routingTable.getNeighbors()) {
+                this.sendInv(to, block);
+            }
+            return;
+        }
+        OverlayGraph overlay = getOverlayGraph();
+        ArrayList<Node> nodes = getSimulatedNodes();
+        int self = this.nodeID - 1;
+        for (int i = overlay.getStart(self), end = overlay.getEnd(self); i < end; i++) {
+            this.sendInv(nodes.get(overlay.getNeighbor(i)), block);
         }
     }
 
+    /**
+     * Send inv to a neighbor.
+     *
+     * @param to    the neighbor
+     * @param block the block
+     */
+    private void sendInv(Node to, Block block) {
+        if (isInventoryAwareRelay()) {
+            // The peer sent, announced or was announced the block already
+            if (this.knownInventory.contains(to, block)) {
+                return;
+            }
+            this.knownInventory.add(to, block);
+        }
+        AbstractMessageTask task = InvMessageTask.obtain(this, to, block);
+        putTask(task);
+    }
+
     /**
      * Receive block.
      *
      * @param block the block
      */
     public void receiveBlock(Block block) {
+        // The block may arrive by another route than the one it is downloaded from
+        this.downloadingBlocks.remove(block);
         if (this.consensusAlgo.isReceivedBlockValid(block, this.block)) {
             if (this.block != null && !this.block.isOnSameChainAs(block)) {
                 // If orphan mark orphan
@@ -395,53 +655,57 @@ public class Node {
     public void receiveMessage(AbstractMessageTask message) {
         Node from = message.getFrom();
 
+        if (!this.online || !from.online) {
+            // One end left the network while the message was in flight
+            if (!this.online && message instanceof RecMessageTask) {
+                from.downloadAborted(((RecMessageTask) message).getBlock());
+            } else if (!this.online && message instanceof GetBlockTxnMessageTask) {
+                from.downloadAborted(((GetBlockTxnMessageTask) message).getBlock());
+            }
+            return;
+        }
+
         if (message instanceof InvMessageTask) {
             Block block = ((InvMessageTask) message).getBlock();
+            this.knownInventory.add(from, block);
+            this.routingTable.blockAnnounced(from, block);
             if (!this.orphans.contains(block) && !this.downloadingBlocks.contains(block)) {
                 if (this.consensusAlgo.isReceivedBlockValid(block, this.block)) {
-                    AbstractMessageTask task = new RecMessageTask(this, from, block);
+                    AbstractMessageTask task = RecMessageTask.obtain(this, from, block);
                     putTask(task);
                     downloadingBlocks.add(block);
                 } else if (!block.isOnSameChainAs(this.block)) {
                     // get new orphan block
-                    AbstractMessageTask task = new RecMessageTask(this, from, block);
+                    AbstractMessageTask task = RecMessageTask.obtain(this, from, block);
                     putTask(task);
                     downloadingBlocks.add(block);
                 }
             }
         }
 
-        if (message instanceof RecMessageTask) {
-            this.messageQue.add((RecMessageTask) message);
-            if (!sendingBlock) {
-                this.sendNextBlockMessage();
-            }
-        }
-
-        if (message instanceof GetBlockTxnMessageTask){
-            this.messageQue.add((GetBlockTxnMessageTask) message);
-            if (!sendingBlock){
-                this.sendNextBlockMessage();
-            }
+        if (message instanceof RecMessageTask || message instanceof GetBlockTxnMessageTask) {
+            // Keep the request alive in the queue after the timer releases it
+            message.retain();
+            this.uploadScheduler.enqueue(message);
         }
 
         if (message instanceof CmpctBlockMessageTask){
             Block block = ((CmpctBlockMessageTask) message).getBlock();
-            Random random = new Random();
-            float CBRfailureRate = this.isChurnNode ? CBR_FAILURE_RATE_FOR_CHURN_NODE : CBR_FAILURE_RATE_FOR_CONTROL_NODE;
+            this.knownInventory.add(from, block);
+            float CBRfailureRate = this.isChurnNode
+                    ? getCBRFailureRateForChurnNode() : getCBRFailureRateForControlNode();
             boolean success = random.nextDouble() > CBRfailureRate ? true : false;
             if (success){
-                downloadingBlocks.remove(block);
                 this.receiveBlock(block);
             } else {
-                AbstractMessageTask task = new GetBlockTxnMessageTask(this, from, block);
+                AbstractMessageTask task = GetBlockTxnMessageTask.obtain(this, from, block);
                 putTask(task);
             }
         }
 
         if (message instanceof BlockMessageTask) {
             Block block = ((BlockMessageTask) message).getBlock();
-            downloadingBlocks.remove(block);
+            this.knownInventory.add(from, block);
             this.receiveBlock(block);
         }
     }
@@ -450,57 +714,21 @@ public class Node {
     /**
      * Gets block size when the node fails compact block relay.
      */
-    private long getFailedBlockSize(){
-        Random random = new Random();
-        if (this.isChurnNode){
-            int index = random.nextInt(CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE.length);
-            return (long)(BLOCK_SIZE * CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE[index]);
-        } else {
-            int index = random.nextInt(CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE.length);
-            return (long)(BLOCK_SIZE * CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE[index]);
-        }
+    long getFailedBlockSize(){
+        List<Float> distribution = this.isChurnNode
+                ? getCBRFailureBlockSizeDistributionForChurnNode()
+                : getCBRFailureBlockSizeDistributionForControlNode();
+        int index = random.nextInt(distribution.size());
+        return (long)(getBlockSize() * distribution.get(index));
     }
 
     /**
-     * Send next block message.
+     * Frees the upload slot of a block message that reached its receiver and sends the next
+     * block message.
+     *
+     * @param message the delivered block or compact block message
      */
-    // send a block to the sender of the next queued recMessage
-    public void sendNextBlockMessage() {
-        if (this.messageQue.size() > 0) {
-            Node to = this.messageQue.get(0).getFrom();
-            long bandwidth = getBandwidth(this.getRegion(), to.getRegion());
-
-            AbstractMessageTask messageTask;
-
-            if (this.messageQue.get(0) instanceof RecMessageTask){
-                Block block = ((RecMessageTask) this.messageQue.get(0)).getBlock();
-                // If use compact block relay.
-                if (this.messageQue.get(0).getFrom().useCBR && this.useCBR) {
-                    // Convert bytes to bits and divide by the bandwidth expressed as bit per millisecond, add
-                    // processing time.
-                    long delay = COMPACT_BLOCK_SIZE * 8 / (bandwidth / 1000) + processingTime;
-
-                    // Send compact block message.
-                    messageTask = new CmpctBlockMessageTask(this, to, block, delay);
-                } else {
-                    // Else use lagacy protocol.
-                    long delay = BLOCK_SIZE * 8 / (bandwidth / 1000) + processingTime;
-                    messageTask = new BlockMessageTask(this, to, block, delay);
-                }
-            } else if (this.messageQue.get(0) instanceof GetBlockTxnMessageTask) {
-                // Else from requests missing transactions.
-                Block block = ((GetBlockTxnMessageTask) this.messageQue.get(0)).getBlock();
-                long delay = getFailedBlockSize() * 8 / (bandwidth / 1000) + processingTime;
-                messageTask = new BlockMessageTask(this, to, block, delay);
-            } else {
-                throw new UnsupportedOperationException();
-            }
-
-            sendingBlock = true;
-            this.messageQue.remove(0);
-            putTask(messageTask);
-        } else {
-            sendingBlock = false;
-        }
+    public void uploadCompleted(AbstractMessageTask message) {
+        this.uploadScheduler.delivered(message);
     }
 }
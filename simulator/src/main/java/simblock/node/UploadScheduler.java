@@ -0,0 +1,418 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.node;
+
+import static simblock.settings.SimulatorConfigulation.getBlockSize;
+import static simblock.settings.SimulatorConfigulation.getCompactBlockSize;
+import static simblock.settings.SimulatorConfigulation.getUploadSlots;
+import static simblock.settings.SimulatorConfigulation.isFlowLevelNetwork;
+import static simblock.settings.SimulatorConfigulation.isPrioritizeCompactBlocks;
+import static simblock.simulator.Network.finishFlow;
+import static simblock.simulator.Network.getDownloadBandwidth;
+import static simblock.simulator.Network.getUploadBandwidth;
+import static simblock.simulator.Network.startFlow;
+import static simblock.simulator.Timer.getCurrentTime;
+import static simblock.simulator.Timer.putTask;
+import static simblock.simulator.Timer.putTaskAbsoluteTime;
+import static simblock.simulator.Timer.removeTask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import simblock.block.Block;
+import simblock.simulator.Flow;
+import simblock.task.AbstractMessageTask;
+import simblock.task.BlockMessageTask;
+import simblock.task.CmpctBlockMessageTask;
+import simblock.task.GetBlockTxnMessageTask;
+import simblock.task.RecMessageTask;
+import simblock.task.Task;
+
+/**
+ * The type Upload scheduler serves the block requests of a node through a configurable number of
+ * concurrent upload slots. The upload bandwidth of the node is shared fairly among the transfers
+ * being transmitted, each capped by the download bandwidth of its receiver, the share a receiver
+ * cannot take going to the other transfers. The arrival times of running transfers are recomputed
+ * whenever a transfer starts or finishes transmitting. With
+ * {@link simblock.settings.SimulatorConfigulation#isFlowLevelNetwork()} the rates are assigned by
+ * the flow-level model of {@link simblock.simulator.Network} instead, which also accounts for the
+ * other flows into the receivers. A transfer holds its slot until the receiver gets the
+ * message, as the single-slot model did. With one slot the scheduler behaves like the previous
+ * strictly sequential upload queue.
+ */
+public class UploadScheduler {
+    /**
+     * The uploading node.
+     */
+    private final Node node;
+
+    /**
+     * Queued compact block relay requests, served first when
+     * {@link simblock.settings.SimulatorConfigulation#isPrioritizeCompactBlocks()} is set.
+     */
+    private final ArrayDeque<AbstractMessageTask> priorityQueue = new ArrayDeque<>();
+
+    /**
+     * Queued requests.
+     */
+    private final ArrayDeque<AbstractMessageTask> queue = new ArrayDeque<>();
+
+    /**
+     * Transfers occupying an upload slot.
+     */
+    private final ArrayList<Transfer> active = new ArrayList<>(getUploadSlots());
+
+    /**
+     * The transfers being transmitted, by increasing download bandwidth of the receiver, reused
+     * when sharing the bandwidth.
+     */
+    private final ArrayList<Transfer> transmitting = new ArrayList<>(getUploadSlots());
+
+    /**
+     * Orders transfers by increasing download bandwidth of the receiver.
+     */
+    private static final Comparator<Transfer> BY_DOWNLOAD_BANDWIDTH =
+            Comparator.comparingLong(transfer -> transfer.downloadBandwidth);
+
+    /**
+     * A block or compact block message occupying an upload slot. With more than one slot or the
+     * flow-level model, the transfer is also the task run when its last bit is sent, which hands
+     * its bandwidth to the other transfers while the message is still on its way.
+     */
+    private final class Transfer extends Flow implements Task {
+        /**
+         * The download bandwidth of the receiver, in bit per second.
+         */
+        private final long downloadBandwidth;
+
+        /**
+         * The simulation time the transfer started at.
+         */
+        private final long start;
+
+        /**
+         * The message delivering the block.
+         */
+        private AbstractMessageTask message;
+
+        /**
+         * The latency and processing time added after the transmission.
+         */
+        private long tail;
+
+        /**
+         * The simulation time the message is scheduled to arrive.
+         */
+        private long arrival;
+
+        /**
+         * Whether the end of the transmission is scheduled.
+         */
+        private boolean endScheduled;
+
+        /**
+         * Instantiates a new Transfer.
+         *
+         * @param from  the uploading node
+         * @param to    the receiving node
+         * @param bits  the number of bits to be transmitted
+         * @param start the current simulation time
+         */
+        private Transfer(Node from, Node to, long bits, long start) {
+            super(from, to, bits, start);
+            this.downloadBandwidth = getDownloadBandwidth(to);
+            this.start = start;
+        }
+
+        /**
+         * Moves the message to the arrival time given by the new rate.
+         *
+         * @param now the current simulation time
+         */
+        @Override
+        protected void onRateChanged(long now) {
+            long end = now + this.getRemainingTransmissionTime();
+            long arrival = end + this.tail;
+            if (arrival == this.arrival) {
+                return;
+            }
+            removeTask(this.message);
+            if (this.message instanceof CmpctBlockMessageTask) {
+                ((CmpctBlockMessageTask) this.message).setInterval(arrival - this.start);
+            } else {
+                ((BlockMessageTask) this.message).setInterval(arrival - this.start);
+            }
+            this.arrival = arrival;
+            putTaskAbsoluteTime(this.message, arrival);
+            if (this.endScheduled) {
+                removeTask(this);
+                putTaskAbsoluteTime(this, end);
+            }
+        }
+
+        /**
+         * Gets the transmission time as currently scheduled.
+         *
+         * @return the transmission time in milliseconds
+         */
+        @Override
+        public long getInterval() {
+            return this.arrival - this.tail - this.start;
+        }
+
+        /**
+         * Ends the transmission.
+         */
+        @Override
+        public void run() {
+            this.endScheduled = false;
+            UploadScheduler.this.transmitted(this);
+        }
+    }
+
+    /**
+     * Instantiates a new Upload scheduler.
+     *
+     * @param node the uploading node
+     */
+    public UploadScheduler(Node node) {
+        this.node = node;
+    }
+
+    /**
+     * Queues a {@link RecMessageTask} or {@link GetBlockTxnMessageTask} and starts serving it if
+     * a slot is free. The request must have been retained by the caller.
+     *
+     * @param request the request
+     */
+    public void enqueue(AbstractMessageTask request) {
+        if (isPrioritizeCompactBlocks() && this.isCompactRelay(request)) {
+            this.priorityQueue.addLast(request);
+        } else {
+            this.queue.addLast(request);
+        }
+        this.startTransfers();
+    }
+
+    /**
+     * Frees the slot of a delivered block or compact block message and serves the next request.
+     *
+     * @param message the delivered message
+     */
+    public void delivered(AbstractMessageTask message) {
+        for (int i = 0; i < this.active.size(); i++) {
+            Transfer transfer = this.active.get(i);
+            if (transfer.message == message) {
+                this.active.remove(i);
+                if (transfer.endScheduled) {
+                    // The message arrived at the instant the transmission ends
+                    removeTask(transfer);
+                    transfer.endScheduled = false;
+                    this.transmitted(transfer);
+                }
+                break;
+            }
+        }
+        this.startTransfers();
+    }
+
+    /**
+     * Drops the queued requests and the running transfers when the node leaves the network. The
+     * peers waiting for the blocks are told, so that they can download them from another peer.
+     */
+    public void abort() {
+        for (Transfer transfer : this.active) {
+            removeTask(transfer.message);
+            if (transfer.endScheduled) {
+                removeTask(transfer);
+                if (isFlowLevelNetwork()) {
+                    finishFlow(transfer);
+                }
+            }
+            transfer.message.getTo().downloadAborted(getBlock(transfer.message));
+            transfer.message.release();
+        }
+        this.active.clear();
+        for (ArrayDeque<AbstractMessageTask> queue : List.of(this.priorityQueue, this.queue)) {
+            AbstractMessageTask request;
+            while ((request = queue.pollFirst()) != null) {
+                request.getFrom().downloadAborted(getBlock(request));
+                request.release();
+            }
+        }
+    }
+
+    /**
+     * Gets the block a request asks for or a message delivers.
+     *
+     * @param message a request, block or compact block message
+     * @return the block
+     */
+    private static Block getBlock(AbstractMessageTask message) {
+        if (message instanceof RecMessageTask) {
+            return ((RecMessageTask) message).getBlock();
+        } else if (message instanceof GetBlockTxnMessageTask) {
+            return ((GetBlockTxnMessageTask) message).getBlock();
+        } else if (message instanceof CmpctBlockMessageTask) {
+            return ((CmpctBlockMessageTask) message).getBlock();
+        } else {
+            return ((BlockMessageTask) message).getBlock();
+        }
+    }
+
+    /**
+     * Tests if the response to the request is a compact block relay message.
+     *
+     * @param request the request
+     * @return true for requests answered by a compact block or the missing transactions
+     */
+    private boolean isCompactRelay(AbstractMessageTask request) {
+        return request instanceof GetBlockTxnMessageTask
+                || request.getFrom().isUseCBR() && this.node.isUseCBR();
+    }
+
+    /**
+     * Starts transfers for queued requests while slots are free.
+     */
+    private void startTransfers() {
+        while (this.active.size() < getUploadSlots()) {
+            AbstractMessageTask request = this.priorityQueue.pollFirst();
+            if (request == null) {
+                request = this.queue.pollFirst();
+            }
+            if (request == null) {
+                return;
+            }
+            this.start(request);
+            request.release();
+        }
+    }
+
+    /**
+     * Starts the transfer answering the request at the fair share of the bandwidth.
+     *
+     * @param request the request
+     */
+    private void start(AbstractMessageTask request) {
+        long now = getCurrentTime();
+        Node to = request.getFrom();
+
+        Block block;
+        long size;
+        boolean compact = false;
+        if (request instanceof RecMessageTask) {
+            block = ((RecMessageTask) request).getBlock();
+            // If use compact block relay.
+            compact = to.isUseCBR() && this.node.isUseCBR();
+            // Else use legacy protocol.
+            size = compact ? getCompactBlockSize() : getBlockSize();
+        } else if (request instanceof GetBlockTxnMessageTask) {
+            // Else from requests missing transactions.
+            block = ((GetBlockTxnMessageTask) request).getBlock();
+            size = this.node.getFailedBlockSize();
+        } else {
+            throw new UnsupportedOperationException();
+        }
+
+        // Convert bytes to bits
+        Transfer transfer = new Transfer(this.node, to, size * 8, now);
+        if (isFlowLevelNetwork()) {
+            startFlow(transfer);
+        } else {
+            this.share(now, transfer);
+        }
+        long transmission = transfer.getRemainingTransmissionTime();
+        long delay = transmission + this.node.getProcessingTime();
+        transfer.message = compact
+                ? CmpctBlockMessageTask.obtain(this.node, to, block, delay)
+                : BlockMessageTask.obtain(this.node, to, block, delay);
+        transfer.tail = transfer.message.getInterval() - transmission;
+        transfer.arrival = now + transfer.message.getInterval();
+        this.active.add(transfer);
+        putTask(transfer.message);
+        if (getUploadSlots() > 1 || isFlowLevelNetwork()) {
+            // With one slot and local sharing no other transfer can use the released share
+            transfer.endScheduled = true;
+            putTaskAbsoluteTime(transfer, now + transmission);
+        }
+    }
+
+    /**
+     * Releases the bandwidth share of a transfer whose last bit was sent, or removes its flow from
+     * the flow-level model. Its message is still on its way to the receiver and keeps the slot
+     * until delivered.
+     *
+     * @param transfer the transfer
+     */
+    private void transmitted(Transfer transfer) {
+        long now = getCurrentTime();
+        transfer.endTransmission(now);
+        if (isFlowLevelNetwork()) {
+            finishFlow(transfer);
+        } else {
+            this.share(now, null);
+        }
+    }
+
+    /**
+     * Accounts for the bits transmitted since the last update.
+     *
+     * @param now the current simulation time
+     */
+    private void advance(long now) {
+        for (Transfer transfer : this.active) {
+            transfer.advance(now);
+        }
+    }
+
+    /**
+     * Shares the upload bandwidth among the transfers still transmitting by max-min fairness and
+     * reschedules those whose arrival time changes. The transfers are served by increasing
+     * download bandwidth of their receiver: each gets the even share of the bandwidth left, or
+     * the download bandwidth of its receiver if lower, so the rates never add up to more than the
+     * upload bandwidth.
+     *
+     * @param now     the current simulation time
+     * @param joining the transfer about to start, or null
+     */
+    private void share(long now, Transfer joining) {
+        this.advance(now);
+        for (Transfer transfer : this.active) {
+            if (transfer.isTransmitting()) {
+                this.transmitting.add(transfer);
+            }
+        }
+        if (joining != null) {
+            this.transmitting.add(joining);
+        }
+        this.transmitting.sort(BY_DOWNLOAD_BANDWIDTH);
+        // The bandwidth expressed as bit per millisecond
+        double upload = getUploadBandwidth(this.node) / 1000.0;
+        for (int i = 0; i < this.transmitting.size(); i++) {
+            Transfer transfer = this.transmitting.get(i);
+            double rate = Math.min(transfer.downloadBandwidth / 1000.0,
+                    upload / (this.transmitting.size() - i));
+            upload -= rate;
+            transfer.setRate(rate);
+            if (transfer != joining) {
+                transfer.onRateChanged(now);
+            }
+        }
+        this.transmitting.clear();
+    }
+}
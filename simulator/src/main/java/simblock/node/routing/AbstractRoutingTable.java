@@ -16,7 +16,13 @@
 
 package simblock.node.routing;
 
+import static simblock.logger.OutputTrace.isLinkTraced;
+import static simblock.simulator.Timer.getCurrentTime;
+
 import java.util.ArrayList;
+import java.util.Random;
+import simblock.block.Block;
+import simblock.logger.BasicLogger;
 import simblock.node.Node;
 
 /**
@@ -68,7 +74,55 @@ public abstract class AbstractRoutingTable {
     public abstract void initTable();
 
     /**
-     * Gets neighbors.
+     * Draws the indices of the simulated nodes the self node tries to connect to when the network
+     * is built. Changes no table, so that the draws of different nodes can run concurrently.
+     * Defaults to null, in which case the table is filled by {@link #initTable()}.
+     *
+     * @param random the random stream of the self node
+     * @return the candidates in the order they are tried, or null
+     */
+    public int[] drawCandidates(Random random) {
+        return null;
+    }
+
+    /**
+     * Table initialization from the candidates drawn by {@link #drawCandidates(Random)}. The
+     * tables are filled one at a time in the order of the node ids, so the topology does not
+     * depend on how many threads drew the candidates. Defaults to {@link #initTable()}.
+     *
+     * @param candidates the indices of the simulated nodes to try
+     */
+    public void initTable(int[] candidates) {
+        this.initTable();
+    }
+
+    /**
+     * Table initialization for a node joining a running network. Defaults to
+     * {@link #initTable()}; tables that can choose their neighbors without scanning every node
+     * override it.
+     */
+    public void joinTable() {
+        this.initTable();
+    }
+
+    /**
+     * Disconnects the self node from its neighbors when it leaves the network. The neighbors that
+     * lose an outbound connection replace it through {@link #joinTable()}, so the work done is
+     * proportional to the degree of the nodes involved. The neighbors are copied first, as
+     * removing them changes the list.
+     */
+    public void leaveTable() {
+        for (Node neighbor : new ArrayList<>(this.getNeighbors())) {
+            if (!this.removeNeighbor(neighbor) && neighbor.removeNeighbor(this.selfNode)) {
+                neighbor.getRoutingTable().joinTable();
+            }
+        }
+    }
+
+    /**
+     * Gets neighbors. Tables report every change of the neighbors of a node to
+     * {@link OverlayGraph#linksChanged(Node)}. The list may be kept by the table, so callers must
+     * not modify it or hold it across a change of the links.
      *
      * @return the neighbors
      */
@@ -112,10 +166,63 @@ public abstract class AbstractRoutingTable {
         return false;
     }
 
+    /**
+     * Notified when a neighbor announces a block to the self node. Does nothing by default;
+     * tables that choose their neighbors by how fast they relay blocks override it.
+     *
+     * @param from  the neighbor
+     * @param block the block
+     */
+    public void blockAnnounced(Node from, Block block) {
+    }
+
     /**
      * Accept block.
      */
     //TODO unclear what this does
     public void acceptBlock() {
     }
+
+    /**
+     * The logger of the visualization output.
+     */
+    static BasicLogger logger = BasicLogger.getLogger("simblock.output");
+
+    /**
+     * Writes an add-link event from the self node to the given node, if the link is traced.
+     *
+     * @param endNode the other end of the link
+     */
+    protected void printAddLink(Node endNode) {
+        if (!isLinkTraced(getSelfNode().getNodeID(), endNode.getNodeID())) {
+            return;
+        }
+        logger.getJsonWriter(false).beginObject()
+                .name("kind").value("add-link")
+                .name("content").beginObject()
+                .name("timestamp").value(getCurrentTime())
+                .name("begin-node-id").value(getSelfNode().getNodeID())
+                .name("end-node-id").value(endNode.getNodeID())
+                .endObject()
+                .endObject();
+    }
+
+    /**
+     * Writes a remove-link event from the self node to the given node, if the link is traced.
+     *
+     * @param endNode the other end of the link
+     */
+    protected void printRemoveLink(Node endNode) {
+        if (!isLinkTraced(getSelfNode().getNodeID(), endNode.getNodeID())) {
+            return;
+        }
+        logger.getJsonWriter(false).beginObject()
+                .name("kind").value("remove-link")
+                .name("content").beginObject()
+                .name("timestamp").value(getCurrentTime())
+                .name("begin-node-id").value(getSelfNode().getNodeID())
+                .name("end-node-id").value(endNode.getNodeID())
+                .endObject()
+                .endObject();
+    }
 }
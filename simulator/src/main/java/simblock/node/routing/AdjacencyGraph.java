@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.node.routing;
+
+import java.util.Arrays;
+
+/**
+ * An immutable undirected graph over the node indices 0 to n-1, stored in compressed sparse row
+ * form: the neighbors of node i are the entries of one array from {@link #getStart(int)} to
+ * {@link #getEnd(int)}, so the whole graph takes two int arrays whatever the number of nodes.
+ */
+public final class AdjacencyGraph {
+    /**
+     * The neighbors of node i are at indices offsets[i] to offsets[i + 1] of neighbors.
+     */
+    private final int[] offsets;
+
+    /**
+     * The neighbors of all nodes, node after node.
+     */
+    private final int[] neighbors;
+
+    /**
+     * Instantiates a new adjacency graph.
+     *
+     * @param offsets   the offsets of the neighbors of each node, plus the number of neighbors
+     * @param neighbors the neighbors of all nodes
+     */
+    private AdjacencyGraph(int[] offsets, int[] neighbors) {
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+    }
+
+    /**
+     * Builds a graph from a list of undirected edges in time linear in its size. The neighbors of
+     * a node are in the order of the edges.
+     *
+     * @param numOfNodes the number of nodes
+     * @param from       one end of each edge
+     * @param to         the other end of each edge
+     * @param numOfEdges the number of edges, read from the start of from and to
+     * @return the graph
+     */
+    public static AdjacencyGraph fromEdges(int numOfNodes, int[] from, int[] to, int numOfEdges) {
+        int[] offsets = new int[numOfNodes + 1];
+        for (int edge = 0; edge < numOfEdges; edge++) {
+            offsets[from[edge] + 1]++;
+            offsets[to[edge] + 1]++;
+        }
+        for (int node = 0; node < numOfNodes; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+        int[] next = Arrays.copyOf(offsets, numOfNodes);
+        int[] neighbors = new int[2 * numOfEdges];
+        for (int edge = 0; edge < numOfEdges; edge++) {
+            neighbors[next[from[edge]]++] = to[edge];
+            neighbors[next[to[edge]]++] = from[edge];
+        }
+        return new AdjacencyGraph(offsets, neighbors);
+    }
+
+    /**
+     * Gets the number of nodes.
+     *
+     * @return the number of nodes
+     */
+    public int getNumOfNodes() {
+        return this.offsets.length - 1;
+    }
+
+    /**
+     * Gets the number of undirected edges.
+     *
+     * @return the number of edges
+     */
+    public int getNumOfEdges() {
+        return this.neighbors.length / 2;
+    }
+
+    /**
+     * Gets the number of neighbors of a node.
+     *
+     * @param node the node index
+     * @return the degree
+     */
+    public int getDegree(int node) {
+        return this.offsets[node + 1] - this.offsets[node];
+    }
+
+    /**
+     * Gets the index of the first neighbor of a node.
+     *
+     * @param node the node index
+     * @return the index to pass to {@link #getNeighbor(int)}
+     */
+    public int getStart(int node) {
+        return this.offsets[node];
+    }
+
+    /**
+     * Gets the index after the last neighbor of a node.
+     *
+     * @param node the node index
+     * @return the end index, exclusive
+     */
+    public int getEnd(int node) {
+        return this.offsets[node + 1];
+    }
+
+    /**
+     * Gets a neighbor.
+     *
+     * @param index an index from {@link #getStart(int)} to {@link #getEnd(int)} of a node
+     * @return the index of the neighbor
+     */
+    public int getNeighbor(int index) {
+        return this.neighbors[index];
+    }
+}
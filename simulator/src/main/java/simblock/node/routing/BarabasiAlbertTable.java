@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.node.routing;
+
+import static simblock.settings.SimulatorConfigulation.getTopologyDegree;
+
+import java.util.Random;
+import simblock.node.Node;
+
+/**
+ * A routing table over a scale-free Barabasi-Albert graph. The first TOPOLOGY_DEGREE / 2 + 1
+ * nodes are fully linked, and every further node links to TOPOLOGY_DEGREE / 2 distinct earlier
+ * nodes chosen with probabilities proportional to their degrees. The choice draws a random end
+ * of the links made so far, so the graph takes time linear in its size.
+ */
+public class BarabasiAlbertTable extends GeneratedTopologyTable {
+    /**
+     * Instantiates a new Barabasi-Albert table.
+     *
+     * @param selfNode the self node
+     */
+    public BarabasiAlbertTable(Node selfNode) {
+        super(selfNode);
+    }
+
+    /**
+     * Generates a Barabasi-Albert graph.
+     *
+     * @param numOfNodes the number of nodes
+     * @param random     the random number generator
+     * @return the graph
+     * @throws IllegalArgumentException if TOPOLOGY_DEGREE is odd or not below the number of nodes
+     */
+    @Override
+    protected AdjacencyGraph generate(int numOfNodes, Random random) {
+        int degree = getTopologyDegree();
+        int attachments = degree / 2;
+        long numOfEdges = (long) attachments * (attachments + 1) / 2
+                + (long) (numOfNodes - attachments - 1) * attachments;
+        if (degree % 2 != 0 || degree >= numOfNodes || 2 * numOfEdges > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("No Barabasi-Albert graph of " + numOfNodes
+                    + " nodes of TOPOLOGY_DEGREE " + degree);
+        }
+
+        int[] from = new int[(int) numOfEdges];
+        int[] to = new int[(int) numOfEdges];
+        // Each node appears once per link, so a random entry is a node drawn by degree
+        int[] ends = new int[2 * (int) numOfEdges];
+        int edge = 0;
+        for (int u = 0; u <= attachments; u++) {
+            for (int v = 0; v < u; v++) {
+                from[edge] = u;
+                to[edge] = v;
+                ends[2 * edge] = u;
+                ends[2 * edge + 1] = v;
+                edge++;
+            }
+        }
+
+        for (int u = attachments + 1; u < numOfNodes; u++) {
+            int numOfEnds = 2 * edge;
+            for (int i = 0; i < attachments; i++) {
+                int v;
+                boolean duplicate;
+                do {
+                    v = ends[random.nextInt(numOfEnds)];
+                    duplicate = false;
+                    for (int j = edge - i; j < edge && !duplicate; j++) {
+                        duplicate = to[j] == v;
+                    }
+                } while (duplicate);
+                from[edge] = u;
+                to[edge] = v;
+                edge++;
+            }
+            for (int j = edge - attachments; j < edge; j++) {
+                ends[2 * j] = u;
+                ends[2 * j + 1] = to[j];
+            }
+        }
+        return AdjacencyGraph.fromEdges(numOfNodes, from, to, edge);
+    }
+}
@@ -16,13 +16,17 @@
 
 package simblock.node.routing;
 
+import static simblock.node.routing.OverlayGraph.linksChanged;
+import static simblock.simulator.Main.random;
 import static simblock.simulator.Simulator.getSimulatedNodes;
-import static simblock.simulator.Timer.getCurrentTime;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
 import simblock.node.Node;
-import simblock.logger.BasicLogger;
 
 /**
  * The implementation of the {@link AbstractRoutingTable} representing the Bitcoin core routing
@@ -31,6 +35,11 @@ import simblock.logger.BasicLogger;
 @SuppressWarnings("unused")
 public class BitcoinCoreTable extends AbstractRoutingTable {
 
+    /**
+     * The number of random draws per outbound connection a joining node makes.
+     */
+    private static final int JOIN_ATTEMPTS_PER_CONNECTION = 4;
+
     /**
      * The list of outbound connections.
      */
@@ -41,6 +50,18 @@ public class BitcoinCoreTable extends AbstractRoutingTable {
      */
     private final ArrayList<Node> inbound = new ArrayList<>();
 
+    /**
+     * The outbound connections followed by the inbound ones, kept along with both lists.
+     */
+    private final ArrayList<Node> neighbors = new ArrayList<>();
+
+    /**
+     * The tables of nodes left with free outbound slots after joining a running network, such as
+     * the first nodes of a scenario, which join an almost empty network. They are offered the
+     * nodes joining later, in the order they were left under-filled.
+     */
+    private static final Set<BitcoinCoreTable> underfilled = new LinkedHashSet<>();
+
     /**
      * Instantiates a new Bitcoin core table.
      *
@@ -52,15 +73,22 @@ public class BitcoinCoreTable extends AbstractRoutingTable {
 
 
     /**
-     * Gets all known outbound and inbound nodes.
+     * Gets all known outbound and inbound nodes, outbound first. The list must not be modified,
+     * and changes along with the connections.
      *
      * @return a list of known neighbors
      */
     public ArrayList<Node> getNeighbors() {
-        ArrayList<Node> neighbors = new ArrayList<>();
-        neighbors.addAll(outbound);
-        neighbors.addAll(inbound);
-        return neighbors;
+        return this.neighbors;
+    }
+
+    /**
+     * Gets the outbound connections, in the order they were made. The list must not be modified.
+     *
+     * @return the outbound neighbors
+     */
+    protected ArrayList<Node> getOutbound() {
+        return this.outbound;
     }
 
     /**
@@ -75,7 +103,7 @@ public class BitcoinCoreTable extends AbstractRoutingTable {
         for (int i = 0; i < getSimulatedNodes().size(); i++) {
             candidates.add(i);
         }
-        Collections.shuffle(candidates);
+        Collections.shuffle(candidates, random);
         for (int candidate : candidates) {
             if (this.outbound.size() < this.getNumConnection()) {
                 this.addNeighbor(getSimulatedNodes().get(candidate));
@@ -85,11 +113,121 @@ public class BitcoinCoreTable extends AbstractRoutingTable {
         }
     }
 
+    /**
+     * Draws distinct nodes other than the self node, a few per outbound connection. When that is
+     * a large share of the network, every other node is drawn in a random order instead, so the
+     * table fills whenever {@link #initTable()} would fill it.
+     *
+     * @param random the random stream of the self node
+     * @return the candidates in the order they are tried
+     */
+    @Override
+    public int[] drawCandidates(Random random) {
+        int numOfNodes = getSimulatedNodes().size();
+        int self = getSelfNode().getNodeID() - 1;
+        int count =
+                Math.min(numOfNodes - 1, JOIN_ATTEMPTS_PER_CONNECTION * this.getNumConnection());
+        int[] candidates;
+        if (2 * count >= numOfNodes - 1) {
+            candidates = new int[numOfNodes - 1];
+            for (int i = 0, j = 0; i < numOfNodes; i++) {
+                if (i != self) {
+                    candidates[j++] = i;
+                }
+            }
+            for (int i = candidates.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int candidate = candidates[i];
+                candidates[i] = candidates[j];
+                candidates[j] = candidate;
+            }
+            return candidates;
+        }
+        candidates = new int[count];
+        int drawn = 0;
+        while (drawn < count) {
+            int candidate = random.nextInt(numOfNodes);
+            boolean duplicate = candidate == self;
+            for (int i = 0; i < drawn && !duplicate; i++) {
+                duplicate = candidates[i] == candidate;
+            }
+            if (!duplicate) {
+                candidates[drawn++] = candidate;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Fills the outbound connections with the candidates in order, skipping those
+     * {@link #addNeighbor(Node)} rejects.
+     *
+     * @param candidates the indices of the simulated nodes to try
+     */
+    @Override
+    public void initTable(int[] candidates) {
+        for (int candidate : candidates) {
+            if (this.outbound.size() >= this.getNumConnection()) {
+                break;
+            }
+            this.addNeighbor(getSimulatedNodes().get(candidate));
+        }
+    }
+
+    /**
+     * Fills the outbound connections of a node joining a running network by drawing random nodes
+     * rather than shuffling all of them, giving up after a few draws per connection. Falls back to
+     * {@link #initTable()} when the network is too small for draws to find enough distinct nodes.
+     * The self node is then offered to the tables left under-filled by earlier joins, and its own
+     * table joins them if it is not full.
+     */
+    @Override
+    public void joinTable() {
+        int numOfNodes = getSimulatedNodes().size();
+        if (numOfNodes <= 2 * this.getNumConnection()) {
+            this.initTable();
+        } else {
+            int attempts = JOIN_ATTEMPTS_PER_CONNECTION * this.getNumConnection();
+            while (this.outbound.size() < this.getNumConnection() && attempts-- > 0) {
+                this.addNeighbor(getSimulatedNodes().get(random.nextInt(numOfNodes)));
+            }
+        }
+        this.offerToUnderfilled();
+        if (this.outbound.size() < this.getNumConnection()) {
+            underfilled.add(this);
+        }
+    }
+
+    /**
+     * Forgets the under-filled tables, when the list of simulated nodes is cleared.
+     */
+    public static void reset() {
+        underfilled.clear();
+    }
+
+    /**
+     * Offers the self node as an outbound connection to the under-filled tables, dropping those
+     * that get full or whose node went offline.
+     */
+    private void offerToUnderfilled() {
+        Iterator<BitcoinCoreTable> iterator = underfilled.iterator();
+        while (iterator.hasNext()) {
+            BitcoinCoreTable table = iterator.next();
+            if (table != this && table.getSelfNode().isOnline()) {
+                table.addNeighbor(getSelfNode());
+            }
+            if (table.outbound.size() >= table.getNumConnection()
+                    || !table.getSelfNode().isOnline()) {
+                iterator.remove();
+            }
+        }
+    }
+
     /**
      * Adds the provided node to the list of outbound connections of self node.The provided node
-     * will not be added if it is the self node, it exists as an outbound connection of the self node,
-     * it exists as an inbound connection of the self node or the self node does not allow for
-     * additional outbound connections. Otherwise, the self node will add the provided node to the
+     * will not be added if it is the self node, it is offline, it exists as an outbound connection
+     * of the self node, it exists as an inbound connection of the self node or the self node does
+     * not allow for additional outbound connections. Otherwise, the self node will add the provided node to the
      * list of outbound connections and the provided node will add the self node to the list of
      * inbound connections.
      *
@@ -97,10 +235,12 @@ public class BitcoinCoreTable extends AbstractRoutingTable {
      * @return the success state
      */
     public boolean addNeighbor(Node node) {
-        if (node == getSelfNode() || this.outbound.contains(node) || this.inbound.contains(
-                    node) || this.outbound.size() >= this.getNumConnection()) {
+        if (node == getSelfNode() || !node.isOnline() || this.outbound.contains(node)
+                || this.inbound.contains(node) || this.outbound.size() >= this.getNumConnection()) {
             return false;
         } else if (this.outbound.add(node) && node.getRoutingTable().addInbound(getSelfNode())) {
+            this.neighbors.add(this.outbound.size() - 1, node);
+            linksChanged(getSelfNode());
             printAddLink(node);
             return true;
         } else {
@@ -117,6 +257,8 @@ public class BitcoinCoreTable extends AbstractRoutingTable {
      */
     public boolean removeNeighbor(Node node) {
         if (this.outbound.remove(node) && node.getRoutingTable().removeInbound(getSelfNode())) {
+            this.neighbors.remove(node);
+            linksChanged(getSelfNode());
             printRemoveLink(node);
             return true;
         }
@@ -131,6 +273,8 @@ public class BitcoinCoreTable extends AbstractRoutingTable {
      */
     public boolean addInbound(Node from) {
         if (this.inbound.add(from)) {
+            this.neighbors.add(from);
+            linksChanged(getSelfNode());
             printAddLink(from);
             return true;
         }
@@ -145,36 +289,12 @@ public class BitcoinCoreTable extends AbstractRoutingTable {
      */
     public boolean removeInbound(Node from) {
         if (this.inbound.remove(from)) {
+            this.neighbors.remove(from);
+            linksChanged(getSelfNode());
             printRemoveLink(from);
             return true;
         }
         return false;
     }
 
-
-    static BasicLogger logger = BasicLogger.getLogger("simblock.output");
-
-    //TODO add example
-    private void printAddLink(Node endNode) {
-        logger.log("{");
-        logger.log("\"kind\":\"add-link\",");
-        logger.log("\"content\":{");
-        logger.log("\"timestamp\":" + getCurrentTime() + ",");
-        logger.log("\"begin-node-id\":" + getSelfNode().getNodeID() + ",");
-        logger.log("\"end-node-id\":" + endNode.getNodeID());
-        logger.log("}");
-        logger.log("},");
-    }
-
-    //TODO add example
-    private void printRemoveLink(Node endNode) {
-        logger.log("{");
-        logger.log("\"kind\":\"remove-link\",");
-        logger.log("\"content\":{");
-        logger.log("\"timestamp\":" + getCurrentTime() + ",");
-        logger.log("\"begin-node-id\":" + getSelfNode().getNodeID() + ",");
-        logger.log("\"end-node-id\":" + endNode.getNodeID());
-        logger.log("}");
-        logger.log("},");
-    }
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.node.routing;
+
+import static simblock.node.routing.OverlayGraph.linksChanged;
+import static simblock.settings.SimulatorConfigulation.getNumOfNodes;
+import static simblock.simulator.Main.random;
+import static simblock.simulator.Simulator.getSimulatedNodes;
+
+import java.util.ArrayList;
+import java.util.Random;
+import simblock.node.Node;
+
+/**
+ * A routing table whose neighbors come from a graph generated once for the whole network, over
+ * the NUM_OF_NODES node ids, instead of being chosen by each node. The graph is kept as an
+ * {@link AdjacencyGraph} shared by all tables rather than as lists per node. A link is active
+ * while both of its nodes exist and are online, so nodes joining from a scenario file or
+ * rejoining after churn get their links back and the topology never changes otherwise.
+ */
+public abstract class GeneratedTopologyTable extends AbstractRoutingTable {
+    /**
+     * The graph of the current simulation.
+     */
+    private static AdjacencyGraph graph = null;
+
+    /**
+     * The neighbors the self node has active links to, as last read from the graph.
+     */
+    private final ArrayList<Node> neighbors = new ArrayList<>();
+
+    /**
+     * Whether the active links of the self node may have changed since the neighbors were read.
+     */
+    private boolean neighborsChanged = true;
+
+    /**
+     * Instantiates a new generated topology table.
+     *
+     * @param selfNode the self node
+     */
+    public GeneratedTopologyTable(Node selfNode) {
+        super(selfNode);
+    }
+
+    /**
+     * Generates the graph of the network.
+     *
+     * @param numOfNodes the number of nodes
+     * @param random     the random number generator
+     * @return the graph
+     * @throws IllegalArgumentException if the graph cannot have the configured shape
+     */
+    protected abstract AdjacencyGraph generate(int numOfNodes, Random random);
+
+    /**
+     * Gets the graph of the current simulation, generating it on first use.
+     *
+     * @return the graph
+     */
+    private AdjacencyGraph getGraph() {
+        if (graph == null) {
+            graph = this.generate(getNumOfNodes(), random);
+        }
+        return graph;
+    }
+
+    /**
+     * Forgets the graph, when the list of simulated nodes is cleared.
+     */
+    public static void reset() {
+        graph = null;
+    }
+
+    /**
+     * Gets the node with the given index if it exists and is online.
+     *
+     * @param index the node index
+     * @return the node, or null
+     */
+    private static Node getActiveNode(int index) {
+        if (index >= getSimulatedNodes().size()) {
+            return null;
+        }
+        Node node = getSimulatedNodes().get(index);
+        return node.isOnline() ? node : null;
+    }
+
+    /**
+     * Reports to the {@link OverlayGraph} that the links of the self node changed, and so did
+     * those of its neighbors in the generated graph, whose tables read their neighbors again.
+     */
+    private void graphLinksChanged() {
+        AdjacencyGraph graph = this.getGraph();
+        int self = getSelfNode().getNodeID() - 1;
+        this.neighborsChanged = true;
+        linksChanged(getSelfNode());
+        for (int i = graph.getStart(self); i < graph.getEnd(self); i++) {
+            int neighbor = graph.getNeighbor(i);
+            if (neighbor < getSimulatedNodes().size()) {
+                Node node = getSimulatedNodes().get(neighbor);
+                if (node.getRoutingTable() instanceof GeneratedTopologyTable) {
+                    ((GeneratedTopologyTable) node.getRoutingTable()).neighborsChanged = true;
+                }
+                linksChanged(node);
+            }
+        }
+    }
+
+    /**
+     * Writes an add-link event for each link to a node with a lower id, so that each link of the
+     * initial network is written once.
+     */
+    @Override
+    public void initTable() {
+        AdjacencyGraph graph = this.getGraph();
+        int self = getSelfNode().getNodeID() - 1;
+        for (int i = graph.getStart(self); i < graph.getEnd(self); i++) {
+            int neighbor = graph.getNeighbor(i);
+            if (neighbor < self && getActiveNode(neighbor) != null) {
+                printAddLink(getSimulatedNodes().get(neighbor));
+            }
+        }
+        this.graphLinksChanged();
+    }
+
+    /**
+     * Writes an add-link event for each link the self node activates by joining.
+     */
+    @Override
+    public void joinTable() {
+        this.neighborsChanged = true;
+        for (Node neighbor : this.getNeighbors()) {
+            printAddLink(neighbor);
+        }
+        this.graphLinksChanged();
+    }
+
+    /**
+     * Writes a remove-link event for each link the self node deactivates by leaving. The
+     * neighbors keep their other links.
+     */
+    @Override
+    public void leaveTable() {
+        AdjacencyGraph graph = this.getGraph();
+        int self = getSelfNode().getNodeID() - 1;
+        for (int i = graph.getStart(self); i < graph.getEnd(self); i++) {
+            Node neighbor = getActiveNode(graph.getNeighbor(i));
+            if (neighbor != null) {
+                printRemoveLink(neighbor);
+            }
+        }
+        this.graphLinksChanged();
+    }
+
+    /**
+     * Gets the neighbors the self node has active links to, none if it is offline. The list is
+     * read from the graph again only after the links changed, and must not be modified.
+     *
+     * @return a list of neighbors
+     */
+    @Override
+    public ArrayList<Node> getNeighbors() {
+        if (!this.neighborsChanged) {
+            return this.neighbors;
+        }
+        this.neighborsChanged = false;
+        this.neighbors.clear();
+        if (!getSelfNode().isOnline()) {
+            return this.neighbors;
+        }
+        AdjacencyGraph graph = this.getGraph();
+        int self = getSelfNode().getNodeID() - 1;
+        for (int i = graph.getStart(self); i < graph.getEnd(self); i++) {
+            Node neighbor = getActiveNode(graph.getNeighbor(i));
+            if (neighbor != null) {
+                this.neighbors.add(neighbor);
+            }
+        }
+        return this.neighbors;
+    }
+
+    /**
+     * Does nothing, as the topology is generated.
+     *
+     * @param node the node
+     * @return false
+     */
+    @Override
+    public boolean addNeighbor(Node node) {
+        return false;
+    }
+
+    /**
+     * Does nothing, as the topology is generated.
+     *
+     * @param node the node
+     * @return false
+     */
+    @Override
+    public boolean removeNeighbor(Node node) {
+        return false;
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.node.routing;
+
+import static simblock.simulator.Simulator.getSimulatedNodes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import simblock.node.Node;
+
+/**
+ * The links of all routing tables as one graph over the indices of the simulated nodes, the
+ * neighbors of each node in the order of {@link AbstractRoutingTable#getNeighbors()}. The
+ * neighbors of every node are a range of one int array, so loops over them read contiguous memory
+ * instead of the lists of the tables.
+ *
+ * <p>Tables report the nodes whose neighbors change, and the graph is brought up to date when it
+ * is next read: only those nodes are asked for their neighbors. Each range has some room to grow,
+ * so a changed node is normally rewritten in place. A node outgrowing its range, or joining, gets
+ * a new range at the end of the array. When the array is full it is compacted, and grown unless
+ * the ranges left behind took half of it.
+ */
+public final class OverlayGraph {
+    /**
+     * The graph of the current simulation.
+     */
+    private static OverlayGraph overlayGraph = new OverlayGraph();
+
+    /**
+     * The number of nodes in the graph.
+     */
+    private int numOfNodes = 0;
+
+    /**
+     * The index of the first neighbor of each node in {@link #neighbors}.
+     */
+    private int[] starts = new int[16];
+
+    /**
+     * The number of neighbors of each node.
+     */
+    private int[] degrees = new int[16];
+
+    /**
+     * The size of the range of each node.
+     */
+    private int[] capacities = new int[16];
+
+    /**
+     * The ranges of all nodes.
+     */
+    private int[] neighbors = new int[256];
+
+    /**
+     * The end of the last range in {@link #neighbors}.
+     */
+    private int used = 0;
+
+    /**
+     * The size of the ranges left behind by nodes that outgrew them.
+     */
+    private int unused = 0;
+
+    /**
+     * The position of each node in {@link #dirtyNodes}, or -1 if its neighbors did not change
+     * since the last read.
+     */
+    private int[] dirtyIndex = new int[16];
+
+    /**
+     * The nodes whose neighbors changed since the last read, in the order they were reported.
+     */
+    private int[] dirtyNodes = new int[16];
+
+    /**
+     * The number of nodes in {@link #dirtyNodes}.
+     */
+    private int numOfDirtyNodes = 0;
+
+    private OverlayGraph() {
+        Arrays.fill(this.dirtyIndex, -1);
+    }
+
+    /**
+     * Forgets the graph, when the list of simulated nodes is cleared.
+     */
+    public static void reset() {
+        overlayGraph = new OverlayGraph();
+    }
+
+    /**
+     * Tells whether a node is the simulated node at the index its id stands for, and so has its
+     * neighbors in the graph.
+     *
+     * @param node the node
+     * @return true if the node is in the graph
+     */
+    public static boolean containsNode(Node node) {
+        int index = node.getNodeID() - 1;
+        ArrayList<Node> nodes = getSimulatedNodes();
+        return index >= 0 && index < nodes.size() && nodes.get(index) == node;
+    }
+
+    /**
+     * Reports that the neighbors of a node changed. Every table calls it for each node whose
+     * {@link AbstractRoutingTable#getNeighbors()} it changes.
+     *
+     * @param node the node
+     */
+    public static void linksChanged(Node node) {
+        OverlayGraph graph = overlayGraph;
+        int index = node.getNodeID() - 1;
+        // Nodes added since the last read are read in full anyway
+        if (containsNode(node) && index < graph.numOfNodes && graph.dirtyIndex[index] < 0) {
+            graph.markDirty(index);
+        }
+    }
+
+    /**
+     * Gets the graph of the links between the simulated nodes, bringing it up to date first. The
+     * graph is valid until the next link change.
+     *
+     * @return the graph
+     */
+    public static OverlayGraph getOverlayGraph() {
+        overlayGraph.update();
+        return overlayGraph;
+    }
+
+    /**
+     * Adds a node to the nodes whose neighbors are read on the next update.
+     *
+     * @param index the node index
+     */
+    private void markDirty(int index) {
+        if (this.numOfDirtyNodes == this.dirtyNodes.length) {
+            this.dirtyNodes = Arrays.copyOf(this.dirtyNodes, 2 * this.dirtyNodes.length);
+        }
+        this.dirtyIndex[index] = this.numOfDirtyNodes;
+        this.dirtyNodes[this.numOfDirtyNodes++] = index;
+    }
+
+    /**
+     * Adds the simulated nodes that joined since the last read, and reads the neighbors of the
+     * nodes reported since.
+     */
+    private void update() {
+        ArrayList<Node> nodes = getSimulatedNodes();
+        int numOfSimulatedNodes = nodes.size();
+        if (numOfSimulatedNodes > this.starts.length) {
+            int length = Math.max(2 * this.starts.length, numOfSimulatedNodes);
+            this.starts = Arrays.copyOf(this.starts, length);
+            this.degrees = Arrays.copyOf(this.degrees, length);
+            this.capacities = Arrays.copyOf(this.capacities, length);
+            this.dirtyIndex = Arrays.copyOf(this.dirtyIndex, length);
+            Arrays.fill(this.dirtyIndex, this.numOfNodes, length, -1);
+        }
+        for (int node = this.numOfNodes; node < numOfSimulatedNodes; node++) {
+            this.markDirty(node);
+        }
+        this.numOfNodes = numOfSimulatedNodes;
+
+        for (int i = 0; i < this.numOfDirtyNodes; i++) {
+            int node = this.dirtyNodes[i];
+            this.dirtyIndex[node] = -1;
+            ArrayList<Node> row = nodes.get(node).getRoutingTable().getNeighbors();
+            int degree = row.size();
+            if (degree > this.capacities[node]) {
+                // Leave the old range behind, so that compacting does not copy it
+                this.unused += this.capacities[node];
+                this.capacities[node] = 0;
+                this.degrees[node] = 0;
+                int capacity = degree + Math.max(2, degree / 4);
+                this.starts[node] = this.allocate(capacity);
+                this.capacities[node] = capacity;
+            }
+            int position = this.starts[node];
+            for (Node neighbor : row) {
+                this.neighbors[position++] = neighbor.getNodeID() - 1;
+            }
+            this.degrees[node] = degree;
+        }
+        this.numOfDirtyNodes = 0;
+    }
+
+    /**
+     * Reserves a range at the end of the neighbors, compacting or growing the array first if the
+     * range does not fit.
+     *
+     * @param capacity the size of the range
+     * @return the index of the range
+     */
+    private int allocate(int capacity) {
+        if (this.used + capacity > this.neighbors.length) {
+            int live = this.used - this.unused;
+            int[] compacted = new int[Math.max(this.unused >= live ? this.neighbors.length
+                    : 2 * this.neighbors.length, live + capacity)];
+            int position = 0;
+            for (int node = 0; node < this.numOfNodes; node++) {
+                System.arraycopy(this.neighbors, this.starts[node], compacted, position,
+                        this.degrees[node]);
+                this.starts[node] = position;
+                position += this.capacities[node];
+            }
+            this.neighbors = compacted;
+            this.used = position;
+            this.unused = 0;
+        }
+        int start = this.used;
+        this.used += capacity;
+        return start;
+    }
+
+    /**
+     * Gets the number of nodes.
+     *
+     * @return the number of nodes
+     */
+    public int getNumOfNodes() {
+        return this.numOfNodes;
+    }
+
+    /**
+     * Gets the number of neighbors of a node.
+     *
+     * @param node the node index
+     * @return the degree
+     */
+    public int getDegree(int node) {
+        return this.degrees[node];
+    }
+
+    /**
+     * Gets the index of the first neighbor of a node.
+     *
+     * @param node the node index
+     * @return the index to pass to {@link #getNeighbor(int)}
+     */
+    public int getStart(int node) {
+        return this.starts[node];
+    }
+
+    /**
+     * Gets the index after the last neighbor of a node.
+     *
+     * @param node the node index
+     * @return the end index, exclusive
+     */
+    public int getEnd(int node) {
+        return this.starts[node] + this.degrees[node];
+    }
+
+    /**
+     * Gets a neighbor.
+     *
+     * @param index an index from {@link #getStart(int)} to {@link #getEnd(int)} of a node
+     * @return the index of the neighbor
+     */
+    public int getNeighbor(int index) {
+        return this.neighbors[index];
+    }
+}
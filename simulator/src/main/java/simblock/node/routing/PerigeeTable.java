@@ -0,0 +1,290 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.node.routing;
+
+import static simblock.settings.SimulatorConfigulation.getPerigeeEvictions;
+import static simblock.settings.SimulatorConfigulation.getPerigeeRoundInterval;
+import static simblock.simulator.Main.random;
+import static simblock.simulator.Timer.getCurrentTime;
+import static simblock.simulator.Timer.putTask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import simblock.block.Block;
+import simblock.node.Node;
+import simblock.task.PerigeeRoundTask;
+
+/**
+ * A Bitcoin core routing table that keeps the outbound neighbors announcing blocks first, after
+ * Perigee (Mao et al., 2020). For every block, the self node notes when any neighbor first
+ * announced it and adds how much later each outbound neighbor announced it to the counters of
+ * that connection. Every PERIGEE_ROUND_INTERVAL, the PERIGEE_EVICTIONS outbound neighbors with
+ * the highest mean delay are dropped and replaced by random nodes, so the outbound connections
+ * drift towards the nodes close to where blocks are mined. With inventory-aware relay a neighbor
+ * does not announce a block the self node announced to it first; such a block is left out of the
+ * score of the neighbor rather than counted as missed.
+ */
+@SuppressWarnings("unused")
+public class PerigeeTable extends BitcoinCoreTable {
+    /**
+     * The delays summed over the blocks of the round, by outbound connection.
+     */
+    private long[] delaySums = new long[0];
+
+    /**
+     * The number of blocks of the round announced, by outbound connection.
+     */
+    private int[] announcements = new int[0];
+
+    /**
+     * The number of blocks of the round announced before the connection was made, by outbound
+     * connection.
+     */
+    private int[] blocksBefore = new int[0];
+
+    /**
+     * The number of blocks of the round not announced as the neighbor knew the self node had
+     * them, by outbound connection.
+     */
+    private int[] suppressed = new int[0];
+
+    /**
+     * The id of the last block announced, by outbound connection.
+     */
+    private int[] lastAnnounced = new int[0];
+
+    /**
+     * The number of blocks announced to the self node in the round.
+     */
+    private int blockCount = 0;
+
+    /**
+     * The id of the last block announced to the self node.
+     */
+    private int lastBlockId = -1;
+
+    /**
+     * The last block announced to the self node, until the neighbors that did not announce it
+     * are counted, or null.
+     */
+    private Block currentBlock = null;
+
+    /**
+     * The time the last block was first announced to the self node.
+     */
+    private long firstAnnouncementTime = 0;
+
+    /**
+     * The longest delay of the round, counted for the blocks a neighbor did not announce.
+     */
+    private long maxDelay = 0;
+
+    /**
+     * The neighbors evicted at the end of the round, not connected to again while the outbound
+     * connections are refilled.
+     */
+    private final ArrayList<Node> evicted = new ArrayList<>();
+
+    /**
+     * Whether the rounds of the table are scheduled.
+     */
+    private boolean roundsStarted = false;
+
+    /**
+     * Instantiates a new Perigee table.
+     *
+     * @param selfNode the self node
+     */
+    public PerigeeTable(Node selfNode) {
+        super(selfNode);
+    }
+
+    @Override
+    public void initTable() {
+        super.initTable();
+        this.startRounds();
+    }
+
+    @Override
+    public void initTable(int[] candidates) {
+        super.initTable(candidates);
+        this.startRounds();
+    }
+
+    @Override
+    public void joinTable() {
+        super.joinTable();
+        this.startRounds();
+    }
+
+    /**
+     * Schedules the first round, at a random time so that the nodes do not all change their
+     * neighbors at once.
+     */
+    private void startRounds() {
+        if (!this.roundsStarted) {
+            this.roundsStarted = true;
+            long interval = (long) (getPerigeeRoundInterval() * (0.5 + random.nextDouble()));
+            putTask(new PerigeeRoundTask(this, interval));
+        }
+    }
+
+    /**
+     * Adds an outbound connection with counters starting from the current block. A neighbor just
+     * evicted is not connected to again.
+     *
+     * @param node the node to be connected to the self node.
+     * @return the success state
+     */
+    @Override
+    public boolean addNeighbor(Node node) {
+        if (this.evicted.contains(node) || !super.addNeighbor(node)) {
+            return false;
+        }
+        int connection = this.getOutbound().size() - 1;
+        if (connection >= this.delaySums.length) {
+            int length = Math.max(2 * this.delaySums.length, this.getNumConnection());
+            this.delaySums = Arrays.copyOf(this.delaySums, length);
+            this.announcements = Arrays.copyOf(this.announcements, length);
+            this.blocksBefore = Arrays.copyOf(this.blocksBefore, length);
+            this.suppressed = Arrays.copyOf(this.suppressed, length);
+            this.lastAnnounced = Arrays.copyOf(this.lastAnnounced, length);
+        }
+        this.delaySums[connection] = 0;
+        this.announcements[connection] = 0;
+        this.blocksBefore[connection] = this.blockCount;
+        this.suppressed[connection] = 0;
+        this.lastAnnounced[connection] = -1;
+        return true;
+    }
+
+    /**
+     * Removes an outbound connection and its counters.
+     *
+     * @param node the node to be disconnected from the self node.
+     * @return the success state of the operation
+     */
+    @Override
+    public boolean removeNeighbor(Node node) {
+        int connection = this.getOutbound().indexOf(node);
+        if (!super.removeNeighbor(node)) {
+            return false;
+        }
+        int moved = this.getOutbound().size() - connection;
+        System.arraycopy(this.delaySums, connection + 1, this.delaySums, connection, moved);
+        System.arraycopy(this.announcements, connection + 1, this.announcements, connection, moved);
+        System.arraycopy(this.blocksBefore, connection + 1, this.blocksBefore, connection, moved);
+        System.arraycopy(this.suppressed, connection + 1, this.suppressed, connection, moved);
+        System.arraycopy(this.lastAnnounced, connection + 1, this.lastAnnounced, connection, moved);
+        return true;
+    }
+
+    /**
+     * Counts the delay of an outbound neighbor announcing the last block. Announcements of older
+     * blocks are ignored.
+     *
+     * @param from  the neighbor
+     * @param block the block
+     */
+    @Override
+    public void blockAnnounced(Node from, Block block) {
+        if (block.getId() > this.lastBlockId) {
+            this.endBlock();
+            this.lastBlockId = block.getId();
+            this.currentBlock = block;
+            this.firstAnnouncementTime = getCurrentTime();
+            this.blockCount++;
+        } else if (block.getId() < this.lastBlockId) {
+            return;
+        }
+        int connection = this.getOutbound().indexOf(from);
+        // Only the blocks first announced after the connection was made count towards it
+        if (connection >= 0 && this.blocksBefore[connection] < this.blockCount
+                && this.lastAnnounced[connection] != block.getId()) {
+            this.lastAnnounced[connection] = block.getId();
+            long delay = getCurrentTime() - this.firstAnnouncementTime;
+            this.delaySums[connection] += delay;
+            this.announcements[connection]++;
+            this.maxDelay = Math.max(this.maxDelay, delay);
+        }
+    }
+
+    /**
+     * Ends the current block, counting the outbound neighbors connected before it that did not
+     * announce it because they knew the self node had it.
+     */
+    private void endBlock() {
+        if (this.currentBlock == null) {
+            return;
+        }
+        ArrayList<Node> outbound = this.getOutbound();
+        for (int i = 0; i < outbound.size(); i++) {
+            if (this.blocksBefore[i] < this.blockCount
+                    && this.lastAnnounced[i] != this.currentBlock.getId()
+                    && this.getSelfNode().isKnownToHave(outbound.get(i), this.currentBlock)) {
+                this.suppressed[i]++;
+            }
+        }
+        this.currentBlock = null;
+    }
+
+    /**
+     * Ends a round. Unless the self node is offline or was announced no block, the outbound
+     * neighbors with the highest mean delay are replaced by random nodes. A block a neighbor did
+     * not announce counts with the longest delay of the round, unless the neighbor knew the self
+     * node had it, and neighbors connected after the last block of the round are kept. The evicted neighbors are not picked again when the
+     * outbound connections are refilled. The counters then restart.
+     */
+    public void endRound() {
+        ArrayList<Node> outbound = this.getOutbound();
+        this.endBlock();
+        if (this.getSelfNode().isOnline() && this.blockCount > 0) {
+            double[] meanDelays = new double[outbound.size()];
+            for (int i = 0; i < outbound.size(); i++) {
+                int blocks = this.blockCount - this.blocksBefore[i] - this.suppressed[i];
+                double missed = (double) (blocks - this.announcements[i]) * this.maxDelay;
+                meanDelays[i] = blocks == 0 ? -1 : (this.delaySums[i] + missed) / blocks;
+            }
+            for (int eviction = 0; eviction < getPerigeeEvictions(); eviction++) {
+                int worst = -1;
+                for (int i = 0; i < meanDelays.length; i++) {
+                    if (meanDelays[i] >= 0 && (worst < 0 || meanDelays[i] > meanDelays[worst])) {
+                        worst = i;
+                    }
+                }
+                if (worst < 0) {
+                    break;
+                }
+                meanDelays[worst] = -1;
+                this.evicted.add(outbound.get(worst));
+            }
+            for (Node node : this.evicted) {
+                this.removeNeighbor(node);
+            }
+            if (!this.evicted.isEmpty()) {
+                this.joinTable();
+                this.evicted.clear();
+            }
+        }
+        Arrays.fill(this.delaySums, 0);
+        Arrays.fill(this.announcements, 0);
+        Arrays.fill(this.blocksBefore, 0);
+        Arrays.fill(this.suppressed, 0);
+        this.blockCount = 0;
+        this.maxDelay = 0;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.node.routing;
+
+import static simblock.settings.SimulatorConfigulation.getTopologyDegree;
+
+import java.util.Arrays;
+import java.util.Random;
+import simblock.node.Node;
+
+/**
+ * A routing table over a random regular graph, where every node has TOPOLOGY_DEGREE neighbors.
+ * The graph is generated by the configuration model: the link ends of all nodes are shuffled and
+ * paired. A pair that would make a self-loop or a second link between two nodes is instead
+ * swapped with a random link, so the graph is simple and takes time linear in its size.
+ */
+public class RandomRegularTable extends GeneratedTopologyTable {
+    /**
+     * The number of random links a rejected pair of link ends tries to swap with before it is
+     * dropped, leaving its nodes one link short.
+     */
+    private static final int SWAP_ATTEMPTS = 64;
+
+    /**
+     * Instantiates a new random regular table.
+     *
+     * @param selfNode the self node
+     */
+    public RandomRegularTable(Node selfNode) {
+        super(selfNode);
+    }
+
+    /**
+     * Generates a random regular graph.
+     *
+     * @param numOfNodes the number of nodes
+     * @param random     the random number generator
+     * @return the graph
+     * @throws IllegalArgumentException if there is no regular graph of TOPOLOGY_DEGREE
+     */
+    @Override
+    protected AdjacencyGraph generate(int numOfNodes, Random random) {
+        int degree = getTopologyDegree();
+        long numOfEnds = (long) numOfNodes * degree;
+        if (degree >= numOfNodes || numOfEnds % 2 != 0 || numOfEnds > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("No random regular graph of " + numOfNodes
+                    + " nodes of TOPOLOGY_DEGREE " + degree);
+        }
+
+        int[] ends = new int[(int) numOfEnds];
+        for (int i = 0; i < ends.length; i++) {
+            ends[i] = i / degree;
+        }
+        for (int i = ends.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int end = ends[i];
+            ends[i] = ends[j];
+            ends[j] = end;
+        }
+
+        // The neighbors of node i are adjacency[i * degree] to adjacency[i * degree + degrees[i]]
+        int[] adjacency = new int[ends.length];
+        int[] degrees = new int[numOfNodes];
+        int[] rejected = new int[16];
+        int numOfRejected = 0;
+        for (int i = 0; i < ends.length; i += 2) {
+            int u = ends[i];
+            int v = ends[i + 1];
+            if (u != v && !isLinked(adjacency, degrees, degree, u, v)) {
+                link(adjacency, degrees, degree, u, v);
+            } else {
+                if (numOfRejected == rejected.length) {
+                    rejected = Arrays.copyOf(rejected, 2 * rejected.length);
+                }
+                rejected[numOfRejected++] = u;
+                rejected[numOfRejected++] = v;
+            }
+        }
+
+        // Replace a random link x-y with u-x and v-y
+        for (int i = 0; i < numOfRejected; i += 2) {
+            int u = rejected[i];
+            int v = rejected[i + 1];
+            for (int attempt = 0; attempt < SWAP_ATTEMPTS; attempt++) {
+                int end = random.nextInt(ends.length);
+                int x = end / degree;
+                if (end % degree >= degrees[x]) {
+                    continue;
+                }
+                int y = adjacency[end];
+                if (x != u && x != v && y != u && y != v
+                        && !isLinked(adjacency, degrees, degree, u, x)
+                        && !isLinked(adjacency, degrees, degree, v, y)) {
+                    unlink(adjacency, degrees, degree, x, y);
+                    link(adjacency, degrees, degree, u, x);
+                    link(adjacency, degrees, degree, v, y);
+                    break;
+                }
+            }
+        }
+
+        int[] from = new int[ends.length / 2];
+        int[] to = new int[ends.length / 2];
+        int numOfEdges = 0;
+        for (int u = 0; u < numOfNodes; u++) {
+            for (int i = u * degree; i < u * degree + degrees[u]; i++) {
+                if (u < adjacency[i]) {
+                    from[numOfEdges] = u;
+                    to[numOfEdges++] = adjacency[i];
+                }
+            }
+        }
+        return AdjacencyGraph.fromEdges(numOfNodes, from, to, numOfEdges);
+    }
+
+    /**
+     * Gets whether two nodes are linked.
+     */
+    private static boolean isLinked(int[] adjacency, int[] degrees, int degree, int u, int v) {
+        for (int i = u * degree; i < u * degree + degrees[u]; i++) {
+            if (adjacency[i] == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Links two nodes.
+     */
+    private static void link(int[] adjacency, int[] degrees, int degree, int u, int v) {
+        adjacency[u * degree + degrees[u]++] = v;
+        adjacency[v * degree + degrees[v]++] = u;
+    }
+
+    /**
+     * Unlinks two linked nodes.
+     */
+    private static void unlink(int[] adjacency, int[] degrees, int degree, int u, int v) {
+        removeEnd(adjacency, degrees, degree, u, v);
+        removeEnd(adjacency, degrees, degree, v, u);
+    }
+
+    /**
+     * Removes v from the neighbors of u, moving the last neighbor of u to its place.
+     */
+    private static void removeEnd(int[] adjacency, int[] degrees, int degree, int u, int v) {
+        int last = u * degree + --degrees[u];
+        for (int i = u * degree; i < last; i++) {
+            if (adjacency[i] == v) {
+                adjacency[i] = adjacency[last];
+                return;
+            }
+        }
+    }
+}
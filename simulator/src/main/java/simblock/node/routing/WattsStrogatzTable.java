@@ -0,0 +1,222 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.node.routing;
+
+import static simblock.settings.SimulatorConfigulation.getTopologyDegree;
+import static simblock.settings.SimulatorConfigulation.getTopologyRewiringProbability;
+
+import java.util.Arrays;
+import java.util.Random;
+import simblock.node.Node;
+
+/**
+ * A routing table over a small-world Watts-Strogatz graph. The nodes start on a ring, each linked
+ * to the TOPOLOGY_DEGREE / 2 nearest nodes on either side, and each link is then rewired with
+ * probability TOPOLOGY_REWIRING_PROBABILITY from its clockwise end to a random node, avoiding
+ * self-loops and second links. The links are tracked in a hash set of primitive keys, so the
+ * graph takes time linear in its size.
+ */
+public class WattsStrogatzTable extends GeneratedTopologyTable {
+    /**
+     * Instantiates a new Watts-Strogatz table.
+     *
+     * @param selfNode the self node
+     */
+    public WattsStrogatzTable(Node selfNode) {
+        super(selfNode);
+    }
+
+    /**
+     * Generates a Watts-Strogatz graph.
+     *
+     * @param numOfNodes the number of nodes
+     * @param random     the random number generator
+     * @return the graph
+     * @throws IllegalArgumentException if TOPOLOGY_DEGREE is odd or not below the number of nodes
+     */
+    @Override
+    protected AdjacencyGraph generate(int numOfNodes, Random random) {
+        int degree = getTopologyDegree();
+        double rewiringProbability = getTopologyRewiringProbability();
+        int half = degree / 2;
+        long numOfEdges = (long) numOfNodes * half;
+        if (degree % 2 != 0 || degree >= numOfNodes || 2 * numOfEdges > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("No Watts-Strogatz graph of " + numOfNodes
+                    + " nodes of TOPOLOGY_DEGREE " + degree);
+        }
+
+        // Link u * half + j - 1 joins u to the j-th node clockwise, then to where it is rewired
+        int[] from = new int[(int) numOfEdges];
+        int[] to = new int[(int) numOfEdges];
+        int[] degrees = new int[numOfNodes];
+        Arrays.fill(degrees, degree);
+        LinkSet links = new LinkSet(numOfNodes, (int) numOfEdges);
+        for (int u = 0; u < numOfNodes; u++) {
+            for (int j = 1; j <= half; j++) {
+                from[u * half + j - 1] = u;
+                to[u * half + j - 1] = (u + j) % numOfNodes;
+                links.add(u, (u + j) % numOfNodes);
+            }
+        }
+
+        for (int j = 1; j <= half; j++) {
+            for (int u = 0; u < numOfNodes; u++) {
+                if (random.nextDouble() >= rewiringProbability || degrees[u] >= numOfNodes - 1) {
+                    continue;
+                }
+                int w;
+                do {
+                    w = random.nextInt(numOfNodes);
+                } while (w == u || links.contains(u, w));
+                int edge = u * half + j - 1;
+                links.remove(u, to[edge]);
+                degrees[to[edge]]--;
+                to[edge] = w;
+                links.add(u, w);
+                degrees[w]++;
+            }
+        }
+        return AdjacencyGraph.fromEdges(numOfNodes, from, to, (int) numOfEdges);
+    }
+
+    /**
+     * A set of undirected links, stored as keys in an open addressing hash table of longs.
+     */
+    private static final class LinkSet {
+        /**
+         * The content of a slot that never held a key.
+         */
+        private static final long EMPTY = -1;
+
+        /**
+         * The content of a slot whose key was removed.
+         */
+        private static final long REMOVED = -2;
+
+        /**
+         * The number of nodes, used to make keys.
+         */
+        private final long numOfNodes;
+
+        /**
+         * The slots, a power of two of them.
+         */
+        private long[] slots;
+
+        /**
+         * The number of slots that are not empty.
+         */
+        private int used = 0;
+
+        /**
+         * Instantiates a new link set.
+         *
+         * @param numOfNodes the number of nodes
+         * @param capacity   the expected number of links
+         */
+        private LinkSet(int numOfNodes, int capacity) {
+            this.numOfNodes = numOfNodes;
+            this.slots = new long[Integer.highestOneBit(Math.max(capacity, 2) * 3 / 2) * 2];
+            Arrays.fill(this.slots, EMPTY);
+        }
+
+        /**
+         * Gets the key of a link.
+         */
+        private long key(int u, int v) {
+            return u < v ? u * this.numOfNodes + v : v * this.numOfNodes + u;
+        }
+
+        /**
+         * Gets the first slot a key is looked for in.
+         */
+        private int slot(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (this.slots.length - 1);
+        }
+
+        /**
+         * Gets the slot a key is looked for in after the given one.
+         */
+        private int next(int slot) {
+            return (slot + 1) & (this.slots.length - 1);
+        }
+
+        /**
+         * Gets whether the set holds a link.
+         */
+        private boolean contains(int u, int v) {
+            long key = this.key(u, v);
+            for (int i = this.slot(key); this.slots[i] != EMPTY; i = this.next(i)) {
+                if (this.slots[i] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Adds a link the set does not hold.
+         */
+        private void add(int u, int v) {
+            if (3 * (this.used + 1) > 2 * this.slots.length) {
+                this.rehash();
+            }
+            long key = this.key(u, v);
+            int i = this.slot(key);
+            while (this.slots[i] >= 0) {
+                i = this.next(i);
+            }
+            if (this.slots[i] == EMPTY) {
+                this.used++;
+            }
+            this.slots[i] = key;
+        }
+
+        /**
+         * Removes a link.
+         */
+        private void remove(int u, int v) {
+            long key = this.key(u, v);
+            for (int i = this.slot(key); this.slots[i] != EMPTY; i = this.next(i)) {
+                if (this.slots[i] == key) {
+                    this.slots[i] = REMOVED;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Moves the keys to a table twice as large, dropping the removed slots.
+         */
+        private void rehash() {
+            long[] keys = this.slots;
+            this.slots = new long[2 * keys.length];
+            Arrays.fill(this.slots, EMPTY);
+            this.used = 0;
+            for (long key : keys) {
+                if (key >= 0) {
+                    int i = this.slot(key);
+                    while (this.slots[i] != EMPTY) {
+                        i = this.next(i);
+                    }
+                    this.slots[i] = key;
+                    this.used++;
+                }
+            }
+        }
+    }
+}
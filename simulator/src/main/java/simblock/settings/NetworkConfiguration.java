@@ -21,8 +21,9 @@ import java.util.Arrays;
 import java.util.List;
 
 /**
- * The type Network configuration allows to configure network latency and
- * bandwidth.
+ * The type Network configuration holds the built-in network datasets: latency, bandwidth, region
+ * and degree distributions. A run selects among them, or loads its own, through
+ * {@link NetworkDataset}.
  */
 public class NetworkConfiguration {
     /**
@@ -58,9 +59,44 @@ public class NetworkConfiguration {
     };
 
     /**
-     * List of latency assigned to each region. (unit: millisecond)
+     * Gets the built-in latency matrix of a year, selected by LATENCY_DATASET.
+     *
+     * @param name 2015 or 2019
+     * @return LATENCY[i][j], the average latency from REGION_LIST[i] to REGION_LIST[j]
+     * @throws IllegalArgumentException if there is no such dataset
      */
-    public static final long[][] LATENCY = LATENCY_2019;
+    public static long[][] getBuiltInLatency(String name) {
+        switch (name) {
+            case "2015":
+                return LATENCY_2015;
+            case "2019":
+                return LATENCY_2019;
+            default:
+                throw new IllegalArgumentException("Unknown LATENCY_DATASET " + name);
+        }
+    }
+
+    /**
+     * REGION_COORDINATES[i] is the centre of REGION_LIST[i] in the network coordinate space of
+     * the coordinate latency model, fitted to LATENCY_2019 together with REGION_HEIGHT.
+     * (unit: millisecond)
+     */
+    public static final double[][] REGION_COORDINATES = {
+            { -6, 44 }, { 72, 132 }, { -124, 141 }, { 88, -91 }, { 45, -97 }, { -75, -128 }
+    };
+
+    /**
+     * The mean height of the nodes of each region in the coordinate latency model, the part of
+     * the latency spent on their access links. (unit: millisecond)
+     */
+    public static final double[] REGION_HEIGHT = { 5, 3, 22, 15, 0, 4 };
+
+    /**
+     * The standard deviation of the coordinates of the nodes of each region around its centre
+     * in the coordinate latency model, chosen so that the mean latency within a region matches
+     * LATENCY_2019. (unit: millisecond)
+     */
+    public static final double[] REGION_SPREAD = { 12, 3, 25, 31, 7, 5 };
 
     /**
      * List of download bandwidth assigned to each region, and last element is
@@ -82,11 +118,23 @@ public class NetworkConfiguration {
     };
 
     /**
-     * List of download bandwidth assigned to each region, and last element is
-     * Inter-regional
-     * bandwidth. (unit: bit per second)
+     * Gets the built-in download bandwidths of a year, selected by BANDWIDTH_DATASET.
+     *
+     * @param name 2015 or 2019
+     * @return the download bandwidth assigned to each region, and last element is
+     *     inter-regional bandwidth
+     * @throws IllegalArgumentException if there is no such dataset
      */
-    public static final long[] DOWNLOAD_BANDWIDTH = DOWNLOAD_BANDWIDTH_2019;
+    public static long[] getBuiltInDownloadBandwidth(String name) {
+        switch (name) {
+            case "2015":
+                return DOWNLOAD_BANDWIDTH_2015;
+            case "2019":
+                return DOWNLOAD_BANDWIDTH_2019;
+            default:
+                throw new IllegalArgumentException("Unknown BANDWIDTH_DATASET " + name);
+        }
+    }
 
     /**
      * List of upload bandwidth assigned to each region. (unit: bit per second), and
@@ -108,11 +156,23 @@ public class NetworkConfiguration {
     };
 
     /**
-     * List of upload bandwidth assigned to each region. (unit: bit per second), and
-     * last element
-     * is Inter-regional bandwidth.
+     * Gets the built-in upload bandwidths of a year, selected by BANDWIDTH_DATASET.
+     *
+     * @param name 2015 or 2019
+     * @return the upload bandwidth assigned to each region, and last element is inter-regional
+     *     bandwidth
+     * @throws IllegalArgumentException if there is no such dataset
      */
-    public static final long[] UPLOAD_BANDWIDTH = UPLOAD_BANDWIDTH_2019;
+    public static long[] getBuiltInUploadBandwidth(String name) {
+        switch (name) {
+            case "2015":
+                return UPLOAD_BANDWIDTH_2015;
+            case "2019":
+                return UPLOAD_BANDWIDTH_2019;
+            default:
+                throw new IllegalArgumentException("Unknown BANDWIDTH_DATASET " + name);
+        }
+    }
 
     /**
      * Region distribution Bitcoin 2015.
@@ -147,11 +207,27 @@ public class NetworkConfiguration {
     };
 
     /**
-     * The distribution of node's region. Each value means the rate of the number of
-     * nodes in the
-     * corresponding region to the number of all nodes.
+     * Gets a built-in distribution of node's region, selected by REGION_DATASET. Each value means
+     * the rate of the number of nodes in the corresponding region to the number of all nodes.
+     *
+     * @param name BITCOIN_2015, BITCOIN_2019, LITECOIN or DOGECOIN
+     * @return the distribution
+     * @throws IllegalArgumentException if there is no such dataset
      */
-    public static final double[] REGION_DISTRIBUTION = REGION_DISTRIBUTION_BITCOIN_2019;
+    public static double[] getBuiltInRegionDistribution(String name) {
+        switch (name) {
+            case "BITCOIN_2015":
+                return REGION_DISTRIBUTION_BITCOIN_2015;
+            case "BITCOIN_2019":
+                return REGION_DISTRIBUTION_BITCOIN_2019;
+            case "LITECOIN":
+                return REGION_DISTRIBUTION_LITECOIN;
+            case "DOGECOIN":
+                return REGION_DISTRIBUTION_DOGECOIN;
+            default:
+                throw new IllegalArgumentException("Unknown REGION_DATASET " + name);
+        }
+    }
 
     /**
      * The cumulative distribution of number of outbound links for Bitcoin 2015.
@@ -179,9 +255,24 @@ public class NetworkConfiguration {
     };
 
     /**
-     * The cumulative distribution of number of outbound links. Cf. Andrew Miller et
-     * al.,
-     * "Discovering bitcoin's public topology and influential nodes", 2015.
+     * Gets a built-in cumulative distribution of number of outbound links, selected by
+     * DEGREE_DATASET. Cf. Andrew Miller et al., "Discovering bitcoin's public topology and
+     * influential nodes", 2015.
+     *
+     * @param name BITCOIN_2015, LITECOIN or DOGECOIN
+     * @return the cumulative distribution
+     * @throws IllegalArgumentException if there is no such dataset
      */
-    public static final double[] DEGREE_DISTRIBUTION = DEGREE_DISTRIBUTION_BITCOIN_2015;
+    public static double[] getBuiltInDegreeDistribution(String name) {
+        switch (name) {
+            case "BITCOIN_2015":
+                return DEGREE_DISTRIBUTION_BITCOIN_2015;
+            case "LITECOIN":
+                return DEGREE_DISTRIBUTION_LITECOIN;
+            case "DOGECOIN":
+                return DEGREE_DISTRIBUTION_DOGECOIN;
+            default:
+                throw new IllegalArgumentException("Unknown DEGREE_DATASET " + name);
+        }
+    }
 }
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.settings;
+
+import static simblock.settings.NetworkConfiguration.REGION_LIST;
+import static simblock.settings.NetworkConfiguration.getBuiltInDegreeDistribution;
+import static simblock.settings.NetworkConfiguration.getBuiltInDownloadBandwidth;
+import static simblock.settings.NetworkConfiguration.getBuiltInLatency;
+import static simblock.settings.NetworkConfiguration.getBuiltInRegionDistribution;
+import static simblock.settings.NetworkConfiguration.getBuiltInUploadBandwidth;
+import static simblock.settings.SimulatorConfigulation.getBandwidthDataset;
+import static simblock.settings.SimulatorConfigulation.getDegreeDataset;
+import static simblock.settings.SimulatorConfigulation.getLatencyDataset;
+import static simblock.settings.SimulatorConfigulation.getNetworkDatasetFile;
+import static simblock.settings.SimulatorConfigulation.getRegionDataset;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The type Network dataset is the immutable network data of a run: the regions, the latency
+ * between them, their bandwidths and the distributions of the regions and degrees of the nodes.
+ * The values are frozen into flat primitive arrays, the latency matrix in row-major order, so
+ * that lookups are plain indexed loads. A dataset is selected among the built-in ones of
+ * {@link NetworkConfiguration} by properties, or loaded from a file, so a run can change its
+ * network data without recompiling.
+ */
+public final class NetworkDataset {
+    /**
+     * The names of the regions.
+     */
+    private final List<String> regions;
+
+    /**
+     * The latency between regions, LATENCY[from * regions + to]. (unit: millisecond)
+     */
+    private final long[] latency;
+
+    /**
+     * The download bandwidth of each region. (unit: bit per second)
+     */
+    private final long[] downloadBandwidth;
+
+    /**
+     * The upload bandwidth of each region. (unit: bit per second)
+     */
+    private final long[] uploadBandwidth;
+
+    /**
+     * The rate of nodes in each region.
+     */
+    private final double[] regionDistribution;
+
+    /**
+     * The cumulative distribution of the number of outbound links.
+     */
+    private final double[] degreeDistribution;
+
+    /**
+     * Instantiates a new Network dataset, validating that the sizes of the values agree with the
+     * number of regions.
+     *
+     * @param regions            the names of the regions
+     * @param latency            the latency between regions, row-major
+     * @param downloadBandwidth  the download bandwidth of each region
+     * @param uploadBandwidth    the upload bandwidth of each region
+     * @param regionDistribution the rate of nodes in each region
+     * @param degreeDistribution the cumulative distribution of the number of outbound links
+     * @throws IllegalArgumentException if the values do not agree
+     */
+    public NetworkDataset(
+            List<String> regions, long[] latency, long[] downloadBandwidth, long[] uploadBandwidth,
+            double[] regionDistribution, double[] degreeDistribution) {
+        int count = regions.size();
+        if (latency.length != count * count) {
+            throw new IllegalArgumentException(
+                    "LATENCY has " + latency.length + " values for " + count + " regions");
+        }
+        if (downloadBandwidth.length < count || uploadBandwidth.length < count) {
+            throw new IllegalArgumentException("Bandwidths missing for " + count + " regions");
+        }
+        if (regionDistribution.length != count) {
+            throw new IllegalArgumentException("REGION_DISTRIBUTION has "
+                    + regionDistribution.length + " values for " + count + " regions");
+        }
+        if (Math.abs(Arrays.stream(regionDistribution).sum() - 1) > 1e-3) {
+            throw new IllegalArgumentException("REGION_DISTRIBUTION does not sum up to 1");
+        }
+        if (degreeDistribution.length == 0
+                || degreeDistribution[degreeDistribution.length - 1] != 1) {
+            throw new IllegalArgumentException("DEGREE_DISTRIBUTION does not end with 1");
+        }
+        this.regions = Collections.unmodifiableList(Arrays.asList(regions.toArray(new String[0])));
+        this.latency = latency.clone();
+        this.downloadBandwidth = downloadBandwidth.clone();
+        this.uploadBandwidth = uploadBandwidth.clone();
+        this.regionDistribution = regionDistribution.clone();
+        this.degreeDistribution = degreeDistribution.clone();
+    }
+
+    /**
+     * Loads the dataset selected by the properties. LATENCY_DATASET, BANDWIDTH_DATASET,
+     * REGION_DATASET and DEGREE_DATASET select built-in datasets. NETWORK_DATASET_FILE may name
+     * a properties file replacing any of them, with the keys REGION_LIST, LATENCY (row-major),
+     * DOWNLOAD_BANDWIDTH, UPLOAD_BANDWIDTH, REGION_DISTRIBUTION and DEGREE_DISTRIBUTION, each
+     * a list of values separated by commas or white space. A file with other regions than the
+     * built-in ones must define every key but DEGREE_DISTRIBUTION.
+     *
+     * @return the dataset
+     * @throws IllegalArgumentException if a dataset is unknown or the values do not agree
+     * @throws UncheckedIOException     if the file cannot be read
+     */
+    public static NetworkDataset load() {
+        Properties file = new Properties();
+        String path = getNetworkDatasetFile();
+        if (path != null) {
+            try (FileReader reader = new FileReader(path)) {
+                file.load(reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        String regions = file.getProperty("REGION_LIST");
+        String latency = file.getProperty("LATENCY");
+        String download = file.getProperty("DOWNLOAD_BANDWIDTH");
+        String upload = file.getProperty("UPLOAD_BANDWIDTH");
+        String regionDistribution = file.getProperty("REGION_DISTRIBUTION");
+        String degreeDistribution = file.getProperty("DEGREE_DISTRIBUTION");
+        return new NetworkDataset(
+                regions != null ? Arrays.asList(split(regions)) : REGION_LIST,
+                latency != null ? parseLongs(latency)
+                        : flatten(getBuiltInLatency(getLatencyDataset())),
+                download != null ? parseLongs(download)
+                        : getBuiltInDownloadBandwidth(getBandwidthDataset()),
+                upload != null ? parseLongs(upload)
+                        : getBuiltInUploadBandwidth(getBandwidthDataset()),
+                regionDistribution != null ? parseDoubles(regionDistribution)
+                        : getBuiltInRegionDistribution(getRegionDataset()),
+                degreeDistribution != null ? parseDoubles(degreeDistribution)
+                        : getBuiltInDegreeDistribution(getDegreeDataset()));
+    }
+
+    /**
+     * Splits a list of values separated by commas or white space.
+     *
+     * @param values the list
+     * @return the values
+     */
+    private static String[] split(String values) {
+        return values.trim().split("[,\\s]+");
+    }
+
+    /**
+     * Parses a list of integers.
+     *
+     * @param values the list
+     * @return the integers
+     */
+    private static long[] parseLongs(String values) {
+        return Arrays.stream(split(values)).mapToLong(Long::parseLong).toArray();
+    }
+
+    /**
+     * Parses a list of decimals.
+     *
+     * @param values the list
+     * @return the decimals
+     */
+    private static double[] parseDoubles(String values) {
+        return Arrays.stream(split(values)).mapToDouble(Double::parseDouble).toArray();
+    }
+
+    /**
+     * Flattens a square matrix in row-major order.
+     *
+     * @param matrix the matrix
+     * @return the values
+     */
+    private static long[] flatten(long[][] matrix) {
+        long[] values = new long[matrix.length * matrix.length];
+        for (int i = 0; i < matrix.length; i++) {
+            System.arraycopy(matrix[i], 0, values, i * matrix.length, matrix.length);
+        }
+        return values;
+    }
+
+    /**
+     * Gets the names of the regions.
+     *
+     * @return the unmodifiable list of region names
+     */
+    public List<String> getRegions() {
+        return this.regions;
+    }
+
+    /**
+     * Gets the average latency between two regions.
+     *
+     * @param from the sending region
+     * @param to   the receiving region
+     * @return the latency (unit: millisecond)
+     */
+    public long getLatency(int from, int to) {
+        return this.latency[from * this.regions.size() + to];
+    }
+
+    /**
+     * Gets the download bandwidth of a region.
+     *
+     * @param region the region
+     * @return the bandwidth (unit: bit per second)
+     */
+    public long getDownloadBandwidth(int region) {
+        return this.downloadBandwidth[region];
+    }
+
+    /**
+     * Gets the upload bandwidth of a region.
+     *
+     * @param region the region
+     * @return the bandwidth (unit: bit per second)
+     */
+    public long getUploadBandwidth(int region) {
+        return this.uploadBandwidth[region];
+    }
+
+    /**
+     * Gets the rate of nodes in each region.
+     *
+     * @return a copy of the distribution
+     */
+    public double[] getRegionDistribution() {
+        return this.regionDistribution.clone();
+    }
+
+    /**
+     * Gets the cumulative distribution of the number of outbound links.
+     *
+     * @return a copy of the distribution
+     */
+    public double[] getDegreeDistribution() {
+        return this.degreeDistribution.clone();
+    }
+}
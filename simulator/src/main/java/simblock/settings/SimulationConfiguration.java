@@ -18,62 +18,63 @@ package simblock.settings;
 
 /**
  * The type Simulation configuration allows for specific simulation instance
- * configuration.
+ * configuration. The parameters of a run are properties, documented in
+ * {@link SimulatorConfigulation}. The constants left here either size the data structures and
+ * debugging aids of the implementation rather than describe the simulated network, and are
+ * compiled in so the code reading them is specialized, or are the defaults of properties.
  */
 public class SimulationConfiguration {
 
         /**
-         * The kind of routing table.
+         * The number of recent block ids remembered per peer for inventory-aware relay. Must be a
+         * power of two.
          */
-        public static final String TABLE = "simblock.node.routing.BitcoinCoreTable";
+        public static final int INVENTORY_WINDOW = 64;
 
         /**
-         * The consensus algorithm to be used.
+         * The number of recent block ids a node indexes directly when tracking orphaned and
+         * downloading blocks. Must be a power of two.
          */
-        // TODO not documented in markdown
-        // TODO return to PoW
-        public static final String ALGO = "simblock.node.consensus.ProofOfWork";
+        public static final int BLOCK_ID_WINDOW = 256;
 
         /**
-         * The constant AVERAGE_COINS.
+         * The number of events between two updates of the SimulatorMetrics MBean. Must be a power
+         * of two.
          */
-        // TODO
-        public static final int AVERAGE_COINS = 4000;
-        /**
-         * The constant STDEV_OF_COINS.
-         */
-        // TODO
-        public static final int STDEV_OF_COINS = 2000;
+        public static final int METRICS_PUBLISH_INTERVAL = 1024;
 
         /**
-         * The reward a PoS minter gets for staking.
+         * Whether the Timer profiles the tasks it runs per task class. When unset the profiling
+         * code is compiled out.
          */
-        public static final double STAKING_REWARD = 0.01;
+        public static final boolean TASK_PROFILING = false;
 
         /**
-         * Block size. (unit: byte).
+         * One task out of this number is timed when profiling tasks. Must be a power of two.
          */
-        public static final long BLOCK_SIZE = 535000;// 6110;//8000;//535000;//0.5MB
+        public static final int TASK_PROFILING_SAMPLE_INTERVAL = 64;
 
         /**
-         * The rate of nodes that cause churn.
-         */
-        public static final float CHURN_NODE_RATE = 0.976f;
-        /**
-         * Compact block size. (unit: byte)
+         * Whether released message tasks are checked for further use instead of being reused.
+         * Enable only when debugging, as it effectively disables task pooling.
          */
-        public static final long COMPACT_BLOCK_SIZE = 18 * 1000; // 18KB
+        public static final boolean TASK_POOL_DEBUG = false;
+
         /**
-         * CBR failure rate for a node that always connect network.
+         * The number of scenario lines scheduled at a time when nodes join from a scenario file,
+         * which bounds the part of the scenario held in the event queue.
          */
-        public static final float CBR_FAILURE_RATE_FOR_CONTROL_NODE = 0.13f;
+        public static final int SCENARIO_WINDOW = 1024;
+
         /**
-         * CBR failure rate for a node that causes churn.
+         * The side of the cells of the grid indexing the nodes of the coordinate latency model.
+         * (unit: millisecond)
          */
-        public static final float CBR_FAILURE_RATE_FOR_CHURN_NODE = 0.27f;
+        public static final double COORDINATE_GRID_CELL_SIZE = 1;
 
         /**
-         * The distribution of data size that a control node receives when fails CBR.
+         * The distribution of data size that a control node receives when fails CBR, the default
+         * of CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE.
          */
         public static final float[] CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE = {
                         0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f,
@@ -106,7 +107,8 @@ public class SimulationConfiguration {
                         0.01f, 0.01f
         };
         /**
-         * The distribution of data size that a churn node receives when fails CBR.
+         * The distribution of data size that a churn node receives when fails CBR, the default
+         * of CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE.
          */
         public static final float[] CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE = {
                         0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f, 0.01f,
@@ -0,0 +1,628 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.settings;
+
+import static simblock.settings.SimulationConfiguration.CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE;
+import static simblock.settings.SimulationConfiguration.CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * The type Simulation parameters is the immutable, validated snapshot of the parameters of a
+ * run. It is built once from the simulation properties, so that reading a parameter, even in the
+ * loops over nodes, costs a field access instead of parsing a string. Every parameter has the
+ * name of its property; the properties documented in {@link SimulatorConfigulation} without a
+ * default are required.
+ */
+public final class SimulationParameters {
+    /**
+     * The prefix of the properties setting the compression level of a logger.
+     */
+    private static final String COMPRESSION_LEVEL_PREFIX = "COMPRESSION_LEVEL.";
+
+    /**
+     * The names of the properties.
+     */
+    private static final Set<String> KEYS = new HashSet<>(Arrays.asList(
+            "NUM_OF_NODES", "END_BLOCK_HEIGHT", "INTERVAL", "AVERAGE_MINING_POWER",
+            "STDEV_OF_MINING_POWER", "CBR_USAGE_RATE", "TABLE", "ALGO", "AVERAGE_COINS",
+            "STDEV_OF_COINS", "STAKING_REWARD", "BLOCK_SIZE", "COMPACT_BLOCK_SIZE",
+            "CHURN_NODE_RATE", "CBR_FAILURE_RATE_FOR_CONTROL_NODE",
+            "CBR_FAILURE_RATE_FOR_CHURN_NODE",
+            "CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE",
+            "CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE", "UPLOAD_SLOTS",
+            "PRIORITIZE_COMPACT_BLOCKS",
+            "FLOW_LEVEL_NETWORK", "INVENTORY_AWARE_RELAY", "COMPRESSION_LEVEL",
+            "OUTPUT_VERBOSITY", "OUTPUT_SAMPLE_INTERVAL", "OUTPUT_SAMPLE_NODES",
+            "PROPAGATION_OUTPUT", "PROPAGATION_PERCENTILES",
+            "CHURN_ONLINE_TIME", "CHURN_OFFLINE_TIME", "CHURN_SESSION_SHAPE",
+            "BANDWIDTH_DEVIATION", "ACCESS_LATENCY", "ACCESS_JITTER", "LATENCY_MODEL",
+            "LATENCY_DATASET", "BANDWIDTH_DATASET", "REGION_DATASET", "DEGREE_DATASET", "NETWORK_DATASET_FILE",
+            "TOPOLOGY_DEGREE", "TOPOLOGY_REWIRING_PROBABILITY", "PERIGEE_ROUND_INTERVAL",
+            "PERIGEE_EVICTIONS"));
+
+    private final int numOfNodes;
+    private final int endBlockHeight;
+    private final long interval;
+    private final int averageMiningPower;
+    private final int stdevOfMiningPower;
+    private final float cbrUsageRate;
+    private final String table;
+    private final String algo;
+    private final int averageCoins;
+    private final int stdevOfCoins;
+    private final double stakingReward;
+    private final long blockSize;
+    private final long compactBlockSize;
+    private final float churnNodeRate;
+    private final float cbrFailureRateForControlNode;
+    private final float cbrFailureRateForChurnNode;
+    private final List<Float> cbrFailureBlockSizeDistributionForControlNode;
+    private final List<Float> cbrFailureBlockSizeDistributionForChurnNode;
+    private final int uploadSlots;
+    private final boolean prioritizeCompactBlocks;
+    private final boolean flowLevelNetwork;
+    private final boolean inventoryAwareRelay;
+    private final int compressionLevel;
+    private final Map<String, Integer> compressionLevels;
+    private final String outputVerbosity;
+    private final int outputSampleInterval;
+    private final String outputSampleNodes;
+    private final String propagationOutput;
+    private final int[] propagationPercentiles;
+    private final long churnOnlineTime;
+    private final long churnOfflineTime;
+    private final double churnSessionShape;
+    private final double bandwidthDeviation;
+    private final long accessLatency;
+    private final double accessJitter;
+    private final String latencyModel;
+    private final String latencyDataset;
+    private final String bandwidthDataset;
+    private final String regionDataset;
+    private final String degreeDataset;
+    private final String networkDatasetFile;
+    private final int topologyDegree;
+    private final double topologyRewiringProbability;
+    private final long perigeeRoundInterval;
+    private final int perigeeEvictions;
+
+    /**
+     * Reads and validates the parameters.
+     *
+     * @param properties the simulation properties
+     * @throws IllegalArgumentException if a property is unknown, a required property is missing
+     *                                  or a value is invalid
+     */
+    public SimulationParameters(Properties properties) {
+        for (String key : properties.stringPropertyNames()) {
+            if (!KEYS.contains(key) && !key.startsWith(COMPRESSION_LEVEL_PREFIX)) {
+                throw new IllegalArgumentException("Unknown property " + key);
+            }
+        }
+        Reader reader = new Reader(properties);
+        this.numOfNodes = (int) reader.getLong("NUM_OF_NODES", null, 1, Integer.MAX_VALUE);
+        this.endBlockHeight = (int) reader.getLong("END_BLOCK_HEIGHT", null, 1, Integer.MAX_VALUE);
+        this.interval = reader.getLong("INTERVAL", null, 1, Long.MAX_VALUE);
+        this.averageMiningPower =
+                (int) reader.getLong("AVERAGE_MINING_POWER", null, 1, Integer.MAX_VALUE);
+        this.stdevOfMiningPower =
+                (int) reader.getLong("STDEV_OF_MINING_POWER", null, 0, Integer.MAX_VALUE);
+        this.cbrUsageRate = (float) reader.getDouble("CBR_USAGE_RATE", null, 0, 1);
+        this.table = reader.getClassName("TABLE", "simblock.node.routing.BitcoinCoreTable");
+        this.algo = reader.getClassName("ALGO", "simblock.node.consensus.ProofOfWork");
+        this.averageCoins = (int) reader.getLong("AVERAGE_COINS", "4000", 0, Integer.MAX_VALUE);
+        this.stdevOfCoins = (int) reader.getLong("STDEV_OF_COINS", "2000", 0, Integer.MAX_VALUE);
+        this.stakingReward = reader.getDouble("STAKING_REWARD", "0.01", 0, Double.MAX_VALUE);
+        this.blockSize = reader.getLong("BLOCK_SIZE", "535000", 1, Long.MAX_VALUE);
+        this.compactBlockSize = reader.getLong("COMPACT_BLOCK_SIZE", "18000", 1, Long.MAX_VALUE);
+        this.churnNodeRate = (float) reader.getDouble("CHURN_NODE_RATE", "0.976", 0, 1);
+        this.cbrFailureRateForControlNode =
+                (float) reader.getDouble("CBR_FAILURE_RATE_FOR_CONTROL_NODE", "0.13", 0, 1);
+        this.cbrFailureRateForChurnNode =
+                (float) reader.getDouble("CBR_FAILURE_RATE_FOR_CHURN_NODE", "0.27", 0, 1);
+        this.cbrFailureBlockSizeDistributionForControlNode = reader.getFractions(
+                "CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE",
+                CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE);
+        this.cbrFailureBlockSizeDistributionForChurnNode = reader.getFractions(
+                "CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE",
+                CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE);
+        this.uploadSlots = (int) reader.getLong("UPLOAD_SLOTS", "1", 1, Integer.MAX_VALUE);
+        this.prioritizeCompactBlocks = reader.getBoolean("PRIORITIZE_COMPACT_BLOCKS", "false");
+        this.flowLevelNetwork = reader.getBoolean("FLOW_LEVEL_NETWORK", "false");
+        this.inventoryAwareRelay = reader.getBoolean("INVENTORY_AWARE_RELAY", "true");
+        this.compressionLevel = (int) reader.getLong("COMPRESSION_LEVEL", "-1", -1, 9);
+        Map<String, Integer> compressionLevels = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(COMPRESSION_LEVEL_PREFIX)) {
+                compressionLevels.put(key.substring(COMPRESSION_LEVEL_PREFIX.length()),
+                        (int) reader.getLong(key, null, -1, 9));
+            }
+        }
+        this.compressionLevels = Collections.unmodifiableMap(compressionLevels);
+        this.outputVerbosity = reader.getChoice(
+                "OUTPUT_VERBOSITY", "full", Arrays.asList("none", "summary", "sampled", "full"));
+        this.outputSampleInterval =
+                (int) reader.getLong("OUTPUT_SAMPLE_INTERVAL", "10", 1, Integer.MAX_VALUE);
+        this.outputSampleNodes = reader.getString("OUTPUT_SAMPLE_NODES", "");
+        this.propagationOutput = reader.getChoice(
+                "PROPAGATION_OUTPUT", "csv", Arrays.asList("csv", "binary"));
+        this.propagationPercentiles = reader.getPercentiles("PROPAGATION_PERCENTILES", "50,90,100");
+        this.churnOnlineTime = reader.getLong("CHURN_ONLINE_TIME", "0", 0, Long.MAX_VALUE);
+        this.churnOfflineTime = reader.getLong("CHURN_OFFLINE_TIME", "0", 0, Long.MAX_VALUE);
+        this.churnSessionShape =
+                reader.getDouble("CHURN_SESSION_SHAPE", "1", Double.MIN_VALUE, Double.MAX_VALUE);
+        this.bandwidthDeviation =
+                reader.getDouble("BANDWIDTH_DEVIATION", "0", 0, Double.MAX_VALUE);
+        this.accessLatency = reader.getLong("ACCESS_LATENCY", "0", 0, Long.MAX_VALUE);
+        this.accessJitter = reader.getDouble("ACCESS_JITTER", "0", 0, Double.MAX_VALUE);
+        this.latencyModel = reader.getChoice(
+                "LATENCY_MODEL", "region", Arrays.asList("region", "coordinate"));
+        this.latencyDataset = reader.getString("LATENCY_DATASET", "2019");
+        NetworkConfiguration.getBuiltInLatency(this.latencyDataset);
+        this.bandwidthDataset = reader.getString("BANDWIDTH_DATASET", "2019");
+        NetworkConfiguration.getBuiltInUploadBandwidth(this.bandwidthDataset);
+        this.regionDataset = reader.getString("REGION_DATASET", "BITCOIN_2019");
+        NetworkConfiguration.getBuiltInRegionDistribution(this.regionDataset);
+        this.degreeDataset = reader.getString("DEGREE_DATASET", "BITCOIN_2015");
+        NetworkConfiguration.getBuiltInDegreeDistribution(this.degreeDataset);
+        String networkDatasetFile = reader.getString("NETWORK_DATASET_FILE", "");
+        this.networkDatasetFile = networkDatasetFile.isEmpty() ? null : networkDatasetFile;
+        this.topologyDegree = (int) reader.getLong("TOPOLOGY_DEGREE", "16", 1, Integer.MAX_VALUE);
+        this.topologyRewiringProbability =
+                reader.getDouble("TOPOLOGY_REWIRING_PROBABILITY", "0.1", 0, 1);
+        this.perigeeRoundInterval =
+                reader.getLong("PERIGEE_ROUND_INTERVAL", "6000000", 1, Long.MAX_VALUE);
+        this.perigeeEvictions =
+                (int) reader.getLong("PERIGEE_EVICTIONS", "2", 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads typed values from properties, reporting invalid values with their property.
+     */
+    private static final class Reader {
+        private final Properties properties;
+
+        private Reader(Properties properties) {
+            this.properties = properties;
+        }
+
+        private String getString(String key, String defaultValue) {
+            String value = this.properties.getProperty(key, defaultValue);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing property " + key);
+            }
+            return value.trim();
+        }
+
+        private IllegalArgumentException invalid(String key, String value, String expected) {
+            return new IllegalArgumentException(
+                    "Invalid property " + key + "=" + value + ", expected " + expected);
+        }
+
+        private long getLong(String key, String defaultValue, long min, long max) {
+            String value = this.getString(key, defaultValue);
+            try {
+                long number = Long.parseLong(value);
+                if (number >= min && number <= max) {
+                    return number;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw this.invalid(key, value, "an integer from " + min + " to " + max);
+        }
+
+        private double getDouble(String key, String defaultValue, double min, double max) {
+            String value = this.getString(key, defaultValue);
+            try {
+                double number = Double.parseDouble(value);
+                if (number >= min && number <= max) {
+                    return number;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw this.invalid(key, value, "a number from " + min + " to " + max);
+        }
+
+        private boolean getBoolean(String key, String defaultValue) {
+            String value = this.getString(key, defaultValue);
+            if (!value.equals("true") && !value.equals("false")) {
+                throw this.invalid(key, value, "true or false");
+            }
+            return Boolean.parseBoolean(value);
+        }
+
+        private String getChoice(String key, String defaultValue, List<String> choices) {
+            String value = this.getString(key, defaultValue);
+            if (!choices.contains(value)) {
+                throw this.invalid(key, value, "one of " + choices);
+            }
+            return value;
+        }
+
+        private int[] getPercentiles(String key, String defaultValue) {
+            String value = this.getString(key, defaultValue);
+            String[] fields = value.split(",");
+            int[] percentiles = new int[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                try {
+                    percentiles[i] = Integer.parseInt(fields[i].trim());
+                } catch (NumberFormatException e) {
+                    throw this.invalid(key, value, "comma-separated integers");
+                }
+                if (percentiles[i] < 1 || percentiles[i] > 100
+                        || i > 0 && percentiles[i] <= percentiles[i - 1]) {
+                    throw this.invalid(key, value, "increasing integers from 1 to 100");
+                }
+            }
+            return percentiles;
+        }
+
+        private List<Float> getFractions(String key, float[] defaultValue) {
+            String value = this.properties.getProperty(key);
+            List<Float> fractions = new ArrayList<>();
+            if (value == null) {
+                for (float fraction : defaultValue) {
+                    fractions.add(fraction);
+                }
+                return Collections.unmodifiableList(fractions);
+            }
+            for (String field : value.split(",")) {
+                float fraction;
+                try {
+                    fraction = Float.parseFloat(field.trim());
+                } catch (NumberFormatException e) {
+                    throw this.invalid(key, value, "comma-separated numbers");
+                }
+                if (!(fraction >= 0 && fraction <= 1)) {
+                    throw this.invalid(key, value, "numbers from 0 to 1");
+                }
+                fractions.add(fraction);
+            }
+            return Collections.unmodifiableList(fractions);
+        }
+
+        private String getClassName(String key, String defaultValue) {
+            String value = this.getString(key, defaultValue);
+            try {
+                Class.forName(value);
+            } catch (ClassNotFoundException e) {
+                throw this.invalid(key, value, "the name of a class");
+            }
+            return value;
+        }
+    }
+
+    /**
+     * @return NUM_OF_NODES
+     */
+    public int getNumOfNodes() {
+        return this.numOfNodes;
+    }
+
+    /**
+     * @return END_BLOCK_HEIGHT
+     */
+    public int getEndBlockHeight() {
+        return this.endBlockHeight;
+    }
+
+    /**
+     * @return INTERVAL
+     */
+    public long getInterval() {
+        return this.interval;
+    }
+
+    /**
+     * @return AVERAGE_MINING_POWER
+     */
+    public int getAverageMiningPower() {
+        return this.averageMiningPower;
+    }
+
+    /**
+     * @return STDEV_OF_MINING_POWER
+     */
+    public int getStdevOfMiningPower() {
+        return this.stdevOfMiningPower;
+    }
+
+    /**
+     * @return CBR_USAGE_RATE
+     */
+    public float getCBRUsageRate() {
+        return this.cbrUsageRate;
+    }
+
+    /**
+     * @return TABLE
+     */
+    public String getTable() {
+        return this.table;
+    }
+
+    /**
+     * @return ALGO
+     */
+    public String getAlgo() {
+        return this.algo;
+    }
+
+    /**
+     * @return AVERAGE_COINS
+     */
+    public int getAverageCoins() {
+        return this.averageCoins;
+    }
+
+    /**
+     * @return STDEV_OF_COINS
+     */
+    public int getStdevOfCoins() {
+        return this.stdevOfCoins;
+    }
+
+    /**
+     * @return STAKING_REWARD
+     */
+    public double getStakingReward() {
+        return this.stakingReward;
+    }
+
+    /**
+     * @return BLOCK_SIZE
+     */
+    public long getBlockSize() {
+        return this.blockSize;
+    }
+
+    /**
+     * @return COMPACT_BLOCK_SIZE
+     */
+    public long getCompactBlockSize() {
+        return this.compactBlockSize;
+    }
+
+    /**
+     * @return CHURN_NODE_RATE
+     */
+    public float getChurnNodeRate() {
+        return this.churnNodeRate;
+    }
+
+    /**
+     * @return CBR_FAILURE_RATE_FOR_CONTROL_NODE
+     */
+    public float getCBRFailureRateForControlNode() {
+        return this.cbrFailureRateForControlNode;
+    }
+
+    /**
+     * @return CBR_FAILURE_RATE_FOR_CHURN_NODE
+     */
+    public float getCBRFailureRateForChurnNode() {
+        return this.cbrFailureRateForChurnNode;
+    }
+
+    /**
+     * @return CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE, unmodifiable
+     */
+    public List<Float> getCBRFailureBlockSizeDistributionForControlNode() {
+        return this.cbrFailureBlockSizeDistributionForControlNode;
+    }
+
+    /**
+     * @return CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE, unmodifiable
+     */
+    public List<Float> getCBRFailureBlockSizeDistributionForChurnNode() {
+        return this.cbrFailureBlockSizeDistributionForChurnNode;
+    }
+
+    /**
+     * @return UPLOAD_SLOTS
+     */
+    public int getUploadSlots() {
+        return this.uploadSlots;
+    }
+
+    /**
+     * @return PRIORITIZE_COMPACT_BLOCKS
+     */
+    public boolean isPrioritizeCompactBlocks() {
+        return this.prioritizeCompactBlocks;
+    }
+
+    /**
+     * @return FLOW_LEVEL_NETWORK
+     */
+    public boolean isFlowLevelNetwork() {
+        return this.flowLevelNetwork;
+    }
+
+    /**
+     * @return INVENTORY_AWARE_RELAY
+     */
+    public boolean isInventoryAwareRelay() {
+        return this.inventoryAwareRelay;
+    }
+
+    /**
+     * @param name the name of a logger
+     * @return COMPRESSION_LEVEL.name, or COMPRESSION_LEVEL if unset
+     */
+    public int getCompressionLevel(String name) {
+        return this.compressionLevels.getOrDefault(name, this.compressionLevel);
+    }
+
+    /**
+     * @return OUTPUT_VERBOSITY
+     */
+    public String getOutputVerbosity() {
+        return this.outputVerbosity;
+    }
+
+    /**
+     * @return OUTPUT_SAMPLE_INTERVAL
+     */
+    public int getOutputSampleInterval() {
+        return this.outputSampleInterval;
+    }
+
+    /**
+     * @return OUTPUT_SAMPLE_NODES
+     */
+    public String getOutputSampleNodes() {
+        return this.outputSampleNodes;
+    }
+
+    /**
+     * @return PROPAGATION_OUTPUT
+     */
+    public String getPropagationOutput() {
+        return this.propagationOutput;
+    }
+
+    /**
+     * @return a copy of PROPAGATION_PERCENTILES
+     */
+    public int[] getPropagationPercentiles() {
+        return this.propagationPercentiles.clone();
+    }
+
+    /**
+     * @return CHURN_ONLINE_TIME
+     */
+    public long getChurnOnlineTime() {
+        return this.churnOnlineTime;
+    }
+
+    /**
+     * @return CHURN_OFFLINE_TIME
+     */
+    public long getChurnOfflineTime() {
+        return this.churnOfflineTime;
+    }
+
+    /**
+     * @return CHURN_SESSION_SHAPE
+     */
+    public double getChurnSessionShape() {
+        return this.churnSessionShape;
+    }
+
+    /**
+     * @return BANDWIDTH_DEVIATION
+     */
+    public double getBandwidthDeviation() {
+        return this.bandwidthDeviation;
+    }
+
+    /**
+     * @return ACCESS_LATENCY
+     */
+    public long getAccessLatency() {
+        return this.accessLatency;
+    }
+
+    /**
+     * @return ACCESS_JITTER
+     */
+    public double getAccessJitter() {
+        return this.accessJitter;
+    }
+
+    /**
+     * @return LATENCY_MODEL
+     */
+    public String getLatencyModel() {
+        return this.latencyModel;
+    }
+
+    /**
+     * @return LATENCY_DATASET
+     */
+    public String getLatencyDataset() {
+        return this.latencyDataset;
+    }
+
+    /**
+     * @return BANDWIDTH_DATASET
+     */
+    public String getBandwidthDataset() {
+        return this.bandwidthDataset;
+    }
+
+    /**
+     * @return REGION_DATASET
+     */
+    public String getRegionDataset() {
+        return this.regionDataset;
+    }
+
+    /**
+     * @return DEGREE_DATASET
+     */
+    public String getDegreeDataset() {
+        return this.degreeDataset;
+    }
+
+    /**
+     * @return NETWORK_DATASET_FILE, or null if unset
+     */
+    public String getNetworkDatasetFile() {
+        return this.networkDatasetFile;
+    }
+
+    /**
+     * @return TOPOLOGY_DEGREE
+     */
+    public int getTopologyDegree() {
+        return this.topologyDegree;
+    }
+
+    /**
+     * @return TOPOLOGY_REWIRING_PROBABILITY
+     */
+    public double getTopologyRewiringProbability() {
+        return this.topologyRewiringProbability;
+    }
+
+    /**
+     * @return PERIGEE_ROUND_INTERVAL
+     */
+    public long getPerigeeRoundInterval() {
+        return this.perigeeRoundInterval;
+    }
+
+    /**
+     * @return PERIGEE_EVICTIONS
+     */
+    public int getPerigeeEvictions() {
+        return this.perigeeEvictions;
+    }
+}
@@ -2,11 +2,18 @@ package simblock.settings;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.List;
 import java.util.Properties;
 
 public class SimulatorConfigulation {
     private static Properties properties = new Properties();
 
+    /**
+     * The parameters read from the properties, built on first use and dropped whenever the
+     * properties change.
+     */
+    private static SimulationParameters parameters = null;
+
     public SimulatorConfigulation() {
 
     }
@@ -18,27 +25,53 @@ public class SimulatorConfigulation {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        parameters = null;
+    }
+
+    /**
+     * Sets a property, overriding the value read from the properties file.
+     *
+     * @param key   the name of the property
+     * @param value the value of the property
+     */
+    public static void setProperty(String key, String value) {
+        properties.setProperty(key, value);
+        parameters = null;
+    }
+
+    /**
+     * Gets the validated parameters of the simulation, reading them from the properties the
+     * first time.
+     *
+     * @return the parameters
+     * @throws IllegalArgumentException if a property is unknown, missing or invalid
+     */
+    public static SimulationParameters getParameters() {
+        if (parameters == null) {
+            parameters = new SimulationParameters(properties);
+        }
+        return parameters;
     }
 
     /**
      * The number of nodes participating in the blockchain network.
      */
     public static int getNumOfNodes() {
-        return Integer.parseInt(properties.getProperty("NUM_OF_NODES"));
+        return getParameters().getNumOfNodes();
     }
 
     /**
      * The block height when a simulation ends.
      */
     public static int getEndBlockHeight() {
-        return Integer.parseInt(properties.getProperty("END_BLOCK_HEIGHT"));
+        return getParameters().getEndBlockHeight();
     }
 
     /**
      * The usage rate of compact block relay (CBR) protocol.
      */
     public static float getCBRUsageRate() {
-        return Float.parseFloat(properties.getProperty("CBR_USAGE_RATE"));
+        return getParameters().getCBRUsageRate();
     }
 
     /**
@@ -47,7 +80,7 @@ public class SimulatorConfigulation {
      * adjusted by this value and the sum of mining power. (unit: millisecond)
      */
     public static long getInterval() {
-        return Long.parseLong(properties.getProperty("INTERVAL"));
+        return getParameters().getInterval();
     }
 
     /**
@@ -56,7 +89,7 @@ public class SimulatorConfigulation {
      * is the number of mining (hash calculation) executed per millisecond.
      */
     public static int getAverageMiningPower() {
-        return Integer.parseInt(properties.getProperty("AVERAGE_MINING_POWER"));
+        return getParameters().getAverageMiningPower();
     }
 
     /**
@@ -66,6 +99,322 @@ public class SimulatorConfigulation {
      * STDEV_OF_MINING_POWER.
      */
     public static int getStdevOfMiningPower() {
-        return Integer.parseInt(properties.getProperty("STDEV_OF_MINING_POWER"));
+        return getParameters().getStdevOfMiningPower();
+    }
+
+    /**
+     * The gzip compression level, from 0 to 9, of the file written by the named logger, or -1 to
+     * write it uncompressed. Read from COMPRESSION_LEVEL.name, e.g.
+     * COMPRESSION_LEVEL.simblock.output, falling back to COMPRESSION_LEVEL.
+     */
+    public static int getCompressionLevel(String name) {
+        return getParameters().getCompressionLevel(name);
+    }
+
+    /**
+     * The verbosity of the visualization output: none, summary, sampled or full. Read from
+     * OUTPUT_VERBOSITY, full by default.
+     */
+    public static String getOutputVerbosity() {
+        return getParameters().getOutputVerbosity();
+    }
+
+    /**
+     * The sampled visualization output traces the blocks whose id is a multiple of this
+     * interval. Read from OUTPUT_SAMPLE_INTERVAL, 10 by default.
+     */
+    public static int getOutputSampleInterval() {
+        return getParameters().getOutputSampleInterval();
+    }
+
+    /**
+     * The comma-separated ids of the nodes the sampled visualization output is restricted to, or
+     * an empty string for all nodes. Read from OUTPUT_SAMPLE_NODES.
+     */
+    public static String getOutputSampleNodes() {
+        return getParameters().getOutputSampleNodes();
+    }
+
+    /**
+     * The format of the propagation times: csv, one line of comma-separated times per block in
+     * propagation/name.csv, or binary, the columnar file propagation/name.bin that
+     * PropagationCsvConverter converts to the CSV. Read from PROPAGATION_OUTPUT, csv by default.
+     */
+    public static String getPropagationOutput() {
+        return getParameters().getPropagationOutput();
+    }
+
+    /**
+     * The percentiles of the nodes, from 1 to 100 in increasing order, for which the time blocks
+     * take to reach them is reported, per block in propagation/name-percentiles.csv and over the
+     * run in the result. Read from PROPAGATION_PERCENTILES as comma-separated integers,
+     * 50,90,100 by default.
+     */
+    public static int[] getPropagationPercentiles() {
+        return getParameters().getPropagationPercentiles();
+    }
+
+    /**
+     * The scale of the Weibull distribution of the time a churn node stays online before it
+     * leaves the network, or 0 to keep churn nodes online. (unit: millisecond) Read from
+     * CHURN_ONLINE_TIME, 0 by default.
+     */
+    public static long getChurnOnlineTime() {
+        return getParameters().getChurnOnlineTime();
+    }
+
+    /**
+     * The scale of the Weibull distribution of the time a churn node stays offline before it
+     * rejoins the network. (unit: millisecond) Read from CHURN_OFFLINE_TIME, 0 by default.
+     */
+    public static long getChurnOfflineTime() {
+        return getParameters().getChurnOfflineTime();
+    }
+
+    /**
+     * The shape of the Weibull distributions of the online and offline times of churn nodes. The
+     * times are exponentially distributed, with the scales as means, for 1; smaller shapes give
+     * the heavy-tailed sessions measured on peer-to-peer networks. Read from
+     * CHURN_SESSION_SHAPE, 1 by default.
+     */
+    public static double getChurnSessionShape() {
+        return getParameters().getChurnSessionShape();
+    }
+
+    /**
+     * The deviation of the log-normal factors scaling the upload and download bandwidths of each
+     * node from those of its region, or 0 to give every node the bandwidths of its region. Read
+     * from BANDWIDTH_DEVIATION, 0 by default.
+     */
+    public static double getBandwidthDeviation() {
+        return getParameters().getBandwidthDeviation();
+    }
+
+    /**
+     * The mean of the exponentially distributed latency of the access link of each node, added
+     * to every message the node sends or receives. (unit: millisecond) Read from ACCESS_LATENCY,
+     * 0 by default.
+     */
+    public static long getAccessLatency() {
+        return getParameters().getAccessLatency();
+    }
+
+    /**
+     * The deviation of the jitter of the access links. Each node draws its jitter once, as the
+     * absolute value of a normal draw of this deviation, and adds it to its access latency.
+     * (unit: millisecond) Read from ACCESS_JITTER, 0 by default.
+     */
+    public static double getAccessJitter() {
+        return getParameters().getAccessJitter();
+    }
+
+    /**
+     * The latency model: region, where the latency between two nodes depends on their regions,
+     * or coordinate, where every node has network coordinates and a height. Read from
+     * LATENCY_MODEL, region by default.
+     */
+    public static String getLatencyModel() {
+        return getParameters().getLatencyModel();
+    }
+
+    /**
+     * The built-in latency matrix, 2015 or 2019. Read from LATENCY_DATASET, 2019 by default.
+     */
+    public static String getLatencyDataset() {
+        return getParameters().getLatencyDataset();
+    }
+
+    /**
+     * The built-in upload and download bandwidths, 2015 or 2019. Read from BANDWIDTH_DATASET,
+     * 2019 by default.
+     */
+    public static String getBandwidthDataset() {
+        return getParameters().getBandwidthDataset();
+    }
+
+    /**
+     * The built-in region distribution, BITCOIN_2015, BITCOIN_2019, LITECOIN or DOGECOIN. Read
+     * from REGION_DATASET, BITCOIN_2019 by default.
+     */
+    public static String getRegionDataset() {
+        return getParameters().getRegionDataset();
+    }
+
+    /**
+     * The built-in degree distribution, BITCOIN_2015, LITECOIN or DOGECOIN. Read from
+     * DEGREE_DATASET, BITCOIN_2015 by default.
+     */
+    public static String getDegreeDataset() {
+        return getParameters().getDegreeDataset();
+    }
+
+    /**
+     * The path of a network dataset file replacing the built-in datasets it defines, or null.
+     * See {@link NetworkDataset#load()}. Read from NETWORK_DATASET_FILE.
+     */
+    public static String getNetworkDatasetFile() {
+        return getParameters().getNetworkDatasetFile();
+    }
+
+    /**
+     * The class name of the routing table of the nodes. Read from TABLE,
+     * simblock.node.routing.BitcoinCoreTable by default.
+     */
+    public static String getTable() {
+        return getParameters().getTable();
+    }
+
+    /**
+     * The class name of the consensus algorithm of the nodes. Read from ALGO,
+     * simblock.node.consensus.ProofOfWork by default.
+     */
+    public static String getAlgo() {
+        return getParameters().getAlgo();
+    }
+
+    /**
+     * The average number of coins a PoS minter stakes. Read from AVERAGE_COINS, 4000 by default.
+     */
+    public static int getAverageCoins() {
+        return getParameters().getAverageCoins();
+    }
+
+    /**
+     * The standard deviation of the number of coins a PoS minter stakes. Read from
+     * STDEV_OF_COINS, 2000 by default.
+     */
+    public static int getStdevOfCoins() {
+        return getParameters().getStdevOfCoins();
+    }
+
+    /**
+     * The reward a PoS minter gets for staking. Read from STAKING_REWARD, 0.01 by default.
+     */
+    public static double getStakingReward() {
+        return getParameters().getStakingReward();
+    }
+
+    /**
+     * Block size. (unit: byte) Read from BLOCK_SIZE, 535000 by default.
+     */
+    public static long getBlockSize() {
+        return getParameters().getBlockSize();
+    }
+
+    /**
+     * Compact block size. (unit: byte) Read from COMPACT_BLOCK_SIZE, 18000 by default.
+     */
+    public static long getCompactBlockSize() {
+        return getParameters().getCompactBlockSize();
+    }
+
+    /**
+     * The rate of nodes that cause churn. Read from CHURN_NODE_RATE, 0.976 by default.
+     */
+    public static float getChurnNodeRate() {
+        return getParameters().getChurnNodeRate();
+    }
+
+    /**
+     * CBR failure rate for a node that always connect network. Read from
+     * CBR_FAILURE_RATE_FOR_CONTROL_NODE, 0.13 by default.
+     */
+    public static float getCBRFailureRateForControlNode() {
+        return getParameters().getCBRFailureRateForControlNode();
+    }
+
+    /**
+     * CBR failure rate for a node that causes churn. Read from CBR_FAILURE_RATE_FOR_CHURN_NODE,
+     * 0.27 by default.
+     */
+    public static float getCBRFailureRateForChurnNode() {
+        return getParameters().getCBRFailureRateForChurnNode();
+    }
+
+    /**
+     * The distribution of data size that a control node receives when fails CBR, as fractions of
+     * the block size drawn uniformly. Read from
+     * CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CONTROL_NODE as comma-separated numbers from 0 to
+     * 1, the measured distribution of {@link SimulationConfiguration} by default.
+     */
+    public static List<Float> getCBRFailureBlockSizeDistributionForControlNode() {
+        return getParameters().getCBRFailureBlockSizeDistributionForControlNode();
+    }
+
+    /**
+     * The distribution of data size that a churn node receives when fails CBR, as fractions of
+     * the block size drawn uniformly. Read from
+     * CBR_FAILURE_BLOCK_SIZE_DISTRIBUTION_FOR_CHURN_NODE as comma-separated numbers from 0 to
+     * 1, the measured distribution of {@link SimulationConfiguration} by default.
+     */
+    public static List<Float> getCBRFailureBlockSizeDistributionForChurnNode() {
+        return getParameters().getCBRFailureBlockSizeDistributionForChurnNode();
+    }
+
+    /**
+     * The number of block uploads a node serves concurrently, sharing its bandwidth fairly. Read
+     * from UPLOAD_SLOTS, 1 by default.
+     */
+    public static int getUploadSlots() {
+        return getParameters().getUploadSlots();
+    }
+
+    /**
+     * Whether queued compact block relay requests are served ahead of full block requests. Read
+     * from PRIORITIZE_COMPACT_BLOCKS, false by default.
+     */
+    public static boolean isPrioritizeCompactBlocks() {
+        return getParameters().isPrioritizeCompactBlocks();
+    }
+
+    /**
+     * Whether concurrent uploads share the upload bandwidth of the sender and the download
+     * bandwidth of the receiver by max-min fairness, instead of only the sender bandwidth. Read
+     * from FLOW_LEVEL_NETWORK, false by default.
+     */
+    public static boolean isFlowLevelNetwork() {
+        return getParameters().isFlowLevelNetwork();
+    }
+
+    /**
+     * Whether nodes skip inv messages to peers already known to have the block. Read from
+     * INVENTORY_AWARE_RELAY, true by default.
+     */
+    public static boolean isInventoryAwareRelay() {
+        return getParameters().isInventoryAwareRelay();
+    }
+
+    /**
+     * The mean degree of the generated topologies: the degree of every node of a random regular
+     * graph, the degree of the ring lattice a Watts-Strogatz graph is rewired from, and twice the
+     * number of links each node of a Barabasi-Albert graph attaches with. Read from
+     * TOPOLOGY_DEGREE, 16 by default.
+     */
+    public static int getTopologyDegree() {
+        return getParameters().getTopologyDegree();
+    }
+
+    /**
+     * The probability each link of the ring lattice of a Watts-Strogatz graph is rewired to a
+     * random node. Read from TOPOLOGY_REWIRING_PROBABILITY, 0.1 by default.
+     */
+    public static double getTopologyRewiringProbability() {
+        return getParameters().getTopologyRewiringProbability();
+    }
+
+    /**
+     * The time between two rounds in which a PerigeeTable replaces its worst outbound neighbors.
+     * (unit: millisecond) Read from PERIGEE_ROUND_INTERVAL, 6000000 by default.
+     */
+    public static long getPerigeeRoundInterval() {
+        return getParameters().getPerigeeRoundInterval();
+    }
+
+    /**
+     * The number of outbound neighbors a PerigeeTable replaces each round. Read from
+     * PERIGEE_EVICTIONS, 2 by default.
+     */
+    public static int getPerigeeEvictions() {
+        return getParameters().getPerigeeEvictions();
     }
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+import static simblock.settings.NetworkConfiguration.REGION_COORDINATES;
+import static simblock.settings.NetworkConfiguration.REGION_HEIGHT;
+import static simblock.settings.NetworkConfiguration.REGION_SPREAD;
+import static simblock.settings.SimulationConfiguration.COORDINATE_GRID_CELL_SIZE;
+import static simblock.simulator.Main.random;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * The type Coordinate space places nodes in a two-dimensional network coordinate space with
+ * heights, as in Vivaldi: the latency between two nodes is the distance between their
+ * coordinates plus both their heights, a height standing for the access link of a node. A node
+ * only costs three floats, so the latencies of large networks are computed on the fly instead of
+ * being stored. The coordinates of a node are drawn around the centre of its region, see
+ * {@link simblock.settings.NetworkConfiguration#REGION_COORDINATES}. A uniform grid over the
+ * coordinates answers nearest node queries by visiting the cells around a node ring by ring.
+ */
+class CoordinateSpace {
+    /**
+     * The coordinates and heights of the nodes, by node index.
+     */
+    private float[] x = new float[0];
+    private float[] y = new float[0];
+    private float[] height = new float[0];
+
+    /**
+     * The grid cells, by cell key.
+     */
+    private final Map<Long, Cell> cells = new HashMap<>();
+
+    /**
+     * The bounds of the occupied cells.
+     */
+    private int minCellX = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE;
+    private int minCellY = Integer.MAX_VALUE;
+    private int maxCellY = Integer.MIN_VALUE;
+
+    /**
+     * The indexes of the nodes in a grid cell.
+     */
+    private static final class Cell {
+        private int[] nodes = new int[4];
+        private int size = 0;
+
+        private void add(int index) {
+            if (this.size == this.nodes.length) {
+                this.nodes = Arrays.copyOf(this.nodes, 2 * this.size);
+            }
+            this.nodes[this.size++] = index;
+        }
+    }
+
+    /**
+     * Draws the coordinates and height of a node and adds it to the grid.
+     *
+     * @param index  the node index, node id - 1
+     * @param region the region of the node
+     */
+    void add(int index, int region) {
+        if (index >= this.x.length) {
+            int length = Math.max(index + 1, 2 * this.x.length);
+            this.x = Arrays.copyOf(this.x, length);
+            this.y = Arrays.copyOf(this.y, length);
+            this.height = Arrays.copyOf(this.height, length);
+        }
+        double spread = REGION_SPREAD[region];
+        this.x[index] = (float) (REGION_COORDINATES[region][0] + spread * random.nextGaussian());
+        this.y[index] = (float) (REGION_COORDINATES[region][1] + spread * random.nextGaussian());
+        this.height[index] = (float) (-REGION_HEIGHT[region] * Math.log(1 - random.nextDouble()));
+
+        int cellX = toCell(this.x[index]);
+        int cellY = toCell(this.y[index]);
+        this.cells.computeIfAbsent(key(cellX, cellY), k -> new Cell()).add(index);
+        this.minCellX = Math.min(this.minCellX, cellX);
+        this.maxCellX = Math.max(this.maxCellX, cellX);
+        this.minCellY = Math.min(this.minCellY, cellY);
+        this.maxCellY = Math.max(this.maxCellY, cellY);
+    }
+
+    /**
+     * Gets the latency between two nodes predicted by their coordinates.
+     *
+     * @param from the index of the sending node
+     * @param to   the index of the receiving node
+     * @return the latency (unit: millisecond)
+     */
+    double getLatency(int from, int to) {
+        double dx = this.x[from] - this.x[to];
+        double dy = this.y[from] - this.y[to];
+        return Math.sqrt(dx * dx + dy * dy) + this.height[from] + this.height[to];
+    }
+
+    /**
+     * Finds the nodes with the lowest latency from a node. The cells are visited ring by ring
+     * around the cell of the node until no unvisited cell can hold a closer node than those
+     * found, which only reads the cells near the node.
+     *
+     * @param index  the index of the node
+     * @param count  the number of nodes to find
+     * @param filter accepts the indexes of the nodes that may be returned
+     * @return the indexes of at most count nodes other than the node, closest first
+     */
+    int[] getNearest(int index, int count, IntPredicate filter) {
+        int[] nearest = new int[count];
+        double[] latencies = new double[count];
+        int found = 0;
+        int cellX = toCell(this.x[index]);
+        int cellY = toCell(this.y[index]);
+        int maxRing = Math.max(
+                Math.max(cellX - this.minCellX, this.maxCellX - cellX),
+                Math.max(cellY - this.minCellY, this.maxCellY - cellY));
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int dx = -ring; dx <= ring; dx++) {
+                // The outer columns of the ring are full, the others only have their two ends
+                int step = Math.abs(dx) == ring ? 1 : 2 * ring;
+                for (int dy = -ring; dy <= ring; dy += step) {
+                    Cell cell = this.cells.get(key(cellX + dx, cellY + dy));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < cell.size; i++) {
+                        int other = cell.nodes[i];
+                        if (other == index || !filter.test(other)) {
+                            continue;
+                        }
+                        double latency = this.getLatency(index, other);
+                        if (found == count && latency >= latencies[count - 1]) {
+                            continue;
+                        }
+                        // Insert into the list sorted by latency, dropping the farthest if full
+                        int position = found < count ? found++ : count - 1;
+                        while (position > 0 && latencies[position - 1] > latency) {
+                            nearest[position] = nearest[position - 1];
+                            latencies[position] = latencies[position - 1];
+                            position--;
+                        }
+                        nearest[position] = other;
+                        latencies[position] = latency;
+                    }
+                }
+            }
+            // Nodes beyond this ring are at least ring cells away, plus the height of the node
+            double bound = ring * COORDINATE_GRID_CELL_SIZE + this.height[index];
+            if (found == count && latencies[count - 1] <= bound) {
+                break;
+            }
+        }
+        return found == count ? nearest : Arrays.copyOf(nearest, found);
+    }
+
+    /**
+     * Gets the grid cell of a coordinate.
+     *
+     * @param coordinate the coordinate
+     * @return the cell
+     */
+    private static int toCell(float coordinate) {
+        return (int) Math.floor(coordinate / COORDINATE_GRID_CELL_SIZE);
+    }
+
+    /**
+     * Gets the key of a grid cell.
+     *
+     * @param cellX the column of the cell
+     * @param cellY the row of the cell
+     * @return the key
+     */
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xffffffffL);
+    }
+}
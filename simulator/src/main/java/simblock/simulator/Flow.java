@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+import simblock.node.Node;
+
+/**
+ * The type Flow represents a transfer of data from one node to another at a rate that may change
+ * while the data is transmitted. Progress is accounted lazily: the remaining bits are only updated
+ * when the rate is about to change.
+ */
+public abstract class Flow {
+    /**
+     * The sending node.
+     */
+    private final Node from;
+
+    /**
+     * The receiving node.
+     */
+    private final Node to;
+
+    /**
+     * The bits not transmitted as of {@link #lastUpdate}.
+     */
+    private double remainingBits;
+
+    /**
+     * The transmission rate, in bit per millisecond.
+     */
+    private double rate;
+
+    /**
+     * The simulation time {@link #remainingBits} was last updated.
+     */
+    private long lastUpdate;
+
+    /**
+     * Instantiates a new Flow.
+     *
+     * @param from the sending node
+     * @param to   the receiving node
+     * @param bits the number of bits to be transmitted
+     * @param now  the current simulation time
+     */
+    protected Flow(Node from, Node to, double bits, long now) {
+        this.from = from;
+        this.to = to;
+        this.remainingBits = bits;
+        this.lastUpdate = now;
+    }
+
+    /**
+     * Gets the sending node.
+     *
+     * @return the <em>from</em> node
+     */
+    public Node getFrom() {
+        return this.from;
+    }
+
+    /**
+     * Gets the receiving node.
+     *
+     * @return the <em>to</em> node
+     */
+    public Node getTo() {
+        return this.to;
+    }
+
+    /**
+     * Gets the transmission rate.
+     *
+     * @return the rate in bit per millisecond
+     */
+    public double getRate() {
+        return this.rate;
+    }
+
+    /**
+     * Sets the transmission rate. The progress must have been accounted with
+     * {@link #advance(long)} first.
+     *
+     * @param rate the rate in bit per millisecond
+     */
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * Accounts for the bits transmitted since the last update.
+     *
+     * @param now the current simulation time
+     * @return true if the flow is still transmitting
+     */
+    public boolean advance(long now) {
+        this.remainingBits -= this.rate * (now - this.lastUpdate);
+        this.lastUpdate = now;
+        if (this.remainingBits > 0) {
+            return true;
+        }
+        this.remainingBits = 0;
+        return false;
+    }
+
+    /**
+     * Marks the flow as done transmitting, dropping what rounding left of the remaining bits.
+     *
+     * @param now the current simulation time
+     */
+    public void endTransmission(long now) {
+        this.remainingBits = 0;
+        this.lastUpdate = now;
+    }
+
+    /**
+     * Tests if bits remain to be transmitted as of the last update.
+     *
+     * @return true if the flow is still transmitting
+     */
+    public boolean isTransmitting() {
+        return this.remainingBits > 0;
+    }
+
+    /**
+     * Gets the time needed to transmit the remaining bits at the current rate.
+     *
+     * @return the transmission time in milliseconds
+     */
+    public long getRemainingTransmissionTime() {
+        return (long) Math.ceil(this.remainingBits / this.rate);
+    }
+
+    /**
+     * Called when the network changes the rate of the flow, after progress has been accounted.
+     *
+     * @param now the current simulation time
+     */
+    protected abstract void onRateChanged(long now);
+}
@@ -16,16 +16,24 @@
 
 package simblock.simulator;
 
-import static simblock.settings.SimulatorConfigulation.readProperties;
+import static simblock.logger.OutputTrace.isSummaryTraced;
+import static simblock.node.routing.OverlayGraph.getOverlayGraph;
+import static simblock.settings.SimulationConfiguration.TASK_PROFILING;
+import static simblock.settings.SimulatorConfigulation.getAlgo;
 import static simblock.settings.SimulatorConfigulation.getAverageMiningPower;
 import static simblock.settings.SimulatorConfigulation.getCBRUsageRate;
+import static simblock.settings.SimulatorConfigulation.getChurnNodeRate;
+import static simblock.settings.SimulatorConfigulation.getCompressionLevel;
 import static simblock.settings.SimulatorConfigulation.getEndBlockHeight;
 import static simblock.settings.SimulatorConfigulation.getInterval;
 import static simblock.settings.SimulatorConfigulation.getNumOfNodes;
+import static simblock.settings.SimulatorConfigulation.getParameters;
+import static simblock.settings.SimulatorConfigulation.getPropagationOutput;
 import static simblock.settings.SimulatorConfigulation.getStdevOfMiningPower;
-import static simblock.settings.SimulationConfiguration.ALGO;
-import static simblock.settings.SimulationConfiguration.TABLE;
-import static simblock.settings.SimulationConfiguration.CHURN_NODE_RATE;
+import static simblock.settings.SimulatorConfigulation.getTable;
+import static simblock.settings.SimulatorConfigulation.readProperties;
+import static simblock.settings.SimulatorConfigulation.setProperty;
+import static simblock.simulator.Network.getDataset;
 import static simblock.simulator.Network.getDegreeDistribution;
 import static simblock.simulator.Network.getRegionDistribution;
 import static simblock.simulator.Network.printRegion;
@@ -35,14 +43,15 @@ import static simblock.simulator.Simulator.printAllPropagation;
 import static simblock.simulator.Simulator.printResult;
 import static simblock.simulator.Simulator.setTargetInterval;
 import static simblock.simulator.Timer.getCurrentTime;
+import static simblock.simulator.Timer.getProcessedTaskCount;
 import static simblock.simulator.Timer.getTask;
 import static simblock.simulator.Timer.runTask;
+import static simblock.task.ChurnTask.startChurn;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
@@ -51,10 +60,17 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
 import simblock.block.Block;
+import simblock.jfr.EventLoopEvent;
+import simblock.jfr.GraphDumpEvent;
+import simblock.jfr.NetworkConstructionEvent;
 import simblock.node.Node;
+import simblock.node.routing.OverlayGraph;
 import simblock.task.AbstractMintingTask;
 import simblock.logger.BasicLogger;
+import simblock.logger.PropagationWriter;
 
 /**
  * The type Main represents the entry point.
@@ -69,6 +85,10 @@ public class Main {
      * The initial simulation time.
      */
     public static long simulationTime = 0;
+    /**
+     * The wall time spent running the event loop, in milliseconds.
+     */
+    public static long eventLoopTime = 0;
     /**
      * Path to config file.
      */
@@ -93,13 +113,34 @@ public class Main {
     private static String outputFileName = "output";
     private static String propagationFileName = "propagation";
     private static String resultFileName = "result";
+    private static String scenarioFileName = null;
+    /**
+     * The KEY=VALUE properties given with -set, overriding those of the properties file.
+     */
+    private static final List<String> propertyOverrides = new ArrayList<>();
     private static String propertiesFilePath = (PROPERTIES_FILE_URI + "initial.properties").toString()
             .replace("file:", "");
 
     static BasicLogger logger = BasicLogger.getLogger("simblock.output");
     static BasicLogger propagationLogger = BasicLogger.getLogger("simblock.propagation");
+    static BasicLogger percentileLogger = BasicLogger.getLogger("simblock.percentiles");
     static BasicLogger resultLogger = BasicLogger.getLogger("simblock.result");
 
+    /**
+     * The writer of the binary propagation file, if PROPAGATION_OUTPUT is binary.
+     */
+    private static PropagationWriter propagationWriter = null;
+
+    /**
+     * The size of the buffer the graph dumps are formatted into, in chars.
+     */
+    private static final int GRAPH_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The longest line of a graph dump: two node ids, a space and a line separator.
+     */
+    private static final int GRAPH_LINE_LENGTH = 2 * 11 + 1 + 2;
+
     /* Parse command line option */
     private static void parseOption(String[] args) {
         if (args.length == 0) {
@@ -109,11 +150,36 @@ public class Main {
             switch (args[i]) {
                 case "-properties":
                     if (i + 1 < args.length) {
-                        propertiesFilePath = (PROPERTIES_FILE_URI + args[i + 1] + ".properties").toString()
-                                .replace("file:", "");
-                        // outputFileName = args[i + 1];
-                        propagationFileName = args[i + 1];
-                        resultFileName = args[i + 1];
+                        String name = args[i + 1];
+                        if (name.endsWith(".properties")) {
+                            // A path to a properties file outside of the settings package
+                            propertiesFilePath = name;
+                            name = new File(name).getName().replace(".properties", "");
+                        } else {
+                            propertiesFilePath = (PROPERTIES_FILE_URI + name + ".properties").toString()
+                                    .replace("file:", "");
+                        }
+                        // outputFileName = name;
+                        propagationFileName = name;
+                        resultFileName = name;
+                        i++;
+                    }
+                    break;
+                case "-scenario":
+                    if (i + 1 < args.length) {
+                        scenarioFileName = args[i + 1];
+                        i++;
+                    }
+                    break;
+                case "-set":
+                    if (i + 1 < args.length) {
+                        propertyOverrides.add(args[i + 1]);
+                        i++;
+                    }
+                    break;
+                case "-seed":
+                    if (i + 1 < args.length) {
+                        random.setSeed(Long.parseLong(args[i + 1]));
                         i++;
                     }
                     break;
@@ -123,13 +189,37 @@ public class Main {
         }
     }
 
+    /**
+     * Gets a scenario file. A name that is not an existing path is looked up in the directory of
+     * simulator.conf.
+     *
+     * @param name the path or name of the scenario file
+     * @return the scenario file
+     */
+    private static File getScenarioFile(String name) {
+        File file = new File(name);
+        return file.exists() ? file : new File(CONF_FILE_URI.resolve(name));
+    }
+
     /* Setup global logger */
     private static void setupLogger() {
         try {
-            logger.setFileWriter(new File(OUT_FILE_URI.resolve("./visualize/" + outputFileName + ".json")));
-            propagationLogger
-                    .setFileWriter(
-                            new File(OUT_FILE_URI.resolve("./propagation/" + propagationFileName + ".csv")));
+            if (isSummaryTraced()) {
+                logger.setFileWriter(
+                        new File(OUT_FILE_URI.resolve("./visualize/" + outputFileName + ".json")));
+            }
+            String propagationPath = "./propagation/" + propagationFileName;
+            if (getPropagationOutput().equals("binary")) {
+                propagationWriter = new PropagationWriter(
+                        new File(OUT_FILE_URI.resolve(propagationPath + ".bin")), getNumOfNodes());
+                Simulator.setPropagationWriter(propagationWriter);
+            } else {
+                propagationLogger.setFileWriter(
+                        new File(OUT_FILE_URI.resolve(propagationPath + ".csv")));
+            }
+            percentileLogger.setFileWriter(
+                    new File(OUT_FILE_URI.resolve(propagationPath + "-percentiles.csv")));
+            Simulator.printBlockPercentileHeader();
 
             resultLogger.setFileWriter(new File(OUT_FILE_URI.resolve("./result/" + resultFileName + ".json")));
         } catch (IOException e) {
@@ -145,13 +235,31 @@ public class Main {
     public static void main(String[] args) {
         parseOption(args);
         readProperties(propertiesFilePath);
+        try {
+            for (String override : propertyOverrides) {
+                int separator = override.indexOf('=');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("Expected KEY=VALUE after -set: " + override);
+                }
+                setProperty(override.substring(0, separator), override.substring(separator + 1));
+            }
+            getParameters();
+            // Load the network data now, so that invalid data is reported as invalid properties
+            getDataset();
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            System.err.println(e.getMessage());
+            // A non-zero status lets scripts running sweeps detect the invalid run
+            System.exit(2);
+        }
         setupLogger();
 
         final long start = System.currentTimeMillis();
         setTargetInterval(getInterval());
 
         // start json format
-        logger.log("[");
+        if (isSummaryTraced()) {
+            logger.getJsonWriter(false).beginArray();
+        }
 
         // Log regions
         BasicLogger staticLogger = BasicLogger.getLogger("simblock.static");
@@ -163,16 +271,42 @@ public class Main {
             e.printStackTrace();
         }
 
-        // Setup network
-        constructNetworkWithAllNodes(getNumOfNodes());
+        // Setup network, or let the nodes join as the scenario says
+        if (scenarioFileName == null) {
+            constructNetworkWithAllNodes(getNumOfNodes());
+        } else {
+            try {
+                new ScenarioReader(getScenarioFile(scenarioFileName)).start();
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(2);
+            }
+        }
+
+        // Watch the progress over JMX
+        SimulatorMetrics.register();
 
         // Simulate network
         simulationMain();
 
+        if (TASK_PROFILING) {
+            System.out.print(TaskProfiler.getTableText());
+        }
+
         // Print propagation information about all blocks
         printAllPropagation();
+        if (propagationWriter != null) {
+            try {
+                propagationWriter.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
 
         printResult();
+        resultLogger.close();
+        propagationLogger.close();
+        percentileLogger.close();
 
         // TODO logger
         System.out.println();
@@ -241,14 +375,16 @@ public class Main {
             e.printStackTrace();
         }
 
-        logger.log("{");
-        logger.log("\"kind\":\"simulation-end\",");
-        logger.log("\"content\":{");
-        logger.log("\"timestamp\":" + getCurrentTime());
-        logger.log("}");
-        logger.log("}");
-        // end json format
-        logger.log("]");
+        if (isSummaryTraced()) {
+            logger.getJsonWriter(false).beginObject()
+                    .name("kind").value("simulation-end")
+                    .name("content").beginObject()
+                    .name("timestamp").value(getCurrentTime())
+                    .endObject()
+                    .endObject()
+                    // end json format
+                    .endArray();
+        }
         logger.close();
 
         long end = System.currentTimeMillis();
@@ -259,6 +395,10 @@ public class Main {
 
     /* Main loop of the simulation */
     public static void simulationMain() {
+        final long start = System.currentTimeMillis();
+        final long startTaskCount = getProcessedTaskCount();
+        EventLoopEvent event = new EventLoopEvent();
+        event.begin();
         // Initial block height, we stop at END_BLOCK_HEIGHT
         int currentBlockHeight = 1;
 
@@ -281,20 +421,17 @@ public class Main {
             }
             // Execute task
             runTask();
+            SimulatorMetrics.update();
+        }
+        SimulatorMetrics.publish();
+        eventLoopTime += System.currentTimeMillis() - start;
+        if (event.shouldCommit()) {
+            event.events = getProcessedTaskCount() - startTaskCount;
+            event.simulatedTime = getCurrentTime();
+            event.commit();
         }
     }
 
-    // TODO 以下の初期生成はシナリオを読み込むようにする予定
-    // ノードを参加させるタスクを作る(ノードの参加と，リンクの貼り始めるタスクは分ける)
-    // シナリオファイルで上の参加タスクをTimer入れていく．
-
-    // TRANSLATED FROM ABOVE STATEMENT
-    // The following initial generation will load the scenario
-    // Create a task to join the node (separate the task of joining the node and the
-    // task of
-    // starting to paste the link)
-    // Add the above participating tasks with a timer in the scenario file.
-
     /**
      * Populate the list using the distribution.
      *
@@ -355,6 +492,16 @@ public class Main {
      * @return the number of hash calculations executed per millisecond.
      */
     public static int genMiningPower() {
+        return genMiningPower(random);
+    }
+
+    /**
+     * Generates a random mining power expressed as Hash Rate from the given random stream.
+     *
+     * @param random the random stream
+     * @return the number of hash calculations executed per millisecond.
+     */
+    public static int genMiningPower(Random random) {
         double r = random.nextGaussian();
 
         return Math.max((int) (r * getStdevOfMiningPower() + getAverageMiningPower()), 1);
@@ -366,6 +513,8 @@ public class Main {
      * @param numNodes the num nodes
      */
     public static void constructNetworkWithAllNodes(int numNodes) {
+        NetworkConstructionEvent event = new NetworkConstructionEvent();
+        event.begin();
 
         // Random distribution of nodes per region
         double[] regionDistribution = getRegionDistribution();
@@ -379,35 +528,63 @@ public class Main {
         List<Boolean> useCBRNodes = makeRandomList(getCBRUsageRate());
 
         // List of churn nodes.
-        List<Boolean> churnNodes = makeRandomList(CHURN_NODE_RATE);
-
-        for (int id = 1; id <= numNodes; id++) {
-            // Each node gets assigned a region, its degree, mining power, routing table and
-            // consensus algorithm
-            Node node = new Node(
-                    id, degreeList.get(id - 1) + 1, regionList.get(id - 1), genMiningPower(), TABLE,
-                    ALGO, useCBRNodes.get(id - 1), churnNodes.get(id - 1));
+        List<Boolean> churnNodes = makeRandomList(getChurnNodeRate());
+
+        // Each node draws its mining power and neighbors from its own random stream, split from
+        // the seeded one, so the nodes can be generated in parallel with the same result on any
+        // number of threads
+        SplittableRandom seeds = new SplittableRandom(random.nextLong());
+        Random[] nodeRandoms = new Random[numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            nodeRandoms[i] = new Random(seeds.split().nextLong());
+        }
+
+        // Each node gets assigned a region, its degree, mining power, routing table and
+        // consensus algorithm
+        String table = getTable();
+        String algo = getAlgo();
+        Node[] nodes = new Node[numNodes];
+        IntStream.range(0, numNodes).parallel().forEach(i -> nodes[i] = new Node(
+                i + 1, degreeList.get(i) + 1, regionList.get(i), genMiningPower(nodeRandoms[i]),
+                table, algo, useCBRNodes.get(i), churnNodes.get(i)));
+
+        for (Node node : nodes) {
             // Add the node to the list of simulated nodes
             addNode(node);
 
-            logger.log("{");
-            logger.log("\"kind\":\"add-node\",");
-            logger.log("\"content\":{");
-            logger.log("\"timestamp\":0,");
-            logger.log("\"node-id\":" + id + ",");
-            logger.log("\"region-id\":" + regionList.get(id - 1));
-            logger.log("}");
-            logger.log("},");
+            if (isSummaryTraced()) {
+                logger.getJsonWriter(false).beginObject()
+                        .name("kind").value("add-node")
+                        .name("content").beginObject()
+                        .name("timestamp").value(0)
+                        .name("node-id").value(node.getNodeID())
+                        .name("region-id").value(node.getRegion())
+                        .endObject()
+                        .endObject();
+            }
         }
 
-        // Link newly generated nodes
-        for (Node node : getSimulatedNodes()) {
-            node.joinNetwork();
+        // Link newly generated nodes: the candidates are drawn in parallel, then the links are
+        // made in the order of the node ids
+        int[][] candidates = new int[numNodes][];
+        IntStream.range(0, numNodes).parallel().forEach(
+                i -> candidates[i] = nodes[i].getRoutingTable().drawCandidates(nodeRandoms[i]));
+        for (int i = 0; i < numNodes; i++) {
+            nodes[i].joinNetwork(candidates[i]);
         }
 
         // Designates a random node (nodes in list are randomized) to mint the genesis
         // block
         getSimulatedNodes().get(0).genesisBlock();
+
+        for (Node node : getSimulatedNodes()) {
+            startChurn(node);
+        }
+
+        if (event.shouldCommit()) {
+            event.numOfNodes = numNodes;
+            event.commit();
+        }
     }
 
     /**
@@ -423,23 +600,41 @@ public class Main {
      */
     // TODO use logger
     public static void writeGraph(int blockHeight) {
+        GraphDumpEvent event = new GraphDumpEvent();
+        event.begin();
         try {
-            FileWriter fw = new FileWriter(
-                    new File(OUT_FILE_URI.resolve("./graph/" + blockHeight + ".txt")), false);
-            PrintWriter pw = new PrintWriter(new BufferedWriter(fw));
-
-            for (int index = 1; index <= getSimulatedNodes().size(); index++) {
-                Node node = getSimulatedNodes().get(index - 1);
-                for (int i = 0; i < node.getNeighbors().size(); i++) {
-                    Node neighbor = node.getNeighbors().get(i);
-                    pw.println(node.getNodeID() + " " + neighbor.getNodeID());
+            PrintWriter pw = BasicLogger.newFileWriter(
+                    new File(OUT_FILE_URI.resolve("./graph/" + blockHeight + ".txt")),
+                    getCompressionLevel("simblock.graph"));
+
+            OverlayGraph overlay = getOverlayGraph();
+            String lineSeparator = System.lineSeparator();
+            // Lines are formatted into a fixed buffer and written a buffer at a time
+            StringBuilder lines = new StringBuilder(GRAPH_BUFFER_SIZE);
+            char[] buffer = new char[GRAPH_BUFFER_SIZE];
+            for (int node = 0; node < overlay.getNumOfNodes(); node++) {
+                for (int i = overlay.getStart(node); i < overlay.getEnd(node); i++) {
+                    lines.append(node + 1).append(' ').append(overlay.getNeighbor(i) + 1)
+                            .append(lineSeparator);
+                    if (lines.length() > GRAPH_BUFFER_SIZE - GRAPH_LINE_LENGTH) {
+                        lines.getChars(0, lines.length(), buffer, 0);
+                        pw.write(buffer, 0, lines.length());
+                        lines.setLength(0);
+                    }
                 }
             }
+            lines.getChars(0, lines.length(), buffer, 0);
+            pw.write(buffer, 0, lines.length());
             pw.close();
 
         } catch (IOException ex) {
             ex.printStackTrace();
         }
+        if (event.shouldCommit()) {
+            event.height = blockHeight;
+            event.simulatedTime = getCurrentTime();
+            event.commit();
+        }
     }
 
 }
@@ -16,17 +16,30 @@
 
 package simblock.simulator;
 
-import static simblock.settings.NetworkConfiguration.DEGREE_DISTRIBUTION;
-import static simblock.settings.NetworkConfiguration.DOWNLOAD_BANDWIDTH;
-import static simblock.settings.NetworkConfiguration.LATENCY;
-import static simblock.settings.NetworkConfiguration.REGION_DISTRIBUTION;
-import static simblock.settings.NetworkConfiguration.REGION_LIST;
-import static simblock.settings.NetworkConfiguration.UPLOAD_BANDWIDTH;
+import static simblock.settings.NetworkConfiguration.REGION_COORDINATES;
+import static simblock.settings.SimulatorConfigulation.getAccessJitter;
+import static simblock.settings.SimulatorConfigulation.getAccessLatency;
+import static simblock.settings.SimulatorConfigulation.getBandwidthDeviation;
+import static simblock.settings.SimulatorConfigulation.getLatencyModel;
 import static simblock.simulator.Main.random;
+import static simblock.simulator.Simulator.getSimulatedNodes;
 
+import static simblock.simulator.Timer.getCurrentTime;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import simblock.settings.NetworkConfiguration;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToDoubleBiFunction;
+import simblock.settings.NetworkDataset;
 import simblock.logger.BasicLogger;
+import simblock.logger.JsonWriter;
+import simblock.node.Node;
 
 /**
  * The type Network represents a network split in regions, each node belonging
@@ -39,6 +52,239 @@ import simblock.logger.BasicLogger;
 // array mean
 public class Network {
 
+    /**
+     * The flows being transmitted, by sending node.
+     */
+    private static final Map<Node, List<Flow>> uploads = new HashMap<>();
+
+    /**
+     * The flows being transmitted, by receiving node.
+     */
+    private static final Map<Node, List<Flow>> downloads = new HashMap<>();
+
+    /**
+     * The network data of the run, loaded on first use.
+     */
+    private static NetworkDataset dataset = null;
+
+    /**
+     * The coordinates of the nodes when LATENCY_MODEL is coordinate, else null.
+     */
+    private static CoordinateSpace coordinates = null;
+
+    /**
+     * The lowest latency predicted by the coordinate latency model, which the latency
+     * distribution requires to be above 5 milliseconds. (unit: millisecond)
+     */
+    private static final double MIN_COORDINATE_LATENCY = 6;
+
+    /**
+     * The mean latency between two nodes, before their access links, of the latency model
+     * selected by LATENCY_MODEL. The model is resolved when the network data is loaded, so that
+     * the latency of a message is computed without testing it.
+     */
+    private static ToDoubleBiFunction<Node, Node> meanLatency = null;
+
+    /**
+     * Gets the network data of the run, loading the data selected by the properties the first
+     * time. Nodes can only be added once it is loaded.
+     *
+     * @return the network data
+     * @throws IllegalArgumentException if the data is invalid or does not fit the latency model
+     * @throws java.io.UncheckedIOException if the network dataset file cannot be read
+     */
+    public static NetworkDataset getDataset() {
+        if (dataset == null) {
+            NetworkDataset loaded = NetworkDataset.load();
+            checkLatencyModel(loaded);
+            dataset = loaded;
+            resetLatencyModel();
+        }
+        return dataset;
+    }
+
+    /**
+     * Resolves the latency model selected by LATENCY_MODEL, with an empty coordinate space for
+     * the coordinate model.
+     */
+    private static void resetLatencyModel() {
+        if (getLatencyModel().equals("coordinate")) {
+            coordinates = new CoordinateSpace();
+            meanLatency = (from, to) -> Math.max(MIN_COORDINATE_LATENCY,
+                    coordinates.getLatency(from.getNodeID() - 1, to.getNodeID() - 1));
+        } else {
+            coordinates = null;
+            meanLatency = (from, to) -> dataset.getLatency(from.getRegion(), to.getRegion());
+        }
+    }
+
+    /**
+     * Forgets the nodes and their flows, when the list of simulated nodes is cleared. The latency
+     * model is resolved again from LATENCY_MODEL, with an empty coordinate space; the network
+     * data is kept.
+     *
+     * @throws IllegalArgumentException if the latency model does not fit the network data
+     */
+    public static void reset() {
+        uploads.clear();
+        downloads.clear();
+        if (dataset != null) {
+            checkLatencyModel(dataset);
+            resetLatencyModel();
+        }
+    }
+
+    /**
+     * Checks that network data can be used with the latency model selected by LATENCY_MODEL.
+     *
+     * @param networkDataset the network data
+     * @throws IllegalArgumentException if the latency model is unknown or does not fit the data
+     */
+    private static void checkLatencyModel(NetworkDataset networkDataset) {
+        switch (getLatencyModel()) {
+            case "region":
+                break;
+            case "coordinate":
+                if (networkDataset.getRegions().size() != REGION_COORDINATES.length) {
+                    throw new IllegalArgumentException(
+                            "The coordinate latency model requires the built-in regions");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown LATENCY_MODEL " + getLatencyModel());
+        }
+    }
+
+    /**
+     * The upload bandwidth of each node, by node id - 1. (unit: bit per second)
+     */
+    private static long[] uploadBandwidth = new long[0];
+
+    /**
+     * The download bandwidth of each node, by node id - 1. (unit: bit per second)
+     */
+    private static long[] downloadBandwidth = new long[0];
+
+    /**
+     * The delay the access link of each node adds to every message it sends or receives, its
+     * latency plus its jitter, by node id - 1. (unit: millisecond)
+     */
+    private static int[] accessDelay = new int[0];
+
+    /**
+     * Draws the link profile of a node. Its upload and download bandwidths are those of its
+     * region scaled by log-normal factors of mean 1 and deviation BANDWIDTH_DEVIATION. The delay
+     * of its access link, added to every message it sends or receives, is its latency,
+     * exponentially distributed with mean ACCESS_LATENCY, plus its jitter, the absolute value of
+     * a normal draw of deviation ACCESS_JITTER. Everything is drawn here, so that messages draw
+     * no random number for the access links. When all are 0, the default, a node gets the
+     * bandwidths of its region and no access delay, and no random number is drawn.
+     *
+     * @param node the node
+     */
+    public static void sampleNodeProfile(Node node) {
+        int index = node.getNodeID() - 1;
+        if (index >= uploadBandwidth.length) {
+            int length = Math.max(index + 1, 2 * uploadBandwidth.length);
+            uploadBandwidth = Arrays.copyOf(uploadBandwidth, length);
+            downloadBandwidth = Arrays.copyOf(downloadBandwidth, length);
+            accessDelay = Arrays.copyOf(accessDelay, length);
+        }
+        double deviation = getBandwidthDeviation();
+        double uploadFactor = 1;
+        double downloadFactor = 1;
+        if (deviation > 0) {
+            // Shifts the log of the factors so that their mean is 1
+            double shift = deviation * deviation / 2;
+            uploadFactor = Math.exp(deviation * random.nextGaussian() - shift);
+            downloadFactor = Math.exp(deviation * random.nextGaussian() - shift);
+        }
+        int region = node.getRegion();
+        NetworkDataset networkDataset = getDataset();
+        uploadBandwidth[index] = (long) (networkDataset.getUploadBandwidth(region) * uploadFactor);
+        downloadBandwidth[index] =
+                (long) (networkDataset.getDownloadBandwidth(region) * downloadFactor);
+        if (coordinates != null) {
+            coordinates.add(index, node.getRegion());
+        }
+        long meanLatency = getAccessLatency();
+        long latency = meanLatency > 0
+                ? Math.round(-meanLatency * Math.log(1 - random.nextDouble())) : 0;
+        double jitterDeviation = getAccessJitter();
+        long jitter = jitterDeviation > 0
+                ? Math.round(Math.abs(jitterDeviation * random.nextGaussian())) : 0;
+        accessDelay[index] = (int) (latency + jitter);
+    }
+
+    /**
+     * Gets the upload bandwidth of a node.
+     *
+     * @param node the node
+     * @return the upload bandwidth (unit: bit per second)
+     */
+    public static long getUploadBandwidth(Node node) {
+        return uploadBandwidth[node.getNodeID() - 1];
+    }
+
+    /**
+     * Gets the download bandwidth of a node.
+     *
+     * @param node the node
+     * @return the download bandwidth (unit: bit per second)
+     */
+    public static long getDownloadBandwidth(Node node) {
+        return downloadBandwidth[node.getNodeID() - 1];
+    }
+
+    /**
+     * Gets the latency of a message between two nodes: a draw around the mean latency between
+     * them in the latency model plus the delays of their access links.
+     *
+     * @param from the sending node
+     * @param to   the receiving node
+     * @return the latency (unit: millisecond)
+     */
+    public static long getLatency(Node from, Node to) {
+        return sampleLatency(meanLatency.applyAsDouble(from, to))
+                + accessDelay[from.getNodeID() - 1] + accessDelay[to.getNodeID() - 1];
+    }
+
+    /**
+     * Gets the online nodes with the lowest latency from a node in the coordinate latency model.
+     * Only the nodes near the node in the coordinate space are looked at.
+     *
+     * @param node  the node
+     * @param count the number of nodes to find
+     * @return at most count online nodes other than the node, closest first
+     * @throws IllegalStateException if the coordinate latency model is not used
+     */
+    public static List<Node> getNearbyNodes(Node node, int count) {
+        if (coordinates == null) {
+            throw new IllegalStateException("Nearby nodes require LATENCY_MODEL=coordinate");
+        }
+        List<Node> nodes = getSimulatedNodes();
+        int[] nearest = coordinates.getNearest(
+                node.getNodeID() - 1, count, index -> nodes.get(index).isOnline());
+        List<Node> nearby = new ArrayList<>(nearest.length);
+        for (int index : nearest) {
+            nearby.add(nodes.get(index));
+        }
+        return nearby;
+    }
+
+    /**
+     * Gets the bandwidth between two nodes, the minimum between the upload bandwidth of the
+     * sending node and the download bandwidth of the receiving node.
+     *
+     * @param from the sending node
+     * @param to   the receiving node
+     * @return the bandwidth (unit: bit per second)
+     */
+    public static long getBandwidth(Node from, Node to) {
+        return Math.min(
+                uploadBandwidth[from.getNodeID() - 1], downloadBandwidth[to.getNodeID() - 1]);
+    }
+
     /**
      * Gets latency according with 20% variance pallet distribution.
      *
@@ -47,7 +293,16 @@ public class Network {
      * @return the calculated latency
      */
     public static final long getLatency(int from, int to) {
-        long mean = LATENCY[from][to];
+        return sampleLatency(getDataset().getLatency(from, to));
+    }
+
+    /**
+     * Samples a latency from the Pareto distribution of the provided mean.
+     *
+     * @param mean the mean, above 5 milliseconds
+     * @return the latency
+     */
+    private static long sampleLatency(double mean) {
         double shape = 0.2 * mean;
         double scale = mean - 5;
         return Math.round(scale / Math.pow(random.nextDouble(), 1.0 / shape));
@@ -58,24 +313,226 @@ public class Network {
      * download
      * bandwidth.
      *
-     * @param from the from index in the
-     *             {@link NetworkConfiguration#UPLOAD_BANDWIDTH} array.
-     * @param to   the to index in the {@link NetworkConfiguration#UPLOAD_BANDWIDTH}
-     *             array.
+     * @param from the region of the sender
+     * @param to   the region of the receiver
      * @return the bandwidth
      */
 
     public static final long getBandwidth(int from, int to) {
-        return Math.min(UPLOAD_BANDWIDTH[from], DOWNLOAD_BANDWIDTH[to]);
+        NetworkDataset networkDataset = getDataset();
+        return Math.min(
+                networkDataset.getUploadBandwidth(from), networkDataset.getDownloadBandwidth(to));
+    }
+
+    /**
+     * Starts a flow in the flow-level network model. The rates of the flows sharing a link with
+     * it, directly or transitively, are recomputed by max-min fairness; other flows keep their
+     * rates. The rate of the new flow is set before returning, and
+     * {@link Flow#onRateChanged(long)} is called for every other flow whose rate changes.
+     *
+     * @param flow the new flow
+     */
+    public static void startFlow(Flow flow) {
+        uploads.computeIfAbsent(flow.getFrom(), k -> new ArrayList<>()).add(flow);
+        downloads.computeIfAbsent(flow.getTo(), k -> new ArrayList<>()).add(flow);
+        allocate(getComponent(flow.getFrom(), new HashSet<>()), getCurrentTime(), flow);
+    }
+
+    /**
+     * Removes a flow from the flow-level network model once it is done transmitting, or aborted,
+     * and hands its capacity to the flows that shared a link with it. Only the flows still
+     * connected to its sender or receiver are recomputed.
+     *
+     * @param flow the flow
+     */
+    public static void finishFlow(Flow flow) {
+        remove(uploads, flow.getFrom(), flow);
+        remove(downloads, flow.getTo(), flow);
+        long now = getCurrentTime();
+        Set<Node> visited = new HashSet<>();
+        allocate(getComponent(flow.getFrom(), visited), now, null);
+        if (!visited.contains(flow.getTo())) {
+            // Removing the flow may have split its component
+            allocate(getComponent(flow.getTo(), visited), now, null);
+        }
+    }
+
+    /**
+     * Removes a flow from the flow list of a node.
+     *
+     * @param flows the flows by node
+     * @param node  the node
+     * @param flow  the flow
+     */
+    private static void remove(Map<Node, List<Flow>> flows, Node node, Flow flow) {
+        List<Flow> list = flows.get(node);
+        if (list != null) {
+            list.remove(flow);
+            if (list.isEmpty()) {
+                flows.remove(node);
+            }
+        }
+    }
+
+    /**
+     * Collects the flows connected to a node through shared uplinks and downlinks.
+     *
+     * @param node    the node
+     * @param visited the nodes already visited, updated with the nodes of the component
+     * @return the flows of the component
+     */
+    private static List<Flow> getComponent(Node node, Set<Node> visited) {
+        List<Flow> component = new ArrayList<>();
+        ArrayDeque<Node> pending = new ArrayDeque<>();
+        visited.add(node);
+        pending.add(node);
+        while (!pending.isEmpty()) {
+            Node current = pending.poll();
+            for (Flow flow : uploads.getOrDefault(current, List.of())) {
+                // Each flow is collected once, from its sender
+                component.add(flow);
+                if (visited.add(flow.getTo())) {
+                    pending.add(flow.getTo());
+                }
+            }
+            for (Flow flow : downloads.getOrDefault(current, List.of())) {
+                if (visited.add(flow.getFrom())) {
+                    pending.add(flow.getFrom());
+                }
+            }
+        }
+        return component;
+    }
+
+    /**
+     * A link capacity shared by flows: the uplink of a sender or the downlink of a receiver.
+     */
+    private static final class Link {
+        /**
+         * The capacity not yet allocated, in bit per millisecond.
+         */
+        private double capacity;
+
+        /**
+         * The number of flows using the link whose rate is not fixed yet.
+         */
+        private int users = 0;
+
+        /**
+         * Instantiates a new Link.
+         *
+         * @param capacity the capacity in bit per millisecond
+         */
+        private Link(double capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * Assigns max-min fair rates to the flows of a component by progressive filling: the most
+     * constrained link is repeatedly saturated, fixing the rate of its flows.
+     *
+     * @param component the flows of the component
+     * @param now       the current simulation time
+     * @param started   the flow just started, not notified of its rate, or null
+     */
+    private static void allocate(List<Flow> component, long now, Flow started) {
+        List<Flow> flows = new ArrayList<>(component.size());
+        for (Flow flow : component) {
+            // Flows whose last bit is sent at this instant no longer use capacity
+            if (flow == started || flow.advance(now)) {
+                flows.add(flow);
+            }
+        }
+        int count = flows.size();
+        // Insertion order keeps the choice between equally constrained links reproducible
+        Map<Node, Link> uplinks = new LinkedHashMap<>();
+        Map<Node, Link> downlinks = new LinkedHashMap<>();
+        Link[] uplink = new Link[count];
+        Link[] downlink = new Link[count];
+        for (int i = 0; i < count; i++) {
+            Flow flow = flows.get(i);
+            uplink[i] = uplinks.computeIfAbsent(flow.getFrom(),
+                    n -> new Link(getUploadBandwidth(n) / 1000.0));
+            downlink[i] = downlinks.computeIfAbsent(flow.getTo(),
+                    n -> new Link(getDownloadBandwidth(n) / 1000.0));
+            uplink[i].users++;
+            downlink[i].users++;
+        }
+        List<Link> links = new ArrayList<>(uplinks.values());
+        links.addAll(downlinks.values());
+
+        double[] rates = new double[count];
+        boolean[] fixed = new boolean[count];
+        for (int remaining = count; remaining > 0; ) {
+            Link bottleneck = null;
+            double share = Double.MAX_VALUE;
+            for (Link link : links) {
+                if (link.users > 0 && link.capacity / link.users < share) {
+                    bottleneck = link;
+                    share = link.capacity / link.users;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                if (!fixed[i] && (uplink[i] == bottleneck || downlink[i] == bottleneck)) {
+                    fixed[i] = true;
+                    rates[i] = share;
+                    remaining--;
+                    uplink[i].capacity -= share;
+                    uplink[i].users--;
+                    downlink[i].capacity -= share;
+                    downlink[i].users--;
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            Flow flow = flows.get(i);
+            if (flow.getRate() != rates[i]) {
+                flow.setRate(rates[i]);
+                if (flow != started) {
+                    flow.onRateChanged(now);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the network data, e.g. to sweep over datasets within a JVM. Latencies change at
+     * once, while the nodes already added keep their bandwidths. The regions can only change
+     * while no node is simulated, i.e. before the first node is added or after
+     * {@link Simulator#clearNodes()}; the propagation statistics then restart over the new
+     * regions. While no node is simulated the latency model is also resolved again from
+     * LATENCY_MODEL, with an empty coordinate space.
+     *
+     * @param networkDataset the network data
+     * @throws IllegalArgumentException if the latency model does not fit the data
+     * @throws IllegalStateException    if the regions change while nodes are simulated
+     */
+    public static void setDataset(NetworkDataset networkDataset) {
+        checkLatencyModel(networkDataset);
+        boolean regionsChanged =
+                dataset == null || !networkDataset.getRegions().equals(dataset.getRegions());
+        boolean empty = getSimulatedNodes().isEmpty();
+        if (regionsChanged && !empty) {
+            throw new IllegalStateException("The regions cannot change while nodes are simulated");
+        }
+        dataset = networkDataset;
+        if (empty) {
+            resetLatencyModel();
+        }
+        if (regionsChanged) {
+            Simulator.resetPropagationStatistics();
+        }
     }
 
     /**
      * Gets region list.
      *
-     * @return the {@link NetworkConfiguration#REGION_LIST} list.
+     * @return the regions of the {@link NetworkDataset} of the run
      */
     public static List<String> getRegionList() {
-        return REGION_LIST;
+        return getDataset().getRegions();
     }
 
     /**
@@ -85,7 +542,7 @@ public class Network {
      * @return an array the distribution
      */
     public static double[] getRegionDistribution() {
-        return REGION_DISTRIBUTION;
+        return getDataset().getRegionDistribution();
     }
 
     /**
@@ -95,7 +552,7 @@ public class Network {
      */
     // TODO
     public static double[] getDegreeDistribution() {
-        return DEGREE_DISTRIBUTION;
+        return getDataset().getDegreeDistribution();
     }
 
     /**
@@ -103,21 +560,14 @@ public class Network {
      */
     // TODO
     public static void printRegion() {
-        BasicLogger logger = BasicLogger.getLogger("simblock.static");
-        logger.log("{\"region\":[");
-
-        int id = 0;
-        for (; id < REGION_LIST.size() - 1; id++) {
-            logger.log("{");
-            logger.log("\"id\":" + id + ",");
-            logger.log("\"name\":\"" + REGION_LIST.get(id) + "\"");
-            logger.log("},");
-        }
-
-        logger.log("{");
-        logger.log("\"id\":" + id + ",");
-        logger.log("\"name\":\"" + REGION_LIST.get(id) + "\"");
-        logger.log("}");
-        logger.log("]}");
+        JsonWriter json = BasicLogger.getLogger("simblock.static").getJsonWriter(false);
+        json.beginObject().name("region").beginArray();
+        for (int id = 0; id < getRegionList().size(); id++) {
+            json.beginObject();
+            json.name("id").value(id);
+            json.name("name").value(getRegionList().get(id));
+            json.endObject();
+        }
+        json.endArray().endObject();
     }
 }
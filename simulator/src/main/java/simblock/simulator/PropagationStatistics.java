@@ -0,0 +1,276 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+import java.util.Arrays;
+import java.util.List;
+import simblock.logger.JsonWriter;
+import simblock.stats.LogHistogram;
+
+/**
+ * The type Propagation statistics accumulates block propagation times in log-bucketed
+ * histograms: the time each node took to receive each block, overall and by region of the
+ * receiving node, and the time each block took to reach each of the PROPAGATION_PERCENTILES of
+ * the nodes online when it was first seen. The memory used does not grow with the number of
+ * blocks, and the statistics of separate runs of the same network and percentiles can be merged.
+ * The times the current block took to reach the percentiles are also kept, until the next block
+ * starts.
+ */
+public class PropagationStatistics {
+    /**
+     * The percentiles of the nodes, in increasing order.
+     */
+    private final int[] percentiles;
+
+    /**
+     * The names of the regions.
+     */
+    private final List<String> regions;
+
+    /**
+     * The propagation times of every block to every node.
+     */
+    private final LogHistogram all = new LogHistogram();
+
+    /**
+     * The propagation times of every block to every node, by region of the node.
+     */
+    private final LogHistogram[] byRegion;
+
+    /**
+     * The time each block took to reach each percentile of the nodes.
+     */
+    private final LogHistogram[] milestones;
+
+    /**
+     * The number of blocks that never reached each percentile of the nodes.
+     */
+    private final long[] unreached;
+
+    /**
+     * The time the current block took to reach each percentile of the nodes, -1 until reached.
+     */
+    private final long[] blockMilestones;
+
+    /**
+     * The number of nodes online when the current block was first seen.
+     */
+    private int onlineNodes = 0;
+
+    /**
+     * The number of nodes the current block has reached.
+     */
+    private int reached = 0;
+
+    /**
+     * Instantiates new propagation statistics.
+     *
+     * @param percentiles the percentiles of the nodes, in increasing order
+     * @param regions     the names of the regions
+     */
+    public PropagationStatistics(int[] percentiles, List<String> regions) {
+        this.percentiles = percentiles.clone();
+        this.milestones = new LogHistogram[percentiles.length];
+        this.unreached = new long[percentiles.length];
+        this.blockMilestones = new long[percentiles.length];
+        this.regions = regions;
+        this.byRegion = new LogHistogram[regions.size()];
+        for (int i = 0; i < this.byRegion.length; i++) {
+            this.byRegion[i] = new LogHistogram();
+        }
+        for (int i = 0; i < this.milestones.length; i++) {
+            this.milestones[i] = new LogHistogram();
+        }
+    }
+
+    /**
+     * Gets the number of nodes a block has to reach to reach a percentile of the nodes.
+     *
+     * @param onlineNodes the number of nodes online when the block was first seen
+     * @param percentile  the percentile
+     * @return the number of nodes, at least one
+     */
+    private static int rankOf(int onlineNodes, int percentile) {
+        return Math.max(1, (int) (onlineNodes * (percentile / 100.0)));
+    }
+
+    /**
+     * Tests if a block reaching one more node has just reached one of the percentiles of the
+     * nodes.
+     *
+     * @param reached     the number of nodes the block reached
+     * @param onlineNodes the number of nodes online when the block was first seen
+     * @return true if reached is the rank of a percentile
+     */
+    public boolean isMilestone(int reached, int onlineNodes) {
+        for (int percentile : this.percentiles) {
+            if (reached == rankOf(onlineNodes, percentile)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Starts a block. Its percentiles are taken of the nodes online when it was first seen: the
+     * nodes that had not joined yet or had left could not receive it.
+     *
+     * @param onlineNodes the number of nodes online when the block was first seen
+     */
+    public void startBlock(int onlineNodes) {
+        this.onlineNodes = onlineNodes;
+        this.reached = 0;
+        Arrays.fill(this.blockMilestones, -1);
+    }
+
+    /**
+     * Records that the current block reached one more node. The nodes must be recorded in the
+     * order they received the block, after {@link #startBlock(int)}.
+     *
+     * @param region          the region of the node
+     * @param propagationTime the time from the minting of the block to its arrival at the node
+     */
+    public void record(int region, long propagationTime) {
+        this.reached++;
+        this.all.record(propagationTime);
+        this.byRegion[region].record(propagationTime);
+        for (int i = 0; i < this.percentiles.length; i++) {
+            if (this.reached == rankOf(this.onlineNodes, this.percentiles[i])) {
+                this.milestones[i].record(propagationTime);
+                this.blockMilestones[i] = propagationTime;
+            }
+        }
+    }
+
+    /**
+     * Ends the current block, counting the percentiles of the nodes it did not reach.
+     */
+    public void endBlock() {
+        for (int i = 0; i < this.percentiles.length; i++) {
+            if (this.reached < rankOf(this.onlineNodes, this.percentiles[i])) {
+                this.unreached[i]++;
+            }
+        }
+    }
+
+    /**
+     * Adds the statistics of another run of the same network and percentiles.
+     *
+     * @param other the other statistics
+     */
+    public void merge(PropagationStatistics other) {
+        this.all.merge(other.all);
+        for (int i = 0; i < this.byRegion.length; i++) {
+            this.byRegion[i].merge(other.byRegion[i]);
+        }
+        for (int i = 0; i < this.milestones.length; i++) {
+            this.milestones[i].merge(other.milestones[i]);
+            this.unreached[i] += other.unreached[i];
+        }
+    }
+
+    /**
+     * Gets the percentiles of the nodes.
+     *
+     * @return a copy of the percentiles, in increasing order
+     */
+    public int[] getPercentiles() {
+        return this.percentiles.clone();
+    }
+
+    /**
+     * Gets the number of nodes the current block reached, until the next block starts.
+     *
+     * @return the number of nodes
+     */
+    public int getBlockReached() {
+        return this.reached;
+    }
+
+    /**
+     * Gets the time the current block took to reach a percentile of the nodes, until the next
+     * block starts.
+     *
+     * @param index the index of the percentile in {@link #getPercentiles()}
+     * @return the time, or -1 if the block did not reach the percentile
+     */
+    public long getBlockMilestone(int index) {
+        return this.blockMilestones[index];
+    }
+
+    /**
+     * Gets the mean time the blocks that reached a percentile of the nodes took to reach it.
+     *
+     * @param index the index of the percentile in {@link #getPercentiles()}
+     * @return the mean time, or 0 if no block reached the percentile
+     */
+    public double getMeanMilestone(int index) {
+        return this.milestones[index].getMean();
+    }
+
+    /**
+     * Writes the statistics as a JSON object holding the cumulative distribution of each
+     * histogram.
+     *
+     * @param json the JSON writer
+     */
+    public void writeJson(JsonWriter json) {
+        json.beginObject();
+        json.name("all");
+        writeHistogram(json, this.all);
+        json.endObject();
+        for (int i = 0; i < this.byRegion.length; i++) {
+            json.name("region-" + this.regions.get(i));
+            writeHistogram(json, this.byRegion[i]);
+            json.endObject();
+        }
+        for (int i = 0; i < this.milestones.length; i++) {
+            json.name("block-" + this.percentiles[i]);
+            writeHistogram(json, this.milestones[i]);
+            json.name("unreached").value(this.unreached[i]).endObject();
+        }
+        json.endObject();
+    }
+
+    /**
+     * Writes the members of a histogram as a JSON object left open: its count, mean, extremes and
+     * cumulative distribution, as pairs of the highest value of each non-empty bucket and the
+     * fraction of the values below or at it.
+     *
+     * @param json      the JSON writer
+     * @param histogram the histogram
+     */
+    private static void writeHistogram(JsonWriter json, LogHistogram histogram) {
+        json.beginObject();
+        json.name("count").value(histogram.getCount());
+        json.name("mean").value(histogram.getMean());
+        json.name("min").value(histogram.getMin());
+        json.name("max").value(histogram.getMax());
+        json.name("cdf").beginArray();
+        long seen = 0;
+        for (int i = 0; i < histogram.getBuckets(); i++) {
+            long count = histogram.getBucketCount(i);
+            if (count == 0) {
+                continue;
+            }
+            seen += count;
+            long value = Math.min(LogHistogram.highestValueOf(i), histogram.getMax());
+            json.beginArray().value(value).value((double) seen / histogram.getCount()).endArray();
+        }
+        json.endArray();
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+import static simblock.settings.SimulationConfiguration.SCENARIO_WINDOW;
+import static simblock.settings.SimulatorConfigulation.getNumOfNodes;
+import static simblock.simulator.Network.getRegionList;
+import static simblock.simulator.Simulator.getSimulatedNodes;
+import static simblock.simulator.Timer.getCurrentTime;
+import static simblock.simulator.Timer.putTask;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import simblock.node.routing.AbstractRoutingTable;
+import simblock.task.MakeAndJoinTask;
+import simblock.task.Task;
+
+/**
+ * The type Scenario reader streams a scenario file into the {@link Timer}. Each line holds a time
+ * in milliseconds, a task name and the arguments of the task, separated by white space:
+ *
+ * <p><em>time</em> MakeAndJoinTask <em>nodeID numConnection region miningPower
+ * routingTable</em>
+ *
+ * <p>Lines must be sorted by time and nodes must join in node id order, starting after the nodes
+ * already simulated, up to NUM_OF_NODES. Blank lines and lines starting with # are skipped. Only
+ * {@link simblock.settings.SimulationConfiguration#SCENARIO_WINDOW} lines are scheduled at a
+ * time; the next window is read when the time of the last scheduled line is reached, so that the
+ * size of the scenario does not weigh on the event queue.
+ */
+public class ScenarioReader implements Closeable {
+    /**
+     * The package of the routing tables named without a package.
+     */
+    private static final String ROUTING_PACKAGE = "simblock.node.routing.";
+
+    /**
+     * The scenario file.
+     */
+    private final File file;
+
+    /**
+     * The reader, null once the end of the file is reached.
+     */
+    private BufferedReader reader;
+
+    /**
+     * The number of the last line read.
+     */
+    private int lineNumber = 0;
+
+    /**
+     * The time of the last line read.
+     */
+    private long lastTime;
+
+    /**
+     * The time of the first line.
+     */
+    private long firstTime = -1;
+
+    /**
+     * The id of the next node to join.
+     */
+    private int nextNodeID;
+
+    /**
+     * Opens a scenario file.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be opened
+     */
+    public ScenarioReader(File file) throws IOException {
+        this.file = file;
+        this.reader = new BufferedReader(new FileReader(file));
+        this.lastTime = getCurrentTime();
+        this.nextNodeID = getSimulatedNodes().size() + 1;
+    }
+
+    /**
+     * Schedules the first window of the scenario and the minting of the genesis block, by the
+     * first node once the nodes joining at the time of the first line have joined.
+     */
+    public void start() {
+        schedule();
+        if (this.lineNumber > 0) {
+            putTask(new GenesisTask(this.firstTime - getCurrentTime()));
+        }
+    }
+
+    /**
+     * Schedules the next window of the scenario, followed by a task reading the window after.
+     */
+    private void schedule() {
+        try {
+            int scheduled = 0;
+            String line;
+            while (scheduled < SCENARIO_WINDOW && (line = this.reader.readLine()) != null) {
+                this.lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                putTask(parse(line.split("\\s+")));
+                scheduled++;
+            }
+            if (scheduled == SCENARIO_WINDOW) {
+                putTask(new WindowTask(this.lastTime - getCurrentTime()));
+            } else {
+                close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses a line into the task it describes.
+     *
+     * @param fields the fields of the line
+     * @return the task, scheduled relative to the current time
+     */
+    private Task parse(String[] fields) {
+        if (fields.length != 7 || !fields[1].equals("MakeAndJoinTask")) {
+            throw error("expected <time> MakeAndJoinTask <nodeID> <numConnection> <region> "
+                    + "<miningPower> <routingTable>");
+        }
+        try {
+            long time = Long.parseLong(fields[0]);
+            if (time < this.lastTime) {
+                throw error("time " + time + " before " + this.lastTime);
+            }
+            this.lastTime = time;
+            if (this.firstTime < 0) {
+                this.firstTime = time;
+            }
+            int nodeID = Integer.parseInt(fields[2]);
+            if (nodeID != this.nextNodeID || nodeID > getNumOfNodes()) {
+                throw error("node id " + nodeID + " instead of " + this.nextNodeID
+                        + " (at most NUM_OF_NODES)");
+            }
+            this.nextNodeID++;
+            int numConnection = Integer.parseInt(fields[3]);
+            if (numConnection < 1) {
+                throw error("number of connections " + numConnection + " below 1");
+            }
+            int region = Integer.parseInt(fields[4]);
+            if (region < 0 || region >= getRegionList().size()) {
+                throw error("region " + region + " not in 0.." + (getRegionList().size() - 1));
+            }
+            long miningPower = Long.parseLong(fields[5]);
+            if (miningPower < 1) {
+                throw error("mining power " + miningPower + " below 1");
+            }
+            String routingTableName = fields[6].contains(".") ? fields[6]
+                    : ROUTING_PACKAGE + fields[6];
+            checkRoutingTable(routingTableName);
+            return new MakeAndJoinTask(time - getCurrentTime(), nodeID, numConnection, region,
+                    miningPower, routingTableName);
+        } catch (NumberFormatException e) {
+            throw error(e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that a routing table class exists, so that a misspelt name is reported with its line
+     * rather than when the node joins.
+     *
+     * @param routingTableName the name of the routing table class
+     */
+    private void checkRoutingTable(String routingTableName) {
+        try {
+            if (!AbstractRoutingTable.class.isAssignableFrom(Class.forName(routingTableName))) {
+                throw error(routingTableName + " is not a routing table");
+            }
+        } catch (ClassNotFoundException e) {
+            throw error("unknown routing table " + routingTableName);
+        }
+    }
+
+    /**
+     * Creates an exception locating an error in the scenario.
+     *
+     * @param message the message
+     * @return the exception
+     */
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(this.file + ":" + this.lineNumber + ": " + message);
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.reader != null) {
+            this.reader.close();
+            this.reader = null;
+        }
+    }
+
+    /**
+     * A task reading and scheduling the next window of the scenario.
+     */
+    private class WindowTask implements Task {
+        private final long interval;
+
+        private WindowTask(long interval) {
+            this.interval = interval;
+        }
+
+        @Override
+        public long getInterval() {
+            return this.interval;
+        }
+
+        @Override
+        public void run() {
+            schedule();
+        }
+    }
+
+    /**
+     * A task minting the genesis block by the first node.
+     */
+    private static class GenesisTask implements Task {
+        private final long interval;
+
+        private GenesisTask(long interval) {
+            this.interval = interval;
+        }
+
+        @Override
+        public long getInterval() {
+            return this.interval;
+        }
+
+        @Override
+        public void run() {
+            getSimulatedNodes().get(0).genesisBlock();
+        }
+    }
+}
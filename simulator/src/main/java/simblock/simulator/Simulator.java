@@ -18,14 +18,26 @@ package simblock.simulator;
 
 import static simblock.settings.SimulatorConfigulation.getEndBlockHeight;
 import static simblock.settings.SimulatorConfigulation.getNumOfNodes;
+import static simblock.settings.SimulatorConfigulation.getPropagationPercentiles;
+import static simblock.simulator.Network.sampleNodeProfile;
+import static simblock.simulator.Network.getRegionList;
 import static simblock.simulator.Timer.getCurrentTime;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import simblock.block.Block;
+import simblock.jfr.BlockMilestoneEvent;
+import simblock.jfr.FairnessEvent;
 import simblock.logger.BasicLogger;
+import simblock.logger.JsonWriter;
+import simblock.logger.PropagationWriter;
 import simblock.node.Node;
+import simblock.node.routing.BitcoinCoreTable;
+import simblock.node.routing.GeneratedTopologyTable;
+import simblock.node.routing.OverlayGraph;
 
 /**
  * The type Simulator is tasked with maintaining the list of simulated nodes and
@@ -40,6 +52,11 @@ public class Simulator {
      */
     private static final ArrayList<Node> simulatedNodes = new ArrayList<>();
 
+    /**
+     * The number of simulated nodes that are online.
+     */
+    private static int onlineNodeCount = 0;
+
     /**
      * The target block interval in milliseconds.
      */
@@ -51,19 +68,10 @@ public class Simulator {
     private static long blockSum = 0;
 
     /**
-     * 各ブロックの50%伝搬時間の平均
+     * The histograms of the propagation times of the blocks.
      */
-    private static double average50PropagationTime = 0;
-
-    /**
-     * 各ブロックの90%伝搬時間の平均
-     */
-    private static double average90PropagationTime = 0;
-
-    /**
-     * 各ブロックの100%伝搬時間の平均
-     */
-    private static double average100PropagationTime = 0;
+    private static PropagationStatistics propagationStatistics =
+            new PropagationStatistics(getPropagationPercentiles(), getRegionList());
 
     /**
      * 各ブロックの平均伝搬時間の平均
@@ -105,6 +113,24 @@ public class Simulator {
         return simulatedNodes;
     }
 
+    /**
+     * Gets the histograms of the propagation times of the blocks printed so far.
+     *
+     * @return the propagation statistics
+     */
+    public static PropagationStatistics getPropagationStatistics() {
+        return propagationStatistics;
+    }
+
+    /**
+     * Restarts the propagation statistics over the regions of the current network data, once
+     * {@link Network#setDataset(simblock.settings.NetworkDataset)} changed them.
+     */
+    static void resetPropagationStatistics() {
+        propagationStatistics =
+                new PropagationStatistics(getPropagationPercentiles(), getRegionList());
+    }
+
     /**
      * Get target block interval.
      *
@@ -130,11 +156,30 @@ public class Simulator {
      */
     public static void addNode(Node node) {
         simulatedNodes.add(node);
+        onlineNodeCount++;
+        sampleNodeProfile(node);
         hashrateList.add(node.getMiningPower());
         hashrateSum += node.getMiningPower();
         minerCount.add(0L);
     }
 
+    /**
+     * Clears the list of simulated nodes, e.g. to set up another simulation within the JVM, along
+     * with the state kept over it: the hash rates, the flows and coordinates of the network, the
+     * overlay graph, the generated topology and the under-filled routing tables.
+     */
+    public static void clearNodes() {
+        simulatedNodes.clear();
+        onlineNodeCount = 0;
+        hashrateList.clear();
+        hashrateSum = 0;
+        minerCount.clear();
+        Network.reset();
+        OverlayGraph.reset();
+        GeneratedTopologyTable.reset();
+        BitcoinCoreTable.reset();
+    }
+
     /**
      * Remove node from the list of simulated nodes.
      *
@@ -142,24 +187,44 @@ public class Simulator {
      */
     @SuppressWarnings("unused")
     public static void removeNode(Node node) {
-        simulatedNodes.remove(node);
+        if (simulatedNodes.remove(node) && node.isOnline()) {
+            onlineNodeCount--;
+        }
     }
 
     /**
-     * Add node to the list of simulated nodes and immediately try to add the new
-     * node as a
-     * neighbor to all simulated
-     * nodes.
+     * Gets the number of simulated nodes that are online.
+     *
+     * @return the number of online nodes
+     */
+    public static int getOnlineNodeCount() {
+        return onlineNodeCount;
+    }
+
+    /**
+     * Counts a simulated node leaving the network.
+     */
+    public static void nodeLeft() {
+        onlineNodeCount--;
+    }
+
+    /**
+     * Counts a simulated node rejoining the network.
+     */
+    public static void nodeRejoined() {
+        onlineNodeCount++;
+    }
+
+    /**
+     * Add node to the list of simulated nodes and connect it to the running network. The node
+     * only chooses its own outbound connections, so the cost of a join does not grow with the
+     * number of simulated nodes.
      *
      * @param node the node
      */
-    @SuppressWarnings("unused")
     public static void addNodeWithConnection(Node node) {
-        node.joinNetwork();
         addNode(node);
-        for (Node existingNode : simulatedNodes) {
-            existingNode.addNeighbor(node);
-        }
+        node.joinRunningNetwork();
     }
 
     /**
@@ -167,8 +232,32 @@ public class Simulator {
      */
     private static final ArrayList<Block> observedBlocks = new ArrayList<>();
 
+    /**
+     * The height of the highest block that has arrived at a node.
+     */
+    private static int maxHeight = 0;
+
     static BasicLogger propagationLogger = BasicLogger.getLogger("simblock.propagation");
 
+    /**
+     * The writer of the binary propagation file, or null to print the propagation CSV.
+     */
+    private static PropagationWriter propagationWriter = null;
+
+    /**
+     * Sets the writer of the binary propagation file.
+     *
+     * @param writer the writer, or null to print the propagation CSV
+     */
+    public static void setPropagationWriter(PropagationWriter writer) {
+        propagationWriter = writer;
+    }
+
+    /**
+     * The logger of the time each block took to reach each percentile of the nodes.
+     */
+    static BasicLogger percentileLogger = BasicLogger.getLogger("simblock.percentiles");
+
     static BasicLogger resultLogger = BasicLogger.getLogger("simblock.result");
     /**
      * A list of observed block propagation times. The map key represents the id of
@@ -181,6 +270,30 @@ public class Simulator {
      */
     private static final ArrayList<LinkedHashMap<Integer, Long>> observedPropagations = new ArrayList<>();
 
+    /**
+     * The number of simulated nodes that were online when each observed block was first seen,
+     * the base of its propagation milestones.
+     */
+    private static final ArrayList<Integer> observedOnlineNodes = new ArrayList<>();
+
+    /**
+     * Gets the height of the highest block that has arrived at a node.
+     *
+     * @return the maximum height
+     */
+    public static int getMaxHeight() {
+        return maxHeight;
+    }
+
+    /**
+     * Gets the number of blocks whose propagation is being recorded.
+     *
+     * @return the number of observed blocks
+     */
+    public static int getObservedBlockCount() {
+        return observedBlocks.size();
+    }
+
     /**
      * Handle the arrival of a new block. For every observed block, propagation
      * information is
@@ -191,22 +304,30 @@ public class Simulator {
      * @param node  the node
      */
     public static void arriveBlock(Block block, Node node) {
+        if (block.getHeight() > maxHeight) {
+            maxHeight = block.getHeight();
+        }
         // If block is already seen by any node
         if (observedBlocks.contains(block)) {
             // Get the propagation information for the current block
             LinkedHashMap<Integer, Long> propagation = observedPropagations.get(
                     observedBlocks.indexOf(block));
             // Update information for the new block
-            propagation.put(node.getNodeID(), getCurrentTime() - block.getTime());
+            if (propagation.put(node.getNodeID(), getCurrentTime() - block.getTime()) == null) {
+                commitMilestone(block, propagation.size(),
+                        observedOnlineNodes.get(observedBlocks.indexOf(block)));
+            }
         } else {
             // If the block has not been seen by any node and there is no memory allocated
             // TODO move magic number to constant
             if (observedBlocks.size() > 10) {
                 // After the observed blocks limit is reached, log and remove old blocks by FIFO
                 // principle
-                printPropagation(observedBlocks.get(0), observedPropagations.get(0));
+                printPropagation(observedBlocks.get(0), observedPropagations.get(0),
+                        observedOnlineNodes.get(0));
                 observedBlocks.remove(0);
                 observedPropagations.remove(0);
+                observedOnlineNodes.remove(0);
             }
             // If the block has not been seen by any node and there is additional memory
             LinkedHashMap<Integer, Long> propagation = new LinkedHashMap<>();
@@ -215,6 +336,32 @@ public class Simulator {
             observedBlocks.add(block);
             // Record the propagation time
             observedPropagations.add(propagation);
+            observedOnlineNodes.add(onlineNodeCount);
+            commitMilestone(block, 1, onlineNodeCount);
+        }
+    }
+
+    /**
+     * Records a {@link BlockMilestoneEvent} when the block has just been minted or has just
+     * reached one of the PROPAGATION_PERCENTILES of the nodes that were online when it was first
+     * seen, the same ranks as {@link PropagationStatistics} records.
+     *
+     * @param block       the block
+     * @param reached     the number of nodes the block reached
+     * @param onlineNodes the number of simulated nodes online when the block was first seen
+     */
+    private static void commitMilestone(Block block, int reached, int onlineNodes) {
+        if (reached != 1 && !propagationStatistics.isMilestone(reached, onlineNodes)) {
+            return;
+        }
+        BlockMilestoneEvent event = new BlockMilestoneEvent();
+        if (event.shouldCommit()) {
+            event.blockId = block.getId();
+            event.height = block.getHeight();
+            event.reached = reached == 1 ? 0 : (double) reached / onlineNodes;
+            event.propagationTime = getCurrentTime() - block.getTime();
+            event.simulatedTime = getCurrentTime();
+            event.commit();
         }
     }
 
@@ -235,8 +382,11 @@ public class Simulator {
      * @param propagation the propagation of the provided block as a list of
      *                    {@link Node} IDs and
      *                    propagation times
+     * @param onlineNodes the number of simulated nodes online when the block was first seen, the
+     *                    base of the percentiles of the nodes it reached
      */
-    public static void printPropagation(Block block, LinkedHashMap<Integer, Long> propagation) {
+    public static void printPropagation(
+            Block block, LinkedHashMap<Integer, Long> propagation, int onlineNodes) {
         // Print block and its height
         // TODO block does not have a toString method, what is printed here
         // System.out.println(block + ":" + block.getHeight());
@@ -247,13 +397,18 @@ public class Simulator {
 
         blockSum++;
 
-        // ノードIDごとに列が揃えたpropagation time
+        // ノードIDごとに列が揃えたpropagation time, -1 for the nodes not reached
         long[] nodePropagationTimes = new long[getNumOfNodes()];
+        Arrays.fill(nodePropagationTimes, -1);
 
         int minerIndex = block.getMinter().getNodeID() - 1;
         minerCount.set(minerIndex, minerCount.get(minerIndex) + 1);
 
-        int index = 1;
+        // Only the nodes the block reached count towards its mean propagation times
+        double sumPropagationTime = 0;
+        double sumWeightedPropagationTime = 0;
+        long reachedHashrate = 0;
+        propagationStatistics.startBlock(onlineNodes);
         for (Map.Entry<Integer, Long> timeEntry : propagation.entrySet()) {
             int nodeIndex = timeEntry.getKey() - 1;
             long propagationTime = timeEntry.getValue();
@@ -262,58 +417,108 @@ public class Simulator {
 
             propagationTimeBetweenNodes[minerIndex][nodeIndex] += (double) propagationTime;
 
-            if (index == (int) (getNumOfNodes() * 0.5)) {
-                average50PropagationTime += (double) propagationTime;
-            } else if (index == (int) (getNumOfNodes() * 0.9)) {
-                average90PropagationTime += (double) propagationTime;
-            } else if (index == getNumOfNodes()) {
-                average100PropagationTime += (double) propagationTime;
+            int region = simulatedNodes.get(nodeIndex).getRegion();
+            propagationStatistics.record(region, propagationTime);
+            sumPropagationTime += (double) propagationTime;
+            sumWeightedPropagationTime += (double) propagationTime * hashrateList.get(nodeIndex);
+            reachedHashrate += hashrateList.get(nodeIndex);
+        }
+        propagationStatistics.endBlock();
+        printBlockPercentiles(block, onlineNodes);
+        averageMeanPropagationTime += sumPropagationTime / propagation.size();
+        averageHashrateWeightedPropagationTime += sumWeightedPropagationTime / reachedHashrate;
+
+        if (propagationWriter != null) {
+            try {
+                propagationWriter.write(
+                        block.getId(), block.getMinter().getNodeID(), nodePropagationTimes);
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-            averageMeanPropagationTime += (double) propagationTime / getNumOfNodes();
-            averageHashrateWeightedPropagationTime += (double) propagationTime * hashrateList.get(nodeIndex)
-                    / hashrateSum;
-
-            index++;
+            return;
         }
 
         // ノードIDごとに列を揃えたpropagation timeをcsvファイルにプリントする
         for (int i = 0; i < nodePropagationTimes.length; i++) {
+            long propagationTime = Math.max(0, nodePropagationTimes[i]);
             if (i < nodePropagationTimes.length - 1) {
-                propagationLogger.print(Long.toString(nodePropagationTimes[i]) + ",");
+                propagationLogger.print(Long.toString(propagationTime) + ",");
             } else {
-                propagationLogger.println(Long.toString(nodePropagationTimes[i]));
+                propagationLogger.println(Long.toString(propagationTime));
             }
         }
 
     }
 
+    /**
+     * Prints the header of the percentile file, naming the columns of
+     * {@link #printBlockPercentiles(Block, int)}.
+     */
+    public static void printBlockPercentileHeader() {
+        StringBuilder line = new StringBuilder("block_id,height,minter_id,online_nodes,reached");
+        for (int percentile : propagationStatistics.getPercentiles()) {
+            line.append(',').append(percentile);
+        }
+        percentileLogger.println(line.toString());
+    }
+
+    /**
+     * Prints a line of the percentile file for a block whose propagation was just recorded: the
+     * block, the number of nodes online when it was first seen and reached, and the time it took
+     * to reach each percentile of the online nodes, or -1 if it did not.
+     *
+     * @param block       the block
+     * @param onlineNodes the number of simulated nodes online when the block was first seen
+     */
+    private static void printBlockPercentiles(Block block, int onlineNodes) {
+        StringBuilder line = new StringBuilder();
+        line.append(block.getId()).append(',').append(block.getHeight()).append(',')
+                .append(block.getMinter().getNodeID()).append(',').append(onlineNodes).append(',')
+                .append(propagationStatistics.getBlockReached());
+        int percentiles = propagationStatistics.getPercentiles().length;
+        for (int i = 0; i < percentiles; i++) {
+            line.append(',').append(propagationStatistics.getBlockMilestone(i));
+        }
+        percentileLogger.println(line.toString());
+    }
+
     /**
      * Print propagation information about all blocks, internally relying on
-     * {@link Simulator#printPropagation(Block, LinkedHashMap)}.
+     * {@link Simulator#printPropagation(Block, LinkedHashMap, int)}.
      */
     public static void printAllPropagation() {
         for (int i = 0; i < observedBlocks.size(); i++) {
-            printPropagation(observedBlocks.get(i), observedPropagations.get(i));
+            printPropagation(
+                    observedBlocks.get(i), observedPropagations.get(i), observedOnlineNodes.get(i));
         }
     }
 
     public static void printResult() {
-        average50PropagationTime /= blockSum;
-        average90PropagationTime /= blockSum;
-        average100PropagationTime /= blockSum;
         averageMeanPropagationTime /= blockSum;
         averageHashrateWeightedPropagationTime /= blockSum;
-        resultLogger.print("{\n");
-        resultLogger.print("\"average-50-propagation-time\" :" + average50PropagationTime + ",\n");
-        resultLogger.print("\"average-90-propagation-time\" :" + average90PropagationTime + ",\n");
-        resultLogger.print("\"average-100-propagation-time\" :" + average100PropagationTime + ",\n");
-        resultLogger.print("\"average-mean-propagation-time\" :" + averageMeanPropagationTime + ",\n");
-        resultLogger
-                .print("\"average-hashrate-weighted-propagation-time\" :" + averageHashrateWeightedPropagationTime
-                        + ",\n");
+        JsonWriter json = resultLogger.getJsonWriter(true);
+        json.beginObject();
+        // Averaged over the blocks that reached the percentile
+        int[] percentiles = propagationStatistics.getPercentiles();
+        for (int i = 0; i < percentiles.length; i++) {
+            json.name("average-" + percentiles[i] + "-propagation-time")
+                    .value(propagationStatistics.getMeanMilestone(i));
+        }
+        json.name("average-mean-propagation-time").value(averageMeanPropagationTime);
+        json.name("average-hashrate-weighted-propagation-time")
+                .value(averageHashrateWeightedPropagationTime);
+        json.name("propagation-time");
+        propagationStatistics.writeJson(json);
         double[] winningRateList = { 0, 0.5, 1.0 };
         for (double winningRate : winningRateList) {
+            FairnessEvent event = new FairnessEvent();
+            event.begin();
             ArrayList<Double> fairnessList = calculateFairness(winningRate);
+            if (event.shouldCommit()) {
+                event.winningRate = winningRate;
+                event.numOfNodes = getNumOfNodes();
+                event.commit();
+            }
             double sumFairness = 0;
             double maxFairness = -Double.MAX_VALUE;
             double minFairness = Double.MAX_VALUE;
@@ -336,32 +541,53 @@ public class Simulator {
             maxFairness *= hashrateSum / hashrateList.get(maxFairnessIndex);
             minFairness *= hashrateSum / hashrateList.get(minFairnessIndex);
 
-            resultLogger.print("\"sum-base-fairness-win" + winningRate + "\" :" + sumFairness + ",\n");
-            resultLogger.print("\"max-base-fairness-win" + winningRate + "\" :" + maxFairness + ",\n");
-            resultLogger.print("\"min-base-fairness-win" + winningRate + "\" :" + minFairness + ",\n");
-            resultLogger.print("\"fairness-list-win" + winningRate + "\" :" + fairnessList + ",\n");
+            json.name("sum-base-fairness-win" + winningRate).value(sumFairness);
+            json.name("max-base-fairness-win" + winningRate).value(maxFairness);
+            json.name("min-base-fairness-win" + winningRate).value(minFairness);
+            json.name("fairness-list-win" + winningRate).beginArray();
+            for (double fairness : fairnessList) {
+                json.value(fairness);
+            }
+            json.endArray();
         }
 
-        resultLogger.print("\"hashrate-list\" :" + hashrateList + ",\n");
-        resultLogger.print("\"block-generation-count-list\" :" + minerCount);
-        resultLogger.print("\n}");
+        json.name("hashrate-list").beginArray();
+        for (long hashrate : hashrateList) {
+            json.value(hashrate);
+        }
+        json.endArray();
+        json.name("block-generation-count-list").beginArray();
+        for (long count : minerCount) {
+            json.value(count);
+        }
+        json.endArray();
+        json.endObject();
     }
 
-    private static ArrayList<Double> calculateFairness(double winningRate) {
+    /**
+     * Calculates the fairness of every miner from the propagation times between nodes. Package
+     * private so that it can be benchmarked on its own.
+     *
+     * @param winningRate the rate at which a miner wins a fork against a competing block
+     * @return the fairness of each node
+     */
+    static ArrayList<Double> calculateFairness(double winningRate) {
+        // Nodes may have joined during the simulation, so only the joined nodes are counted
+        int numOfNodes = minerCount.size();
         // マイナーiがブロックを生成した時にマイナーjがそのブロックを受け取るまでの時間の平均を計算
-        for (int i = 0; i < propagationTimeBetweenNodes.length; i++) {
+        for (int i = 0; i < numOfNodes; i++) {
             if (minerCount.get(i) == 0)
                 continue;
-            for (int j = 0; j < propagationTimeBetweenNodes[i].length; j++) {
+            for (int j = 0; j < numOfNodes; j++) {
                 propagationTimeBetweenNodes[i][j] /= minerCount.get(i);
             }
         }
 
         // 各マイナーについて、ほかのノードへのハッシュレート重み付け伝搬時間の和
         ArrayList<Long> hWPropSumList = new ArrayList<>();
-        for (int i = 0; i < propagationTimeBetweenNodes.length; i++) {
+        for (int i = 0; i < numOfNodes; i++) {
             long hWPropSum = 0;
-            for (int j = 0; j < propagationTimeBetweenNodes[i].length; j++) {
+            for (int j = 0; j < numOfNodes; j++) {
                 hWPropSum += propagationTimeBetweenNodes[i][j] * hashrateList.get(j);
             }
             hWPropSum /= (double) hashrateSum;
@@ -371,7 +597,7 @@ public class Simulator {
         // 各マイナーがブロックを生成する確率、更新のため直近の結果を保持する2次元配列とする
         ArrayList<ArrayList<Double>> generateRate = new ArrayList<>();
         // ハッシュレートの割合で初期化
-        for (int i = 0; i < minerCount.size(); i++) {
+        for (int i = 0; i < numOfNodes; i++) {
             ArrayList<Double> tmp = new ArrayList<>();
             tmp.add((double) hashrateList.get(i) / hashrateSum);
             tmp.add((double) hashrateList.get(i) / hashrateSum);
@@ -381,9 +607,9 @@ public class Simulator {
         // 定常分布を求める
         int loopCount = 1000;
         for (int i = 0; i < loopCount; i++) {
-            for (int j = 0; j < getNumOfNodes(); j++) {
+            for (int j = 0; j < numOfNodes; j++) {
                 double updateFactor = 0;
-                for (int k = 0; k < getNumOfNodes(); k++) {
+                for (int k = 0; k < numOfNodes; k++) {
                     updateFactor += generateRate.get(k).get((i + 1) % 2)
                             * (targetInterval - propagationTimeBetweenNodes[k][j] + hWPropSumList.get(k));
                 }
@@ -395,10 +621,10 @@ public class Simulator {
 
         // fairnessを計算
         ArrayList<Double> fairnessList = new ArrayList<>();
-        for (int i = 0; i < getNumOfNodes(); i++) {
+        for (int i = 0; i < numOfNodes; i++) {
             double fairness = generateRate.get(i).get(loopCount % 2)
                     * (targetInterval - (1 - winningRate) * hWPropSumList.get(i));
-            for (int j = 0; j < getNumOfNodes(); j++) {
+            for (int j = 0; j < numOfNodes; j++) {
                 fairness += generateRate.get(j).get(loopCount % 2) * (1 - winningRate)
                         * ((double) hashrateList.get(i) / hashrateSum)
                         * propagationTimeBetweenNodes[j][i];
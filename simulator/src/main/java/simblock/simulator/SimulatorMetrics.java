@@ -0,0 +1,202 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+import static simblock.settings.SimulationConfiguration.METRICS_PUBLISH_INTERVAL;
+import static simblock.settings.SimulationConfiguration.TASK_PROFILING;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import simblock.logger.BasicLogger;
+import simblock.node.Node;
+
+/**
+ * The type Simulator metrics publishes the progress of the simulation as the
+ * <em>simblock:type=SimulatorMetrics</em> MBean, to be watched in JConsole or VisualVM. The
+ * simulator only keeps plain counters on the hot path; every
+ * {@link simblock.settings.SimulationConfiguration#METRICS_PUBLISH_INTERVAL} events the
+ * simulation thread copies them to volatile fields read by JMX.
+ */
+public class SimulatorMetrics implements SimulatorMetricsMBean {
+    /**
+     * The registered instance.
+     */
+    private static final SimulatorMetrics metrics = new SimulatorMetrics();
+
+    /**
+     * Mask testing whether an event count is a multiple of the publish interval.
+     */
+    private static final long MASK = METRICS_PUBLISH_INTERVAL - 1;
+
+    /**
+     * The number of events processed.
+     */
+    private volatile long eventsProcessed = 0;
+
+    /**
+     * The events per second over the last second or so.
+     */
+    private volatile double eventsPerSecond = 0;
+
+    /**
+     * The number of tasks in the future event list.
+     */
+    private volatile int futureEventListSize = 0;
+
+    /**
+     * The simulated time.
+     */
+    private volatile long currentTime = 0;
+
+    /**
+     * The height of the highest block.
+     */
+    private volatile int maxHeight = 0;
+
+    /**
+     * The number of pending minting tasks.
+     */
+    private volatile int pendingMintingTasks = 0;
+
+    /**
+     * The number of blocks in the propagation window.
+     */
+    private volatile int blocksInPropagationWindow = 0;
+
+    /**
+     * The number of orphans summed over all nodes.
+     */
+    private volatile long orphanCount = 0;
+
+    /**
+     * The number of characters not yet flushed by the loggers.
+     */
+    private volatile long loggerBacklog = 0;
+
+    /**
+     * The wall time the events per second were last computed at, in nanoseconds.
+     */
+    private long rateTime = System.nanoTime();
+
+    /**
+     * The number of events processed when the events per second were last computed.
+     */
+    private long rateEvents = 0;
+
+    /**
+     * Instantiates the Simulator metrics.
+     */
+    private SimulatorMetrics() {
+    }
+
+    /**
+     * Registers the MBean with the platform MBean server, along with the {@link TaskProfiler}
+     * MBean if task profiling is enabled.
+     */
+    public static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    metrics, new ObjectName("simblock:type=SimulatorMetrics"));
+            if (TASK_PROFILING) {
+                TaskProfiler.register();
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Publishes the counters if the number of processed events is a multiple of the publish
+     * interval. Called by the simulation thread after each event.
+     */
+    public static void update() {
+        if ((Timer.getProcessedTaskCount() & MASK) == 0) {
+            publish();
+        }
+    }
+
+    /**
+     * Publishes the counters. Called by the simulation thread.
+     */
+    public static void publish() {
+        long events = Timer.getProcessedTaskCount();
+        long now = System.nanoTime();
+        long elapsed = now - metrics.rateTime;
+        if (elapsed >= 1000000000L) {
+            metrics.eventsPerSecond = (events - metrics.rateEvents) * 1e9 / elapsed;
+            metrics.rateTime = now;
+            metrics.rateEvents = events;
+            if (TASK_PROFILING) {
+                TaskProfiler.publish();
+            }
+        }
+        metrics.eventsProcessed = events;
+        metrics.futureEventListSize = Timer.getTaskCount();
+        metrics.currentTime = Timer.getCurrentTime();
+        metrics.maxHeight = Simulator.getMaxHeight();
+        metrics.pendingMintingTasks = Node.getPendingMintingTaskCount();
+        metrics.blocksInPropagationWindow = Simulator.getObservedBlockCount();
+        metrics.orphanCount = Node.getOrphanCount();
+        metrics.loggerBacklog = BasicLogger.getBacklog();
+    }
+
+    @Override
+    public long getEventsProcessed() {
+        return this.eventsProcessed;
+    }
+
+    @Override
+    public double getEventsPerSecond() {
+        return this.eventsPerSecond;
+    }
+
+    @Override
+    public int getFutureEventListSize() {
+        return this.futureEventListSize;
+    }
+
+    @Override
+    public long getCurrentTime() {
+        return this.currentTime;
+    }
+
+    @Override
+    public int getMaxHeight() {
+        return this.maxHeight;
+    }
+
+    @Override
+    public int getPendingMintingTasks() {
+        return this.pendingMintingTasks;
+    }
+
+    @Override
+    public int getBlocksInPropagationWindow() {
+        return this.blocksInPropagationWindow;
+    }
+
+    @Override
+    public long getOrphanCount() {
+        return this.orphanCount;
+    }
+
+    @Override
+    public long getLoggerBacklog() {
+        return this.loggerBacklog;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+/**
+ * The management interface of {@link SimulatorMetrics}, exposed over JMX. The values are
+ * snapshots published by the simulation thread and may lag behind by a few events.
+ */
+public interface SimulatorMetricsMBean {
+    /**
+     * Gets the number of events processed since the beginning of the simulation.
+     *
+     * @return the number of events
+     */
+    long getEventsProcessed();
+
+    /**
+     * Gets the number of events processed per second of wall time, over the last second or so.
+     *
+     * @return the events per second
+     */
+    double getEventsPerSecond();
+
+    /**
+     * Gets the number of tasks in the future event list.
+     *
+     * @return the future event list size
+     */
+    int getFutureEventListSize();
+
+    /**
+     * Gets the current simulated time.
+     *
+     * @return the time in milliseconds
+     */
+    long getCurrentTime();
+
+    /**
+     * Gets the height of the highest block that has arrived at a node.
+     *
+     * @return the maximum height
+     */
+    int getMaxHeight();
+
+    /**
+     * Gets the number of nodes with a pending minting task.
+     *
+     * @return the number of pending minting tasks
+     */
+    int getPendingMintingTasks();
+
+    /**
+     * Gets the number of blocks whose propagation is being recorded.
+     *
+     * @return the number of blocks in the propagation window
+     */
+    int getBlocksInPropagationWindow();
+
+    /**
+     * Gets the number of orphaned blocks, summed over all nodes.
+     *
+     * @return the orphan count
+     */
+    long getOrphanCount();
+
+    /**
+     * Gets the number of characters written by the loggers but not yet flushed.
+     *
+     * @return the logger backlog
+     */
+    long getLoggerBacklog();
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+import static simblock.settings.SimulationConfiguration.TASK_PROFILING_SAMPLE_INTERVAL;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import simblock.stats.LogHistogram;
+import simblock.task.Task;
+
+/**
+ * The type Task profiler counts the tasks run and cancelled by the {@link Timer} per task class.
+ * One task out of
+ * {@link simblock.settings.SimulationConfiguration#TASK_PROFILING_SAMPLE_INTERVAL} is timed to
+ * estimate the time spent in each class. It is only called when
+ * {@link simblock.settings.SimulationConfiguration#TASK_PROFILING} is set; the calls are compiled
+ * out otherwise.
+ */
+public class TaskProfiler implements TaskProfilerMBean {
+    /**
+     * The registered instance.
+     */
+    private static final TaskProfiler profiler = new TaskProfiler();
+
+    /**
+     * Mask testing whether a task is sampled.
+     */
+    private static final long MASK = TASK_PROFILING_SAMPLE_INTERVAL - 1;
+
+    /**
+     * The statistics of a task class.
+     */
+    private static final class Profile {
+        /**
+         * The task class.
+         */
+        private final Class<?> type;
+
+        /**
+         * The number of tasks run.
+         */
+        private long count = 0;
+
+        /**
+         * The number of tasks removed before being run.
+         */
+        private long cancelled = 0;
+
+        /**
+         * The run times of the sampled tasks, in nanoseconds.
+         */
+        private final LogHistogram times = new LogHistogram();
+
+        /**
+         * Instantiates a new Profile.
+         *
+         * @param type the task class
+         */
+        private Profile(Class<?> type) {
+            this.type = type;
+        }
+    }
+
+    /**
+     * The statistics by task class.
+     */
+    private static final Map<Class<?>, Profile> profiles = new IdentityHashMap<>();
+
+    /**
+     * The profile of the last task class seen, saving a lookup for runs of the same class.
+     */
+    private static Profile last = null;
+
+    /**
+     * The number of tasks run.
+     */
+    private static long runs = 0;
+
+    /**
+     * The table last published for JMX.
+     */
+    private volatile String table = "";
+
+    /**
+     * Instantiates the Task profiler.
+     */
+    private TaskProfiler() {
+    }
+
+    /**
+     * Gets the profile of a task class.
+     *
+     * @param type the task class
+     * @return the profile
+     */
+    private static Profile profileOf(Class<?> type) {
+        Profile profile = last;
+        if (profile == null || profile.type != type) {
+            profile = profiles.computeIfAbsent(type, Profile::new);
+            last = profile;
+        }
+        return profile;
+    }
+
+    /**
+     * Runs a task, timing it if it is sampled.
+     *
+     * @param task the task
+     */
+    static void run(Task task) {
+        Profile profile = profileOf(task.getClass());
+        profile.count++;
+        if ((runs++ & MASK) == 0) {
+            long start = System.nanoTime();
+            task.run();
+            profile.times.record(System.nanoTime() - start);
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Counts a task removed before being run.
+     *
+     * @param task the task
+     */
+    static void cancel(Task task) {
+        profileOf(task.getClass()).cancelled++;
+    }
+
+    /**
+     * Registers the MBean with the platform MBean server.
+     *
+     * @throws JMException if the registration fails
+     */
+    static void register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(
+                profiler, new ObjectName("simblock:type=TaskProfiler"));
+    }
+
+    /**
+     * Publishes the current table for JMX. Called by the simulation thread.
+     */
+    static void publish() {
+        profiler.table = getTableText();
+    }
+
+    /**
+     * Formats the statistics as a table, the task classes taking the most time first. The total
+     * time of a class is extrapolated from its sampled tasks.
+     *
+     * @return the table
+     */
+    public static String getTableText() {
+        List<Profile> sorted = new ArrayList<>(profiles.values());
+        sorted.sort((a, b) -> Double.compare(estimatedTotal(b), estimatedTotal(a)));
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%-24s %12s %10s %10s %12s %9s %9s %9s %9s%n",
+                "task", "count", "cancelled", "sampled", "total ms", "mean us", "p50 us",
+                "p99 us", "max us"));
+        for (Profile profile : sorted) {
+            LogHistogram times = profile.times;
+            builder.append(String.format(Locale.ROOT,
+                    "%-24s %12d %10d %10d %12.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    profile.type.getSimpleName(), profile.count, profile.cancelled,
+                    times.getCount(), estimatedTotal(profile) / 1e6, times.getMean() / 1e3,
+                    times.getValueAtPercentile(50) / 1e3, times.getValueAtPercentile(99) / 1e3,
+                    times.getMax() / 1e3));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Estimates the total time spent running the tasks of a class.
+     *
+     * @param profile the profile
+     * @return the time in nanoseconds
+     */
+    private static double estimatedTotal(Profile profile) {
+        return profile.times.getMean() * profile.count;
+    }
+
+    @Override
+    public String getTable() {
+        return this.table;
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.simulator;
+
+/**
+ * The management interface of {@link TaskProfiler}, exposed over JMX.
+ */
+public interface TaskProfilerMBean {
+    /**
+     * Gets the profile of the tasks run so far, as a table with one row per task class. The table
+     * is refreshed about once per second.
+     *
+     * @return the table
+     */
+    String getTable();
+}
@@ -16,6 +16,9 @@
 
 package simblock.simulator;
 
+import static simblock.settings.SimulationConfiguration.TASK_PROFILING;
+
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.PriorityQueue;
@@ -47,22 +50,54 @@ public class Timer {
     //TODO is it milliseconds?
     private static long currentTime = 0L;
 
+    /**
+     * The number of tasks run since the beginning of the simulation.
+     */
+    private static long processedTaskCount = 0;
+
+    /**
+     * Recycled {@link ScheduledTask} wrappers, reused for the next scheduled task.
+     */
+    private static final ArrayDeque<ScheduledTask> freeScheduledTasks = new ArrayDeque<>();
+
+    /**
+     * The number of tasks scheduled so far, used to run simultaneous tasks in the order they
+     * were scheduled.
+     */
+    private static long scheduledTaskCount = 0;
+
     /**
      * Represents a {@link Task} that is scheduled to be executed.
      */
     private static class ScheduledTask implements Comparable<ScheduledTask> {
-        private final Task task;
-        private final long scheduledTime;
+        private Task task;
+        private long scheduledTime;
+        private long sequence;
 
         /**
-         * Instantiates a new ScheduledTask.
+         * Obtains a recycled or new ScheduledTask.
          *
          * @param task          - the task to be executed
          * @param scheduledTime - the simulation time at which the task is to be executed
+         * @return the scheduled task
          */
-        private ScheduledTask(Task task, long scheduledTime) {
-            this.task = task;
-            this.scheduledTime = scheduledTime;
+        private static ScheduledTask obtain(Task task, long scheduledTime) {
+            ScheduledTask scheduledTask = freeScheduledTasks.pollLast();
+            if (scheduledTask == null) {
+                scheduledTask = new ScheduledTask();
+            }
+            scheduledTask.task = task;
+            scheduledTask.scheduledTime = scheduledTime;
+            scheduledTask.sequence = scheduledTaskCount++;
+            return scheduledTask;
+        }
+
+        /**
+         * Returns the ScheduledTask for reuse once it has left the queue.
+         */
+        private void recycle() {
+            this.task = null;
+            freeScheduledTasks.addLast(this);
         }
 
         /**
@@ -84,10 +119,11 @@ public class Timer {
         }
 
         /**
-         * Compares the two scheduled tasks.
+         * Compares the two scheduled tasks. Simultaneous tasks are ordered by the sequence in
+         * which they were scheduled, so distinct tasks never compare equal.
          *
          * @param o other task
-         * @return 1 if self is executed later, 0 if concurrent and -1 if self is to be executed before.
+         * @return 1 if self is executed later, 0 if o is self and -1 if self is executed before.
          */
         public int compareTo(ScheduledTask o) {
             if (this.equals(o)) {
@@ -97,8 +133,8 @@ public class Timer {
             if (order != 0) {
                 return order;
             }
-            order = System.identityHashCode(this) - System.identityHashCode(o);
-            return order;
+            // Simultaneous tasks run in the order they were scheduled, independently of the JVM
+            return Long.compare(this.sequence, o.sequence);
         }
     }
 
@@ -114,13 +150,22 @@ public class Timer {
             currentTime = currentScheduledTask.getScheduledTime();
             // Remove the task from the mapping of all tasks
             taskMap.remove(currentTask, currentScheduledTask);
+            currentScheduledTask.recycle();
+            processedTaskCount++;
             // Execute
-            currentTask.run();
+            if (TASK_PROFILING) {
+                TaskProfiler.run(currentTask);
+            } else {
+                currentTask.run();
+            }
+            // Hand pooled tasks back once they have been run
+            currentTask.release();
         }
     }
 
     /**
-     * Remove task from the mapping of all tasks and from the execution queue.
+     * Remove task from the mapping of all tasks and from the execution queue. The task itself is
+     * not released, it stays owned by the caller.
      *
      * @param task the task to be removed
      */
@@ -129,6 +174,10 @@ public class Timer {
             ScheduledTask scheduledTask = taskMap.get(task);
             taskQueue.remove(scheduledTask);
             taskMap.remove(task, scheduledTask);
+            scheduledTask.recycle();
+            if (TASK_PROFILING) {
+                TaskProfiler.cancel(task);
+            }
         }
     }
 
@@ -152,7 +201,7 @@ public class Timer {
      * @param task the task
      */
     public static void putTask(Task task) {
-        ScheduledTask scheduledTask = new ScheduledTask(task, currentTime + task.getInterval());
+        ScheduledTask scheduledTask = ScheduledTask.obtain(task, currentTime + task.getInterval());
         taskMap.put(task, scheduledTask);
         taskQueue.add(scheduledTask);
     }
@@ -163,13 +212,30 @@ public class Timer {
      * @param task the task
      * @param time the time in milliseconds
      */
-    @SuppressWarnings("unused")
     public static void putTaskAbsoluteTime(Task task, long time) {
-        ScheduledTask scheduledTask = new ScheduledTask(task, time);
+        ScheduledTask scheduledTask = ScheduledTask.obtain(task, time);
         taskMap.put(task, scheduledTask);
         taskQueue.add(scheduledTask);
     }
 
+    /**
+     * Gets the number of tasks run since the beginning of the simulation.
+     *
+     * @return the number of processed tasks
+     */
+    public static long getProcessedTaskCount() {
+        return processedTaskCount;
+    }
+
+    /**
+     * Gets the number of tasks scheduled in the future event list.
+     *
+     * @return the number of scheduled tasks
+     */
+    public static int getTaskCount() {
+        return taskQueue.size();
+    }
+
     /**
      * Get current time in milliseconds.
      *
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.stats;
+
+import java.util.Arrays;
+
+/**
+ * The type Log histogram counts non-negative values in logarithmic buckets, in the manner of
+ * HdrHistogram: each power of two is split into {@link #SUB_BUCKETS} linear sub-buckets, so that
+ * any recorded value is known within about 3% whatever its magnitude. The memory used is fixed,
+ * and histograms recorded separately, e.g. by parallel runs, can be merged.
+ */
+public class LogHistogram {
+    /**
+     * The number of bits of precision kept for each value.
+     */
+    private static final int PRECISION = 5;
+
+    /**
+     * The number of sub-buckets per power of two. Values below it are counted exactly.
+     */
+    private static final int SUB_BUCKETS = 1 << PRECISION;
+
+    /**
+     * The counts by bucket.
+     */
+    private final long[] counts = new long[(64 - PRECISION) * SUB_BUCKETS];
+
+    /**
+     * The number of recorded values.
+     */
+    private long count = 0;
+
+    /**
+     * The sum of the recorded values.
+     */
+    private long total = 0;
+
+    /**
+     * The smallest recorded value.
+     */
+    private long min = Long.MAX_VALUE;
+
+    /**
+     * The largest recorded value.
+     */
+    private long max = 0;
+
+    /**
+     * Records a value.
+     *
+     * @param value the value, negative values are counted as zero
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        this.counts[indexOf(value)]++;
+        this.count++;
+        this.total += value;
+        if (value < this.min) {
+            this.min = value;
+        }
+        if (value > this.max) {
+            this.max = value;
+        }
+    }
+
+    /**
+     * Adds the values recorded by another histogram.
+     *
+     * @param other the other histogram
+     */
+    public void merge(LogHistogram other) {
+        for (int i = 0; i < this.counts.length; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.count += other.count;
+        this.total += other.total;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+    }
+
+    /**
+     * Forgets all recorded values.
+     */
+    public void clear() {
+        Arrays.fill(this.counts, 0);
+        this.count = 0;
+        this.total = 0;
+        this.min = Long.MAX_VALUE;
+        this.max = 0;
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Gets the sum of the recorded values.
+     *
+     * @return the total
+     */
+    public long getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Gets the smallest recorded value.
+     *
+     * @return the minimum, or 0 if nothing was recorded
+     */
+    public long getMin() {
+        return this.count == 0 ? 0 : this.min;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return the maximum
+     */
+    public long getMax() {
+        return this.max;
+    }
+
+    /**
+     * Gets the mean of the recorded values.
+     *
+     * @return the mean, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        return this.count == 0 ? 0 : (double) this.total / this.count;
+    }
+
+    /**
+     * Gets the value below or at which the provided percentage of the recorded values fall. The
+     * result is the highest value of the bucket holding that rank, capped by the maximum.
+     *
+     * @param percentile the percentage, between 0 and 100
+     * @return the value at the percentile, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (this.count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.count));
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), this.max);
+            }
+        }
+        return this.max;
+    }
+
+    /**
+     * Gets the number of buckets, for iterating with {@link #getBucketCount(int)}.
+     *
+     * @return the number of buckets
+     */
+    public int getBuckets() {
+        return this.counts.length;
+    }
+
+    /**
+     * Gets the number of values recorded in a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the count
+     */
+    public long getBucketCount(int bucket) {
+        return this.counts[bucket];
+    }
+
+    /**
+     * Gets the highest value counted in a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the highest value of the bucket
+     */
+    public static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Gets the bucket counting a value.
+     *
+     * @param value the non-negative value
+     * @return the bucket index
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - PRECISION;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+}
@@ -16,6 +16,7 @@
 
 package simblock.task;
 
+import static simblock.settings.SimulationConfiguration.TASK_POOL_DEBUG;
 import static simblock.simulator.Network.getLatency;
 
 import simblock.node.Node;
@@ -27,11 +28,16 @@ public abstract class AbstractMessageTask implements Task {
     /**
      * The sending entity.
      */
-    private final Node from;
+    private Node from;
     /**
      * The receiving entity.
      */
-    private final Node to;
+    private Node to;
+
+    /**
+     * The number of owners of the task. The task is recycled when it drops to zero.
+     */
+    private int refCount;
 
     /**
      * Instantiates a new Abstract message task.
@@ -40,8 +46,25 @@ public abstract class AbstractMessageTask implements Task {
      * @param to   the receiving entity
      */
     public AbstractMessageTask(Node from, Node to) {
+        this.init(from, to);
+    }
+
+    /**
+     * Instantiates a new, uninitialized Abstract message task for a {@link TaskPool}.
+     */
+    protected AbstractMessageTask() {
+    }
+
+    /**
+     * Initializes a new or recycled task.
+     *
+     * @param from the sending entity
+     * @param to   the receiving entity
+     */
+    protected void init(Node from, Node to) {
         this.from = from;
         this.to = to;
+        this.refCount = 1;
     }
 
     /**
@@ -50,6 +73,7 @@ public abstract class AbstractMessageTask implements Task {
      * @return the <em>from</em> node
      */
     public Node getFrom() {
+        this.checkLive();
         return this.from;
     }
 
@@ -59,16 +83,60 @@ public abstract class AbstractMessageTask implements Task {
      * @return the <em>to</em> node
      */
     public Node getTo() {
+        this.checkLive();
         return this.to;
     }
 
+    /**
+     * Keeps the task alive after it has been run, e.g. while it waits in a queue of a node. Every
+     * call must be matched by a call to {@link #release()}.
+     */
+    public void retain() {
+        this.checkLive();
+        this.refCount++;
+    }
+
+    /**
+     * Drops one owner of the task and recycles it once no owner is left.
+     */
+    @Override
+    public void release() {
+        if (this.refCount <= 0) {
+            throw new IllegalStateException(
+                    "Released " + this.getClass().getSimpleName() + " is released again");
+        }
+        this.refCount--;
+        if (this.refCount == 0) {
+            this.from = null;
+            this.to = null;
+            this.recycle();
+        }
+    }
+
+    /**
+     * Clears the fields of the subclass and returns the task to its {@link TaskPool}.
+     */
+    protected abstract void recycle();
+
+    /**
+     * Fails on use of a released task when
+     * {@link simblock.settings.SimulationConfiguration#TASK_POOL_DEBUG} is set.
+     */
+    protected void checkLive() {
+        if (TASK_POOL_DEBUG && this.refCount <= 0) {
+            throw new IllegalStateException(
+                    "Use of a released " + this.getClass().getSimpleName());
+        }
+    }
+
     /**
      * Get the message delay with regards to respective regions.
      *
      * @return the message sending interval
      */
     public long getInterval() {
-        long latency = getLatency(this.from.getRegion(), this.to.getRegion());
+        this.checkLive();
+        long latency = getLatency(this.from, this.to);
         // Add 10 milliseconds here, why?
         // TODO
         return latency + 10;
@@ -78,6 +146,7 @@ public abstract class AbstractMessageTask implements Task {
      * Receive message at the <em>to</em> side.
      */
     public void run() {
+        this.checkLive();
         this.to.receiveMessage(this);
     }
 }
@@ -16,6 +16,7 @@
 
 package simblock.task;
 
+import static simblock.logger.OutputTrace.isFlowTraced;
 import static simblock.simulator.Network.getLatency;
 import static simblock.simulator.Timer.getCurrentTime;
 
@@ -32,12 +33,17 @@ public class BlockMessageTask extends AbstractMessageTask {
     /**
      * The {@link Block} that is sent.
      */
-    private final Block block;
+    private Block block;
 
     /**
      * The block message sending delay in milliseconds.
      */
-    private final long interval;
+    private long interval;
+
+    /**
+     * Recycled instances of the task.
+     */
+    private static final TaskPool<BlockMessageTask> pool = new TaskPool<>(BlockMessageTask::new);
 
     /*
      * global logger
@@ -55,32 +61,69 @@ public class BlockMessageTask extends AbstractMessageTask {
     public BlockMessageTask(Node from, Node to, Block block, long delay) {
         super(from, to);
         this.block = block;
-        this.interval = getLatency(this.getFrom().getRegion(), this.getTo().getRegion()) + delay;
+        this.interval = getLatency(this.getFrom(), this.getTo()) + delay;
+    }
+
+    /**
+     * Instantiates a new, uninitialized task for the pool.
+     */
+    private BlockMessageTask() {
+    }
+
+    /**
+     * Obtains a recycled or new task. The task is released by the {@link simblock.simulator.Timer}
+     * after it has been run.
+     *
+     * @param from  the sender
+     * @param to    the receiver
+     * @param block the block instance
+     * @param delay the delay of the message transmission
+     * @return the task
+     */
+    public static BlockMessageTask obtain(Node from, Node to, Block block, long delay) {
+        BlockMessageTask task = pool.acquire();
+        task.init(from, to);
+        task.block = block;
+        task.interval = getLatency(from, to) + delay;
+        return task;
     }
 
     @Override
     public long getInterval() {
+        this.checkLive();
         return this.interval;
     }
 
+    /**
+     * Sets the delay of the message when its transmission is rescheduled.
+     *
+     * @param interval the delay from the start of the transmission to the reception
+     */
+    public void setInterval(long interval) {
+        this.checkLive();
+        this.interval = interval;
+    }
+
     /**
      * Sends a new block message from the sender to the receiver and logs the event.
      */
     @Override
     public void run() {
 
-        this.getFrom().sendNextBlockMessage();
+        this.getFrom().uploadCompleted(this);
 
-        logger.log("{");
-        logger.log("\"kind\":\"flow-block\",");
-        logger.log("\"content\":{");
-        logger.log("\"transmission-timestamp\":" + (getCurrentTime() - this.interval) + ",");
-        logger.log("\"reception-timestamp\":" + getCurrentTime() + ",");
-        logger.log("\"begin-node-id\":" + getFrom().getNodeID() + ",");
-        logger.log("\"end-node-id\":" + getTo().getNodeID() + ",");
-        logger.log("\"block-id\":" + block.getId());
-        logger.log("}");
-        logger.log("},");
+        if (isFlowTraced(block.getId(), getFrom().getNodeID(), getTo().getNodeID())) {
+            logger.getJsonWriter(false).beginObject()
+                    .name("kind").value("flow-block")
+                    .name("content").beginObject()
+                    .name("transmission-timestamp").value(getCurrentTime() - this.interval)
+                    .name("reception-timestamp").value(getCurrentTime())
+                    .name("begin-node-id").value(getFrom().getNodeID())
+                    .name("end-node-id").value(getTo().getNodeID())
+                    .name("block-id").value(block.getId())
+                    .endObject()
+                    .endObject();
+        }
 
         super.run();
     }
@@ -91,6 +134,13 @@ public class BlockMessageTask extends AbstractMessageTask {
      * @return the block
      */
     public Block getBlock() {
+        this.checkLive();
         return this.block;
     }
+
+    @Override
+    protected void recycle() {
+        this.block = null;
+        pool.recycle(this);
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.task;
+
+import static simblock.settings.SimulatorConfigulation.getChurnOfflineTime;
+import static simblock.settings.SimulatorConfigulation.getChurnOnlineTime;
+import static simblock.settings.SimulatorConfigulation.getChurnSessionShape;
+import static simblock.simulator.Main.random;
+import static simblock.simulator.Timer.putTask;
+
+import simblock.node.Node;
+
+/**
+ * The type Churn task takes a churn node offline at the end of its online session and back
+ * online at the end of its offline session, then schedules the next change. The session lengths
+ * follow the Weibull distributions set by CHURN_ONLINE_TIME, CHURN_OFFLINE_TIME and
+ * CHURN_SESSION_SHAPE.
+ */
+public class ChurnTask implements Task {
+    /**
+     * The churn node.
+     */
+    private final Node node;
+
+    /**
+     * The length of the current session.
+     */
+    private final long interval;
+
+    /**
+     * Instantiates a new Churn task.
+     *
+     * @param node     the churn node
+     * @param interval the length of the current session
+     */
+    public ChurnTask(Node node, long interval) {
+        this.node = node;
+        this.interval = interval;
+    }
+
+    /**
+     * Starts the sessions of the provided node if it is a churn node and churn is enabled.
+     *
+     * @param node the node, online
+     */
+    public static void startChurn(Node node) {
+        if (node.isChurnNode() && getChurnOnlineTime() > 0) {
+            putTask(new ChurnTask(node, sampleSessionLength(getChurnOnlineTime())));
+        }
+    }
+
+    /**
+     * Draws a session length from the Weibull distribution with the provided scale.
+     *
+     * @param scale the scale
+     * @return the session length
+     */
+    private static long sampleSessionLength(long scale) {
+        double exponential = -Math.log(1 - random.nextDouble());
+        return (long) (scale * Math.pow(exponential, 1 / getChurnSessionShape()));
+    }
+
+    @Override
+    public long getInterval() {
+        return this.interval;
+    }
+
+    @Override
+    public void run() {
+        if (this.node.isOnline()) {
+            this.node.leaveNetwork();
+            putTask(new ChurnTask(this.node, sampleSessionLength(getChurnOfflineTime())));
+        } else {
+            this.node.rejoinNetwork();
+            putTask(new ChurnTask(this.node, sampleSessionLength(getChurnOnlineTime())));
+        }
+    }
+}
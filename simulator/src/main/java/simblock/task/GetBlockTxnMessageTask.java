@@ -24,22 +24,57 @@ import simblock.node.Node;
  */
 // Compact block relay protocol Wiki: https://github.com/bitcoin/bips/blob/master/bip-0152.mediawiki
 public class GetBlockTxnMessageTask extends AbstractMessageTask {
-	/**
+    /**
      * The {@link Block} that is sent by from as compact block.
      */
-	private Block block;
+    private Block block;
+
+    /**
+     * Recycled instances of the task.
+     */
+    private static final TaskPool<GetBlockTxnMessageTask> pool = new TaskPool<>(
+            GetBlockTxnMessageTask::new);
+
+    public GetBlockTxnMessageTask(Node from, Node to, Block block) {
+        super(from, to);
+        this.block = block;
+    }
+
+    /**
+     * Instantiates a new, uninitialized task for the pool.
+     */
+    private GetBlockTxnMessageTask() {
+    }
+
+    /**
+     * Obtains a recycled or new task. The task is released by the {@link simblock.simulator.Timer}
+     * after it has been run.
+     *
+     * @param from  the sender
+     * @param to    the receiver
+     * @param block the block
+     * @return the task
+     */
+    public static GetBlockTxnMessageTask obtain(Node from, Node to, Block block) {
+        GetBlockTxnMessageTask task = pool.acquire();
+        task.init(from, to);
+        task.block = block;
+        return task;
+    }
 
-	public GetBlockTxnMessageTask(Node from, Node to, Block block) {
-		super(from, to);
-		this.block = block;
-	}
-    
     /**
      * Get block.
      *
      * @return the block
      */
-	public Block getBlock(){
-		return this.block;
-	}	
-}
\ No newline at end of file
+    public Block getBlock() {
+        this.checkLive();
+        return this.block;
+    }
+
+    @Override
+    protected void recycle() {
+        this.block = null;
+        pool.recycle(this);
+    }
+}
@@ -29,7 +29,12 @@ public class InvMessageTask extends AbstractMessageTask {
     /**
      * Block to be advertised.
      */
-    private final Block block;
+    private Block block;
+
+    /**
+     * Recycled instances of the task.
+     */
+    private static final TaskPool<InvMessageTask> pool = new TaskPool<>(InvMessageTask::new);
 
     /**
      * Instantiates a new Inv message task.
@@ -43,13 +48,42 @@ public class InvMessageTask extends AbstractMessageTask {
         this.block = block;
     }
 
+    /**
+     * Instantiates a new, uninitialized task for the pool.
+     */
+    private InvMessageTask() {
+    }
+
+    /**
+     * Obtains a recycled or new task. The task is released by the {@link simblock.simulator.Timer}
+     * after it has been run.
+     *
+     * @param from  the sender
+     * @param to    the receiver
+     * @param block the block
+     * @return the task
+     */
+    public static InvMessageTask obtain(Node from, Node to, Block block) {
+        InvMessageTask task = pool.acquire();
+        task.init(from, to);
+        task.block = block;
+        return task;
+    }
+
     /**
      * Gets block.
      *
      * @return the block
      */
     public Block getBlock() {
+        this.checkLive();
         return this.block;
     }
 
+    @Override
+    protected void recycle() {
+        this.block = null;
+        pool.recycle(this);
+    }
+
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.task;
+
+import static simblock.logger.OutputTrace.isSummaryTraced;
+import static simblock.settings.SimulatorConfigulation.getAlgo;
+import static simblock.settings.SimulatorConfigulation.getCBRUsageRate;
+import static simblock.settings.SimulatorConfigulation.getChurnNodeRate;
+import static simblock.simulator.Main.random;
+import static simblock.simulator.Simulator.addNodeWithConnection;
+import static simblock.simulator.Timer.getCurrentTime;
+import static simblock.task.ChurnTask.startChurn;
+
+import simblock.logger.BasicLogger;
+import simblock.node.Node;
+
+/**
+ * The type Make and join task creates a node and joins it to the running network, as read from a
+ * scenario by {@link simblock.simulator.ScenarioReader}.
+ */
+public class MakeAndJoinTask implements Task {
+    /**
+     * The delay before the node joins.
+     */
+    private final long interval;
+
+    /**
+     * The node id.
+     */
+    private final int nodeID;
+
+    /**
+     * The number of outbound connections of the node.
+     */
+    private final int numConnection;
+
+    /**
+     * The region of the node.
+     */
+    private final int region;
+
+    /**
+     * The mining power of the node.
+     */
+    private final long miningPower;
+
+    /**
+     * The fully qualified name of the routing table of the node.
+     */
+    private final String routingTableName;
+
+    /**
+     * Global logger
+     */
+    private static BasicLogger logger = BasicLogger.getLogger("simblock.output");
+
+    /**
+     * Instantiates a new Make and join task.
+     *
+     * @param interval         the delay before the node joins
+     * @param nodeID           the node id
+     * @param numConnection    the number of outbound connections of the node
+     * @param region           the region of the node
+     * @param miningPower      the mining power of the node
+     * @param routingTableName the fully qualified name of the routing table of the node
+     */
+    public MakeAndJoinTask(
+            long interval, int nodeID, int numConnection, int region, long miningPower,
+            String routingTableName) {
+        this.interval = interval;
+        this.nodeID = nodeID;
+        this.numConnection = numConnection;
+        this.region = region;
+        this.miningPower = miningPower;
+        this.routingTableName = routingTableName;
+    }
+
+    @Override
+    public long getInterval() {
+        return this.interval;
+    }
+
+    /**
+     * Creates the node, connects it to the network and brings it up to date with the chain of its
+     * neighbors. Whether the node uses compact block relay and causes churn is drawn as for the
+     * nodes created up front.
+     */
+    @Override
+    public void run() {
+        Node node = new Node(
+                this.nodeID, this.numConnection, this.region, this.miningPower,
+                this.routingTableName, getAlgo(), random.nextDouble() < getCBRUsageRate(),
+                random.nextDouble() < getChurnNodeRate());
+        addNodeWithConnection(node);
+
+        if (isSummaryTraced()) {
+            logger.getJsonWriter(false).beginObject()
+                    .name("kind").value("add-node")
+                    .name("content").beginObject()
+                    .name("timestamp").value(getCurrentTime())
+                    .name("node-id").value(this.nodeID)
+                    .name("region-id").value(this.region)
+                    .endObject()
+                    .endObject();
+        }
+
+        node.syncWithNeighbors();
+        startChurn(node);
+    }
+}
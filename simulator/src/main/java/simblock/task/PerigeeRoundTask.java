@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.task;
+
+import static simblock.settings.SimulatorConfigulation.getPerigeeRoundInterval;
+import static simblock.simulator.Timer.putTask;
+
+import simblock.node.routing.PerigeeTable;
+
+/**
+ * The type Perigee round task ends a round of a {@link PerigeeTable}, which replaces its slowest
+ * outbound neighbors, then schedules the next round PERIGEE_ROUND_INTERVAL later.
+ */
+public class PerigeeRoundTask implements Task {
+    /**
+     * The routing table.
+     */
+    private final PerigeeTable table;
+
+    /**
+     * The time until the end of the round.
+     */
+    private final long interval;
+
+    /**
+     * Instantiates a new Perigee round task.
+     *
+     * @param table    the routing table
+     * @param interval the time until the end of the round
+     */
+    public PerigeeRoundTask(PerigeeTable table, long interval) {
+        this.table = table;
+        this.interval = interval;
+    }
+
+    @Override
+    public long getInterval() {
+        return this.interval;
+    }
+
+    @Override
+    public void run() {
+        this.table.endRound();
+        putTask(new PerigeeRoundTask(this.table, getPerigeeRoundInterval()));
+    }
+}
@@ -28,7 +28,12 @@ public class RecMessageTask extends AbstractMessageTask {
     /**
      * The block to be received.
      */
-    private final Block block;
+    private Block block;
+
+    /**
+     * Recycled instances of the task.
+     */
+    private static final TaskPool<RecMessageTask> pool = new TaskPool<>(RecMessageTask::new);
 
     /**
      * Instantiates a new Rec message task.
@@ -42,13 +47,42 @@ public class RecMessageTask extends AbstractMessageTask {
         this.block = block;
     }
 
+    /**
+     * Instantiates a new, uninitialized task for the pool.
+     */
+    private RecMessageTask() {
+    }
+
+    /**
+     * Obtains a recycled or new task. The task is released by the {@link simblock.simulator.Timer}
+     * after it has been run.
+     *
+     * @param from  the sender
+     * @param to    the receiver
+     * @param block the block
+     * @return the task
+     */
+    public static RecMessageTask obtain(Node from, Node to, Block block) {
+        RecMessageTask task = pool.acquire();
+        task.init(from, to);
+        task.block = block;
+        return task;
+    }
+
     /**
      * Gets the block to be received.
      *
      * @return the block
      */
     public Block getBlock() {
+        this.checkLive();
         return this.block;
     }
 
+    @Override
+    protected void recycle() {
+        this.block = null;
+        pool.recycle(this);
+    }
+
 }
@@ -32,4 +32,11 @@ public interface Task {
      * Run the task.
      */
     void run();
+
+    /**
+     * Releases the task after it has been run by the {@link simblock.simulator.Timer}. Pooled
+     * tasks return themselves to their pool here, other tasks ignore the call.
+     */
+    default void release() {
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 Distributed Systems Group
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simblock.task;
+
+import static simblock.settings.SimulationConfiguration.TASK_POOL_DEBUG;
+
+import java.util.ArrayDeque;
+import java.util.function.Supplier;
+
+/**
+ * The type Task pool recycles message tasks of a single type. Tasks are acquired through the
+ * static <em>obtain</em> factories of the message task classes and return here once released.
+ *
+ * @param <T> the type of pooled task
+ */
+public class TaskPool<T extends AbstractMessageTask> {
+    /**
+     * Released tasks ready for reuse.
+     */
+    private final ArrayDeque<T> free = new ArrayDeque<>();
+
+    /**
+     * Creates a new, uninitialized task when the pool is empty.
+     */
+    private final Supplier<T> factory;
+
+    /**
+     * The number of tasks created by the pool.
+     */
+    private long created = 0;
+
+    /**
+     * The number of tasks handed out by the pool.
+     */
+    private long acquired = 0;
+
+    /**
+     * Instantiates a new Task pool.
+     *
+     * @param factory creates a new, uninitialized task
+     */
+    public TaskPool(Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Takes a released task from the pool or creates a new one. The caller must initialize it.
+     *
+     * @return the task
+     */
+    T acquire() {
+        this.acquired++;
+        T task = this.free.pollLast();
+        if (task == null) {
+            task = this.factory.get();
+            this.created++;
+        }
+        return task;
+    }
+
+    /**
+     * Returns a released task to the pool. In debug mode released tasks are never reused, so
+     * that any later access through a stale reference fails instead of silently reading the
+     * fields of an unrelated message.
+     *
+     * @param task the released task
+     */
+    void recycle(T task) {
+        if (!TASK_POOL_DEBUG) {
+            this.free.addLast(task);
+        }
+    }
+
+    /**
+     * Gets the number of tasks created by the pool.
+     *
+     * @return the number of created tasks
+     */
+    public long getCreatedCount() {
+        return this.created;
+    }
+
+    /**
+     * Gets the number of tasks handed out by the pool.
+     *
+     * @return the number of acquired tasks
+     */
+    public long getAcquiredCount() {
+        return this.acquired;
+    }
+}